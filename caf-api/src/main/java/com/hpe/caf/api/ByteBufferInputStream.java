@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.api;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * An InputStream over the remaining content of a ByteBuffer, such as a memory-mapped file.
+ * <p>
+ * Decoders that can work with buffers directly can retrieve the underlying data using {@link #getBuffer()}, so that it does not
+ * need to be copied through the stream.
+ */
+public final class ByteBufferInputStream extends InputStream
+{
+    private final ByteBuffer buffer;
+    private final ByteBuffer stream;
+
+    /**
+     * Create a stream over the remaining content of the specified buffer. The position of the buffer is not changed.
+     *
+     * @param buffer the buffer containing the data
+     */
+    public ByteBufferInputStream(final ByteBuffer buffer)
+    {
+        this.buffer = Objects.requireNonNull(buffer).slice();
+        this.stream = this.buffer.duplicate();
+        this.stream.mark();
+    }
+
+    /**
+     * Return a view of all of the data in the stream, regardless of how much of it has already been read. The data must not be
+     * modified through the returned buffer.
+     *
+     * @return a new buffer containing the data, positioned at its start
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer.duplicate();
+    }
+
+    @Override
+    public int read()
+    {
+        return stream.hasRemaining() ? stream.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+    {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!stream.hasRemaining()) {
+            return -1;
+        }
+        final int count = Math.min(len, stream.remaining());
+        stream.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(final long n)
+    {
+        final int count = (int) Math.max(0, Math.min(n, stream.remaining()));
+        stream.position(stream.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available()
+    {
+        return stream.remaining();
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit)
+    {
+        stream.mark();
+    }
+
+    @Override
+    public synchronized void reset()
+    {
+        stream.reset();
+    }
+}
@@ -16,6 +16,7 @@
 package com.hpe.caf.api;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A Codec specifies methods to serialise data from a Java object to byte format, and deserialise data from byte format back into a
@@ -71,6 +72,39 @@ public interface Codec extends Decoder
     <T> T deserialise(InputStream stream, Class<T> clazz, DecodeMethod method)
         throws CodecException;
 
+    /**
+     * Deserialise the remaining content of a buffer into the specified class using the default decode method.
+     *
+     * @param buffer the serialised data, which may be a memory-mapped file
+     * @param clazz the class the serialised data represents
+     * @param <T> the class the serialised data represents
+     * @return an instance of the class specified represented by the data
+     * @throws CodecException if the data could not be deserialised
+     */
+    @Override
+    default <T> T deserialise(ByteBuffer buffer, Class<T> clazz)
+        throws CodecException
+    {
+        return deserialise(buffer, clazz, DecodeMethod.getDefault());
+    }
+
+    /**
+     * Deserialise the remaining content of a buffer into the specified class. Codecs that can read directly from a buffer should
+     * override this method; by default the buffer is read as a stream.
+     *
+     * @param buffer the serialised data, which may be a memory-mapped file
+     * @param clazz the class the serialised data represents
+     * @param method specifies whether to use strict or lenient decoding during deserialisation
+     * @param <T> the class the serialised data represents
+     * @return an instance of the class specified represented by the data
+     * @throws CodecException if the data could not be deserialised
+     */
+    default <T> T deserialise(ByteBuffer buffer, Class<T> clazz, DecodeMethod method)
+        throws CodecException
+    {
+        return deserialise(new ByteBufferInputStream(buffer), clazz, method);
+    }
+
     /**
      * Serialise the given object into a byte data form.
      *
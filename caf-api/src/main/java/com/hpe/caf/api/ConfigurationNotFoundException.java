@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.api;
+
+/**
+ * Indicates that a ConfigurationSource does not have the requested configuration, as opposed to being unable to determine whether it
+ * has it.
+ */
+public class ConfigurationNotFoundException extends ConfigurationException
+{
+    /**
+     * Create a new ConfigurationNotFoundException
+     *
+     * @param message information about this exception
+     */
+    public ConfigurationNotFoundException(final String message)
+    {
+        super(message);
+    }
+
+    /**
+     * Create a new ConfigurationNotFoundException
+     *
+     * @param message information about this exception
+     * @param cause the original cause of this exception
+     */
+    public ConfigurationNotFoundException(final String message, final Throwable cause)
+    {
+        super(message, cause);
+    }
+}
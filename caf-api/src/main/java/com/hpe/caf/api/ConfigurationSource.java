@@ -15,6 +15,10 @@
  */
 package com.hpe.caf.api;
 
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 /**
  * A ConfigurationSource is intended to provide an implementation-agnostic method of retrieving application-specific configuration.
  */
@@ -30,4 +34,40 @@ public interface ConfigurationSource
      */
     <T> T getConfiguration(Class<T> configClass)
         throws ConfigurationException;
+
+    /**
+     * Acquire a configuration class without blocking the calling thread. Sources which are not able to acquire configuration
+     * asynchronously acquire it on the calling thread, and return a future that has already completed.
+     *
+     * @param configClass the class that represents your configuration
+     * @param <T> the class that represents your configuration
+     * @return the configuration class requested, which completes exceptionally with a ConfigurationException if the configuration
+     * class cannot be acquired or deserialised
+     */
+    default <T> CompletableFuture<T> getConfigurationAsync(final Class<T> configClass)
+    {
+        try {
+            return CompletableFuture.completedFuture(getConfiguration(configClass));
+        } catch (final ConfigurationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Subscribe to changes to a configuration class. Whenever the source detects that the configuration has changed, the listener is
+     * passed the newly acquired configuration, so there is no need to poll the source for changes. The listener is not passed the
+     * current configuration when it subscribes. Sources which are not able to detect changes never notify the listener.
+     *
+     * @param configClass the class that represents your configuration
+     * @param listener the listener to pass the changed configuration to
+     * @param <T> the class that represents your configuration
+     * @return a handle that can be used to cancel the subscription
+     */
+    default <T> ConfigurationSubscription subscribe(final Class<T> configClass, final Consumer<? super T> listener)
+    {
+        Objects.requireNonNull(configClass);
+        Objects.requireNonNull(listener);
+        return () -> {
+        };
+    }
 }
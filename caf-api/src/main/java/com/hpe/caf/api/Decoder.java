@@ -16,6 +16,7 @@
 package com.hpe.caf.api;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A Decoder provides a facility to convert data to an object representation.
@@ -23,4 +24,19 @@ import java.io.InputStream;
 public interface Decoder
 {
     <T> T deserialise(InputStream stream, Class<T> clazz) throws CodecException;
+
+    /**
+     * Deserialise the remaining content of a buffer into the specified class. Decoders that can read directly from a buffer should
+     * override this method; by default the buffer is read as a stream.
+     *
+     * @param buffer the serialised data, which may be a memory-mapped file
+     * @param clazz the class the serialised data represents
+     * @param <T> the class the serialised data represents
+     * @return an instance of the class specified represented by the data
+     * @throws CodecException if the data could not be deserialised
+     */
+    default <T> T deserialise(ByteBuffer buffer, Class<T> clazz) throws CodecException
+    {
+        return deserialise(new ByteBufferInputStream(buffer), clazz);
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility app for measuring the startup time gained by using a class data sharing archive. It runs ClassDataSharingWarmup in a new JVM
+ * the specified number of times, first without the archive and then with it, and outputs the mean and fastest times to stdout.
+ *
+ * The archive must have been created by CreateClassDataSharingArchive with the same class path, and the usual bootstrap
+ * configuration, such as CAF_APPNAME and CAF_CONFIG_PATH, must be set.
+ *
+ * Usage: java -cp "*" com.hpe.caf.util.ClassDataSharingBenchmark archiveFile runs [configClassName...]
+ */
+public final class ClassDataSharingBenchmark
+{
+    private ClassDataSharingBenchmark()
+    {
+    }
+
+    public static void main(final String[] args)
+        throws IOException, InterruptedException
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp * com.hpe.caf.util.ClassDataSharingBenchmark archiveFile runs [configClassName...]");
+            System.exit(1);
+        }
+
+        final Path archiveFile = Paths.get(args[0]).toAbsolutePath();
+        final int runs = Integer.parseInt(args[1]);
+        final List<String> configClassNames = Arrays.asList(args).subList(2, args.length);
+        if (!Files.isRegularFile(archiveFile)) {
+            System.err.println("Class data sharing archive not found: " + archiveFile);
+            System.exit(1);
+        }
+
+        // Check that both configurations work, and show any errors, before anything is measured
+        final List<String> withoutArchive = Collections.emptyList();
+        final List<String> withArchive = Arrays.asList("-XX:SharedArchiveFile=" + archiveFile, "-Xshare:on");
+        WarmupLauncher.run(withoutArchive, configClassNames, Redirect.INHERIT);
+        WarmupLauncher.run(withArchive, configClassNames, Redirect.INHERIT);
+
+        final long[] baseline = measure(withoutArchive, configClassNames, runs);
+        final long[] shared = measure(withArchive, configClassNames, runs);
+        System.out.printf("%-18s %10s %10s%n", "Startup (" + runs + " runs)", "Mean", "Fastest");
+        System.out.printf("%-18s %7d ms %7d ms%n", "Without archive", baseline[0], baseline[1]);
+        System.out.printf("%-18s %7d ms %7d ms%n", "With archive", shared[0], shared[1]);
+        System.out.printf("%-18s %9.1f%%%n", "Improvement", 100.0 * (baseline[0] - shared[0]) / baseline[0]);
+    }
+
+    /**
+     * Run the warm-up the specified number of times, and time each run from starting the JVM until it exits.
+     *
+     * @return the mean and the fastest elapsed times in milliseconds
+     */
+    private static long[] measure(final List<String> jvmOptions, final List<String> configClassNames, final int runs)
+        throws IOException, InterruptedException
+    {
+        long total = 0;
+        long fastest = Long.MAX_VALUE;
+        for (int run = 0; run < runs; run++) {
+            final long start = System.nanoTime();
+            WarmupLauncher.run(jvmOptions, configClassNames, Redirect.DISCARD);
+            final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            total += elapsed;
+            fastest = Math.min(fastest, elapsed);
+        }
+        return new long[]{total / runs, fastest};
+    }
+}
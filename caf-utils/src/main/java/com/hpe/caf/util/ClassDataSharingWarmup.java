@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.CipherProvider;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.ConfigurationDecoderProvider;
+import com.hpe.caf.api.ConfigurationSourceProvider;
+import com.hpe.caf.api.Decoder;
+import com.hpe.caf.api.ElectionFactoryProvider;
+import com.hpe.caf.api.ManagedConfigurationSource;
+import com.hpe.caf.config.system.SystemBootstrapConfiguration;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Utility app that performs the same bootstrap as a typical CAF service, so that the classes it loads can be recorded in a class data
+ * sharing archive. It discovers the available modules through the ModuleLoader, creates the configuration source, reads each of the
+ * specified configuration classes and passes them through the codec, and then exits.
+ *
+ * The usual bootstrap configuration, such as CAF_APPNAME and CAF_CONFIG_PATH, must be set.
+ *
+ * Usage: java -cp "*" com.hpe.caf.util.ClassDataSharingWarmup [configClassName...]
+ */
+public final class ClassDataSharingWarmup
+{
+    private ClassDataSharingWarmup()
+    {
+    }
+
+    public static void main(final String[] args)
+        throws Exception
+    {
+        ModuleLoader.getServices(CipherProvider.class);
+        ModuleLoader.getServices(Codec.class);
+        ModuleLoader.getServices(Decoder.class);
+        ModuleLoader.getServices(ConfigurationDecoderProvider.class);
+        ModuleLoader.getServices(ConfigurationSourceProvider.class);
+        ModuleLoader.getServices(ElectionFactoryProvider.class);
+
+        final BootstrapConfiguration bootstrap = new SystemBootstrapConfiguration();
+        final Cipher cipher = ModuleLoader.getService(CipherProvider.class).getCipher(bootstrap);
+        final Codec codec = ModuleLoader.getService(Codec.class);
+        final ConfigurationDecoderProvider decoderProvider = ModuleLoader.getServiceOrElse(ConfigurationDecoderProvider.class, null);
+        final Decoder decoder = decoderProvider == null ? codec : decoderProvider.getDecoder(bootstrap, codec);
+        codec.deserialise(codec.serialise(Collections.singletonMap("warmup", Boolean.TRUE)), HashMap.class);
+
+        final ManagedConfigurationSource configurationSource = ModuleLoader.getService(ConfigurationSourceProvider.class)
+            .getConfigurationSource(bootstrap, cipher, bootstrap.getServicePath(), decoder);
+        try {
+            for (final String className : args) {
+                final Class<?> configClass = Class.forName(className);
+                final Object configuration = configurationSource.getConfiguration(configClass);
+                codec.deserialise(codec.serialise(configuration), configClass);
+            }
+        } finally {
+            configurationSource.shutdown();
+        }
+    }
+}
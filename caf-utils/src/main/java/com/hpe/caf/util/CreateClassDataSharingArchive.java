@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utility app for creating a class data sharing (AppCDS) archive for a CAF service. It runs ClassDataSharingWarmup in a new JVM, with the
+ * same class path as this one, and archives the classes that it loads. The service can then be started with the JVM option
+ * -XX:SharedArchiveFile=archiveFile to load those classes from the archive, which reduces its startup time.
+ *
+ * The class path must be the same as the one that the service is started with, and the usual bootstrap configuration, such as
+ * CAF_APPNAME and CAF_CONFIG_PATH, must be set.
+ *
+ * Usage: java -cp "*" com.hpe.caf.util.CreateClassDataSharingArchive archiveFile [configClassName...]
+ */
+public final class CreateClassDataSharingArchive
+{
+    /**
+     * Dynamic archiving of the classes loaded by an application was added in Java 13. Earlier versions must dump a class list and
+     * then create a static archive from it.
+     */
+    private static final int DYNAMIC_ARCHIVE_JAVA_VERSION = 13;
+
+    private CreateClassDataSharingArchive()
+    {
+    }
+
+    public static void main(final String[] args)
+        throws IOException, InterruptedException
+    {
+        if (args.length < 1) {
+            System.err.println("Usage: java -cp * com.hpe.caf.util.CreateClassDataSharingArchive archiveFile [configClassName...]");
+            System.exit(1);
+        }
+
+        final Path archiveFile = Paths.get(args[0]).toAbsolutePath();
+        final List<String> configClassNames = Arrays.asList(args).subList(1, args.length);
+        Files.deleteIfExists(archiveFile);
+        if (Runtime.version().feature() >= DYNAMIC_ARCHIVE_JAVA_VERSION) {
+            WarmupLauncher.run(
+                Collections.singletonList("-XX:ArchiveClassesAtExit=" + archiveFile), configClassNames, Redirect.INHERIT);
+        } else {
+            final Path classList = Files.createTempFile("caf-cds", ".classlist");
+            try {
+                WarmupLauncher.run(
+                    Collections.singletonList("-XX:DumpLoadedClassList=" + classList), configClassNames, Redirect.INHERIT);
+                WarmupLauncher.exec(Arrays.asList(
+                    Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-Xshare:dump",
+                    "-XX:SharedClassListFile=" + classList,
+                    "-XX:SharedArchiveFile=" + archiveFile,
+                    "-cp",
+                    System.getProperty("java.class.path")), Redirect.INHERIT);
+            } finally {
+                Files.deleteIfExists(classList);
+            }
+        }
+        if (!Files.isRegularFile(archiveFile)) {
+            System.err.println("Class data sharing archive was not created: " + archiveFile);
+            System.exit(1);
+        }
+        System.out.println("Created class data sharing archive " + archiveFile);
+        System.out.println("Start the service with the JVM option -XX:SharedArchiveFile=" + archiveFile);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Launches ClassDataSharingWarmup in a new JVM, which uses the same Java installation and class path as the current one.
+ */
+final class WarmupLauncher
+{
+    private WarmupLauncher()
+    {
+    }
+
+    /**
+     * Run the warm-up and wait for it to finish.
+     *
+     * @param jvmOptions the options to pass to the JVM
+     * @param configClassNames the configuration classes for the warm-up to read
+     * @param redirect where the output of the JVM should be sent
+     * @throws IOException if the JVM cannot be started, or if it does not exit successfully
+     * @throws InterruptedException if the current thread is interrupted while waiting for the JVM to exit
+     */
+    public static void run(final List<String> jvmOptions, final List<String> configClassNames, final Redirect redirect)
+        throws IOException, InterruptedException
+    {
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ClassDataSharingWarmup.class.getName());
+        command.addAll(configClassNames);
+        exec(command, redirect);
+    }
+
+    /**
+     * Run a command and wait for it to finish.
+     *
+     * @param command the command and its arguments
+     * @param redirect where the output of the command should be sent
+     * @throws IOException if the command cannot be started, or if it does not exit successfully
+     * @throws InterruptedException if the current thread is interrupted while waiting for the command to exit
+     */
+    public static void exec(final List<String> command, final Redirect redirect)
+        throws IOException, InterruptedException
+    {
+        final Process process = new ProcessBuilder(command).redirectOutput(redirect).redirectError(redirect).start();
+        final int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Command failed with exit code " + exitCode + ": " + String.join(" ", command));
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.hpe.caf.codec;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hpe.caf.api.ByteBufferInputStream;
 import com.hpe.caf.api.Codec;
 import com.hpe.caf.api.CodecException;
 import com.hpe.caf.api.DecodeMethod;
@@ -24,6 +25,7 @@ import com.hpe.caf.api.FileExtensions;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Implementation of Codec that supports serialisation and deserialisation to and form JSON format.
@@ -62,6 +64,26 @@ public class JsonCodec implements Codec
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Heap buffers are parsed in place. Other buffers, such as memory-mapped files, are streamed through the parser's own buffer
+     * rather than being copied onto the heap first.
+     */
+    @Override
+    public <T> T deserialise(final ByteBuffer buffer, final Class<T> clazz, final DecodeMethod method)
+        throws CodecException
+    {
+        if (!buffer.hasArray()) {
+            return deserialise(new ByteBufferInputStream(buffer), clazz, method);
+        }
+        try {
+            return getMapper(method).readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), clazz);
+        } catch (final IOException e) {
+            throw new CodecException("Failed to deserialise", e);
+        }
+    }
+
     @Override
     public byte[] serialise(final Object object)
         throws CodecException
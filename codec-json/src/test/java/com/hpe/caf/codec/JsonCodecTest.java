@@ -21,6 +21,8 @@ import com.hpe.caf.api.DecodeMethod;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
+
 public class JsonCodecTest
 {
     private static final String VERIFY_STRING = "test456";
@@ -37,6 +39,22 @@ public class JsonCodecTest
         Assert.assertEquals(test.getTestString(), res.getTestString());
     }
 
+    @Test
+    public void testByteBufferDeserialisation()
+        throws CodecException
+    {
+        Codec codec = new JsonCodec();
+        CodecTestData test = new CodecTestData();
+        test.setTestString(VERIFY_STRING);
+        byte[] stuff = codec.serialise(test);
+        ByteBuffer heap = ByteBuffer.allocate(stuff.length + 2);
+        heap.put((byte) ' ').put(stuff).flip().position(1);
+        Assert.assertEquals(codec.deserialise(heap.slice(), CodecTestData.class).getTestString(), VERIFY_STRING);
+        ByteBuffer direct = ByteBuffer.allocateDirect(stuff.length);
+        direct.put(stuff).flip();
+        Assert.assertEquals(codec.deserialise(direct, CodecTestData.class).getTestString(), VERIFY_STRING);
+    }
+
     @Test(expectedExceptions = CodecException.class)
     public void testUnknownPropertyStrict()
         throws CodecException
@@ -33,18 +33,37 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Partial implementation of a ManagedConfigurationSource that performs hierarchical lookups based upon the service's ServicePath, and
  * recursive lookup for configuration objects that themselves have configuration in marked with the @Configuration annotation.
+ *
+ * Subscriptions to configuration changes are managed here, but it is up to implementations that are able to detect changes to call
+ * configurationChanged() when they do.
+ *
+ * Levels of the service path at which a configuration class was not found are remembered for CAF_CONFIG_NEGATIVE_CACHE_TTL_SECONDS
+ * (60 seconds by default), and are skipped when the class is next acquired. Implementations that are able to detect changes should
+ * call clearMissingConfigurationCache() when they do.
  */
 public abstract class CafConfigurationSource implements ManagedConfigurationSource
 {
+    public static final String NEGATIVE_CACHE_TTL_SECONDS = "CAF_CONFIG_NEGATIVE_CACHE_TTL_SECONDS";
+    private static final int NEGATIVE_CACHE_TTL_SECONDS_DEFAULT = 60;
     private final Cipher security;
     private final ServicePath id;
     private final Decoder decoder;
@@ -52,6 +71,9 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
     private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
     private final AtomicInteger confRequests = new AtomicInteger(0);
     private final AtomicInteger confErrors = new AtomicInteger(0);
+    private final ConcurrentMap<Class<?>, List<Consumer<Object>>> subscriptions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, List<Runnable>> changeListeners = new ConcurrentHashMap<>();
+    private final MissingConfigurationCache missingConfigurationCache;
     private static final Logger LOG = LoggerFactory.getLogger(CafConfigurationSource.class);
 
     /**
@@ -71,6 +93,7 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
         this.decoder = Objects.requireNonNull(decoder);
         Objects.requireNonNull(bootstrapProvider);
         this.isSubstitutorEnabled = getIsSubstitutorEnabled(bootstrapProvider);
+        this.missingConfigurationCache = new MissingConfigurationCache(getNegativeCacheTtlSeconds(bootstrapProvider));
     }
 
     /**
@@ -87,10 +110,28 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
     @Override
     public final <T> T getConfiguration(final Class<T> configClass)
         throws ConfigurationException
+    {
+        return getConfiguration(configClass, null);
+    }
+
+    /**
+     * Acquire a configuration class from serialised configuration that has already been retrieved, rather than from the source. This
+     * allows implementations that retrieve the configuration asynchronously to decode it without further requests. The configuration
+     * is completed and validated in the same way as by {@link #getConfiguration(Class)}.
+     *
+     * @param configClass the class that represents your configuration
+     * @param documents the serialised configuration of the class and of the configuration classes nested within it, where a class
+     * that has no entry is treated as having no configuration, or null to acquire the configuration from the source
+     * @param <T> the class that represents your configuration
+     * @return the configuration class requested, if it can be deserialised
+     * @throws ConfigurationException if the configuration class cannot be acquired or deserialised
+     */
+    protected final <T> T getConfiguration(final Class<T> configClass, final Map<Class<?>, byte[]> documents)
+        throws ConfigurationException
     {
         Objects.requireNonNull(configClass);
         incrementRequests();
-        T config = getCompleteConfig(configClass);
+        T config = getCompleteConfig(configClass, documents);
         Set<ConstraintViolation<T>> violations = getValidator().validate(config);
         if (violations.isEmpty()) {
             return config;
@@ -101,6 +142,64 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
         }
     }
 
+    /**
+     * Acquire the serialised configuration of a class from the most specific level of the service path at which it is available,
+     * without decoding it. Nested configuration classes are not acquired, and no decryption, substitution or validation is performed,
+     * so that the configuration from several sources can be combined before it is decoded.
+     *
+     * @param configClass the configuration class to be acquired
+     * @return the stream containing the serialised configuration of the class
+     * @throws ConfigurationException if the configuration is not available at any level of the service path
+     */
+    public final InputStream getSerialisedConfiguration(final Class<?> configClass)
+        throws ConfigurationException
+    {
+        Objects.requireNonNull(configClass);
+        incrementRequests();
+        try {
+            return getMostSpecificConfigurationStream(configClass);
+        } catch (final ConfigurationException e) {
+            incrementErrors();
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Listeners are notified on whichever thread the implementation detects the change on, and should not block.
+     */
+    @Override
+    public <T> ConfigurationSubscription subscribe(final Class<T> configClass, final Consumer<? super T> listener)
+    {
+        Objects.requireNonNull(configClass);
+        Objects.requireNonNull(listener);
+        @SuppressWarnings("unchecked")
+        final Consumer<Object> objectListener = (Consumer<Object>) listener;
+        final List<Consumer<Object>> listeners = subscriptions.computeIfAbsent(configClass, key -> new CopyOnWriteArrayList<>());
+        listeners.add(objectListener);
+        return () -> listeners.remove(objectListener);
+    }
+
+    /**
+     * Register to be told when the configuration of a class may have changed, without it being re-acquired. This is intended for
+     * sources that combine the configuration from other sources, which must re-acquire it themselves, as the configuration in any
+     * one of the other sources may be incomplete, or may have been removed. The listener is run on whichever thread the
+     * implementation detects the change on, and should not block.
+     *
+     * @param configClass the configuration class to be told about changes to, including changes to nested configuration classes
+     * @param listener run each time a change that affects the class is detected
+     * @return the subscription, which should be cancelled when changes are no longer of interest
+     */
+    public final ConfigurationSubscription subscribeToChanges(final Class<?> configClass, final Runnable listener)
+    {
+        Objects.requireNonNull(configClass);
+        Objects.requireNonNull(listener);
+        final List<Runnable> listeners = changeListeners.computeIfAbsent(configClass, key -> new CopyOnWriteArrayList<>());
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -135,7 +234,80 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
     }
 
     /**
-     * Acquire and return a stream of the serialised data from the transport source.
+     * Determine which configuration classes changes would currently be delivered for. This includes the subscribed classes, those
+     * registered with subscribeToChanges(), and the configuration classes that are nested within them using the @Configuration
+     * annotation.
+     *
+     * @return the configuration classes that changes should be detected for
+     */
+    protected final Set<Class<?>> getSubscribedConfigurationClasses()
+    {
+        final Set<Class<?>> configClasses = new HashSet<>();
+        for (final Map.Entry<Class<?>, List<Consumer<Object>>> entry : subscriptions.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                addNestedConfigurationClasses(entry.getKey(), configClasses);
+            }
+        }
+        for (final Map.Entry<Class<?>, List<Runnable>> entry : changeListeners.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                addNestedConfigurationClasses(entry.getKey(), configClasses);
+            }
+        }
+        return Collections.unmodifiableSet(configClasses);
+    }
+
+    /**
+     * Notify subscribers that configuration has changed. Each subscribed class is re-acquired if it, or a configuration class that is
+     * nested within it using the @Configuration annotation, is affected by the change, and its subscribers are passed the new
+     * configuration. If the configuration can no longer be acquired, or fails validation, the subscribers are not notified. Listeners
+     * registered with subscribeToChanges() are run for each affected class without it being re-acquired.
+     *
+     * @param isAffected determines whether the configuration for a class has been affected by the change
+     */
+    protected final void configurationChanged(final Predicate<Class<?>> isAffected)
+    {
+        Objects.requireNonNull(isAffected);
+        for (final Map.Entry<Class<?>, List<Runnable>> entry : changeListeners.entrySet()) {
+            final Class<?> configClass = entry.getKey();
+            if (entry.getValue().isEmpty() || !isAffected(configClass, isAffected)) {
+                continue;
+            }
+            for (final Runnable listener : entry.getValue()) {
+                try {
+                    listener.run();
+                } catch (final RuntimeException e) {
+                    LOG.error("Configuration change listener for {} failed", configClass.getSimpleName(), e);
+                }
+            }
+        }
+        for (final Map.Entry<Class<?>, List<Consumer<Object>>> entry : subscriptions.entrySet()) {
+            final Class<?> configClass = entry.getKey();
+            final List<Consumer<Object>> listeners = entry.getValue();
+            if (listeners.isEmpty() || !isAffected(configClass, isAffected)) {
+                continue;
+            }
+            final Object config;
+            try {
+                config = getConfiguration(configClass);
+            } catch (final ConfigurationException e) {
+                LOG.warn("Failed to re-acquire changed configuration for {}, subscribers have not been notified",
+                         configClass.getSimpleName(), e);
+                continue;
+            }
+            LOG.info("Configuration for {} has changed", configClass.getSimpleName());
+            for (final Consumer<Object> listener : listeners) {
+                try {
+                    listener.accept(config);
+                } catch (final RuntimeException e) {
+                    LOG.error("Configuration subscriber for {} failed", configClass.getSimpleName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Acquire and return a stream of the serialised data from the transport source. If the data is already held in a buffer then
+     * a {@link ByteBufferInputStream} may be returned, and the buffer is passed directly to the decoder.
      *
      * @param configClass the configuration class to be acquired
      * @param relativePath the partial service path that defines the scope to try and acquire the configuration in
@@ -145,26 +317,104 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
     protected abstract InputStream getConfigurationStream(final Class configClass, final Name relativePath)
         throws ConfigurationException;
 
+    /**
+     * Acquire a stream of the serialised data from the most specific level of the service path at which the configuration class is
+     * available. By default each level is tried in turn, starting with the full service path, using
+     * {@link #getConfigurationStream(Class, Name)}. Sources for which each attempt is expensive may override this to try the levels
+     * concurrently, but the most specific configuration that is available must still be returned. Sources that index their
+     * configuration up front can hold it in a {@link com.hpe.caf.naming.ServicePathTrie} for each configuration class, and override
+     * this to find the most specific level in a single traversal.
+     *
+     * @param configClass the configuration class to be acquired
+     * @return the stream containing the serialised configuration of the class
+     * @throws ConfigurationException if the configuration is not available at any level of the service path
+     */
+    protected InputStream getMostSpecificConfigurationStream(final Class configClass)
+        throws ConfigurationException
+    {
+        ConfigurationException failure = null;
+        final Iterator<Name> it = getServicePath().descendingPathIterator();
+        while (it.hasNext()) {
+            final Name relativePath = it.next();
+            if (isMissingConfiguration(configClass, relativePath)) {
+                continue;
+            }
+            try {
+                final InputStream stream = getConfigurationStream(configClass, relativePath);
+                setMissingConfiguration(configClass, relativePath, false);
+                return stream;
+            } catch (final ConfigurationNotFoundException e) {
+                setMissingConfiguration(configClass, relativePath, true);
+                LOG.trace("No configuration at this path level", e);
+            } catch (final ConfigurationException e) {
+                LOG.trace("No configuration at this path level", e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw new ConfigurationException("Failed to retrieve configuration for " + configClass.getSimpleName(), failure);
+        }
+        throw new ConfigurationNotFoundException("No configuration found for " + configClass.getSimpleName());
+    }
+
+    /**
+     * Determine whether a configuration class was recently found to be missing at a level of the service path, in which case that
+     * level should be skipped when acquiring the class.
+     *
+     * @param configClass the configuration class
+     * @param relativePath the partial service path
+     * @return true if the configuration class was found to be missing at the level within the negative cache period
+     */
+    protected final boolean isMissingConfiguration(final Class<?> configClass, final Name relativePath)
+    {
+        return missingConfigurationCache.isMissing(configClass, relativePath);
+    }
+
+    /**
+     * Record whether a configuration class is missing at a level of the service path. Implementations that override
+     * getMostSpecificConfigurationStream() should call this when they find out.
+     *
+     * @param configClass the configuration class
+     * @param relativePath the partial service path
+     * @param missing true if the source does not have the configuration at the level
+     */
+    protected final void setMissingConfiguration(final Class<?> configClass, final Name relativePath, final boolean missing)
+    {
+        missingConfigurationCache.setMissing(configClass, relativePath, missing);
+    }
+
+    /**
+     * Forget which configuration was found to be missing, so that every level of the service path is tried again. Implementations
+     * should call this when they detect that configuration has been added.
+     */
+    protected final void clearMissingConfigurationCache()
+    {
+        missingConfigurationCache.clear();
+    }
+
     /**
      * This is the recursive entry point for acquiring a complete configuration class to return. Attempt to acquire a deserialised object
      * representing the configuration class requested, and analyse it for declared fields marked @Configuration. If any are found, the
      * method recursively calls itself until all configuration is satisfied.
      *
      * @param configClass the class representing configuration to acquire
+     * @param documents the serialised configuration that has already been retrieved, or null to acquire it from the source
      * @param <T> the class representing configuration to acquire
      * @return the completed (at this level) configuration
      * @throws ConfigurationException if configuration cannot be acquired
      */
-    private <T> T getCompleteConfig(final Class<T> configClass)
+    private <T> T getCompleteConfig(final Class<T> configClass, final Map<Class<?>, byte[]> documents)
         throws ConfigurationException
     {
-        T config = getConfig(configClass);
+        T config = getConfig(configClass, documents);
         for (final Field f : configClass.getDeclaredFields()) {
             if (f.isAnnotationPresent(Configuration.class)) {
                 try {
                     Method setter = getMethod(f.getName(), configClass, PropertyDescriptor::getWriteMethod);
                     if (setter != null) {
-                        setter.invoke(config, getCompleteConfig(f.getType()));
+                        setter.invoke(config, getCompleteConfig(f.getType(), documents));
                     }
                 } catch (final ConfigurationException e) {
                     LOG.debug("Didn't find any overriding configuration", e);
@@ -206,26 +456,38 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
      * Acquire, decode and decrypt a configuration object from a data stream.
      *
      * @param configClass the class representing configuration to acquire
+     * @param documents the serialised configuration that has already been retrieved, or null to acquire it from the source
      * @param <T> the class representing configuration to acquire
      * @return the decoded configuration object
      * @throws ConfigurationException if the configuration cannot be acquired
      */
-    private <T> T getConfig(final Class<T> configClass)
+    private <T> T getConfig(final Class<T> configClass, final Map<Class<?>, byte[]> documents)
         throws ConfigurationException
     {
-        Iterator<Name> it = getServicePath().descendingPathIterator();
-        while (it.hasNext()) {
-            try (InputStream in = getConfigurationStream(configClass, it.next())) {
-                return decoder.deserialise(in, configClass);
-            } catch (final ConfigurationException e) {
-                LOG.trace("No configuration at this path level", e);
-            } catch (final CodecException | IOException e) {
-                incrementErrors();
-                throw new ConfigurationException("Failed to get configuration for " + configClass.getSimpleName(), e);
-            }
+        try (InputStream in = documents == null
+            ? getMostSpecificConfigurationStream(configClass)
+            : getStream(documents, configClass)) {
+            // Sources may supply the data in a buffer, such as a memory-mapped file, which the decoder can read directly
+            return in instanceof ByteBufferInputStream
+                ? decoder.deserialise(((ByteBufferInputStream) in).getBuffer(), configClass)
+                : decoder.deserialise(in, configClass);
+        } catch (final ConfigurationException e) {
+            incrementErrors();
+            throw e;
+        } catch (final CodecException | IOException e) {
+            incrementErrors();
+            throw new ConfigurationException("Failed to get configuration for " + configClass.getSimpleName(), e);
         }
-        incrementErrors();
-        throw new ConfigurationException("No configuration found for " + configClass.getSimpleName());
+    }
+
+    private static InputStream getStream(final Map<Class<?>, byte[]> documents, final Class<?> configClass)
+        throws ConfigurationNotFoundException
+    {
+        final byte[] document = documents.get(configClass);
+        if (document == null) {
+            throw new ConfigurationNotFoundException("No configuration found for " + configClass.getSimpleName());
+        }
+        return new ByteBufferInputStream(ByteBuffer.wrap(document));
     }
 
     /**
@@ -253,6 +515,18 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
         }
     }
 
+    private static int getNegativeCacheTtlSeconds(final BootstrapConfiguration bootstrapConfig)
+    {
+        if (!bootstrapConfig.isConfigurationPresent(NEGATIVE_CACHE_TTL_SECONDS)) {
+            return NEGATIVE_CACHE_TTL_SECONDS_DEFAULT;
+        }
+        try {
+            return bootstrapConfig.getConfigurationInteger(NEGATIVE_CACHE_TTL_SECONDS, 0, Integer.MAX_VALUE);
+        } catch (final ConfigurationException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     private static String tokenSubstitutor(final String source)
     {
         final StrSubstitutor strSubstitutor = new StrSubstitutor(
@@ -268,6 +542,36 @@ public abstract class CafConfigurationSource implements ManagedConfigurationSour
         return strSubstitutor.replace(source);
     }
 
+    /**
+     * Return the configuration classes that are acquired when the specified class is acquired, which are the class itself and any
+     * configuration classes that are nested within it, directly or indirectly, using the @Configuration annotation.
+     *
+     * @param configClass the configuration class
+     * @return an unmodifiable set of the configuration classes
+     */
+    protected static Set<Class<?>> getNestedConfigurationClasses(final Class<?> configClass)
+    {
+        final Set<Class<?>> configClasses = new HashSet<>();
+        addNestedConfigurationClasses(configClass, configClasses);
+        return Collections.unmodifiableSet(configClasses);
+    }
+
+    private static boolean isAffected(final Class<?> configClass, final Predicate<Class<?>> isAffected)
+    {
+        return getNestedConfigurationClasses(configClass).stream().anyMatch(isAffected);
+    }
+
+    private static void addNestedConfigurationClasses(final Class<?> configClass, final Set<Class<?>> configClasses)
+    {
+        if (configClasses.add(configClass)) {
+            for (final Field f : configClass.getDeclaredFields()) {
+                if (f.isAnnotationPresent(Configuration.class)) {
+                    addNestedConfigurationClasses(f.getType(), configClasses);
+                }
+            }
+        }
+    }
+
     /**
      * Increase the number of configuration requests recorded.
      */
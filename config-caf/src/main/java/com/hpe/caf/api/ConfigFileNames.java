@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.api;
+
+import com.hpe.caf.naming.Name;
+
+import java.util.List;
+
+/**
+ * The naming scheme for configuration files, which is shared by the sources that read configuration from files or resources.
+ * <p>
+ * A file is named "cfg_group_subgroup_appid_ConfigurationClass[.ext]", where the components are the levels of the partial service
+ * path that the configuration applies to, followed by the simple name of the configuration class. The "~" delimiter may be used in
+ * place of "_", but files using "_" take precedence. The extensions are those listed by the decoder's {@link FileExtensions}
+ * annotation, and are tried in that order.
+ */
+public final class ConfigFileNames
+{
+    public static final String CONFIG_FILE_PREFIX = "cfg";
+    private static final List<String> FILE_NAME_DELIMITERS = List.of("_", "~");
+
+    private ConfigFileNames()
+    {
+    }
+
+    /**
+     * @return the delimiters used to separate the components of a file name, in order of precedence
+     */
+    public static List<String> getFileNameDelimiters()
+    {
+        return FILE_NAME_DELIMITERS;
+    }
+
+    /**
+     * Retrieves the file extensions to use with the specified decoder.
+     * <p>
+     * If the specified Decoder doesn't have any file extensions explicitly associated with it, then a single empty string is returned.
+     *
+     * @param decoder the decoder that the files will be read with
+     * @return the file extensions, without the leading "."
+     */
+    public static String[] getFileExtensions(final Decoder decoder)
+    {
+        final FileExtensions fileExtensionsAnnotation = decoder.getClass().getAnnotation(FileExtensions.class);
+        return fileExtensionsAnnotation == null
+            ? new String[]{""}
+            : fileExtensionsAnnotation.value();
+    }
+
+    /**
+     * Convert a (partial) ServicePath into a file name to access.
+     *
+     * @param className the simple name of the configuration class
+     * @param servicePath the partial or complete ServicePath in Name format
+     * @param fileNameDelimiter the symbol used to separate cfg, group, subgroup, appid and ConfigurationClass
+     * @param extension the file extension, or an empty string if there is no extension
+     * @return the constructed file name to try and access
+     */
+    public static String getFileName(final String className, final Name servicePath, final String fileNameDelimiter,
+                                     final String extension)
+    {
+        final StringBuilder builder = getLevelPrefix(servicePath, fileNameDelimiter).append(className);
+        if (!extension.isEmpty()) {
+            builder.append('.').append(extension);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Determine which configuration class a file holds the configuration for, if it is named for the specified level of the service
+     * path. This is the reverse of {@link #getFileName}, for sources that discover their files rather than look them up. The class
+     * name must be a Java identifier that does not contain the "_" delimiter, so that a file for a more specific level is not
+     * mistaken for one at this level.
+     *
+     * @param fileName the name of the file
+     * @param servicePath the partial or complete ServicePath in Name format
+     * @param fileNameDelimiter the symbol used to separate cfg, group, subgroup, appid and ConfigurationClass
+     * @param extension the file extension, or an empty string if there is no extension
+     * @return the simple name of the configuration class, or null if the file is not named for the level
+     */
+    public static String getClassName(final String fileName, final Name servicePath, final String fileNameDelimiter,
+                                      final String extension)
+    {
+        final String levelPrefix = getLevelPrefix(servicePath, fileNameDelimiter).toString();
+        final String suffix = extension.isEmpty() ? "" : "." + extension;
+        if (!fileName.startsWith(levelPrefix) || !fileName.endsWith(suffix)
+            || fileName.length() < levelPrefix.length() + suffix.length()) {
+            return null;
+        }
+        final String className = fileName.substring(levelPrefix.length(), fileName.length() - suffix.length());
+        return isClassName(className) ? className : null;
+    }
+
+    private static StringBuilder getLevelPrefix(final Name servicePath, final String fileNameDelimiter)
+    {
+        final StringBuilder builder = new StringBuilder(CONFIG_FILE_PREFIX);
+        for (final String component : servicePath) {
+            builder.append(fileNameDelimiter).append(component);
+        }
+        return builder.append(fileNameDelimiter);
+    }
+
+    private static boolean isClassName(final String name)
+    {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return !name.contains(FILE_NAME_DELIMITERS.get(0));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.api;
+
+import com.hpe.caf.naming.Name;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records the levels of the service path at which configuration classes were found to be missing, so that they can be skipped for a
+ * period of time rather than being looked up again on each request.
+ */
+final class MissingConfigurationCache
+{
+    private final long ttlNanos;
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Name, Long>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new cache.
+     *
+     * @param ttlSeconds how long a missing configuration is remembered for, or zero to disable the cache
+     */
+    public MissingConfigurationCache(final int ttlSeconds)
+    {
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+    }
+
+    public boolean isMissing(final Class<?> configClass, final Name relativePath)
+    {
+        final ConcurrentMap<Name, Long> levels = entries.get(configClass);
+        if (levels == null) {
+            return false;
+        }
+        final Long expiry = levels.get(relativePath);
+        if (expiry == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiry >= 0) {
+            levels.remove(relativePath, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    public void setMissing(final Class<?> configClass, final Name relativePath, final boolean missing)
+    {
+        if (missing) {
+            if (ttlNanos > 0) {
+                entries.computeIfAbsent(configClass, key -> new ConcurrentHashMap<>()).put(relativePath, System.nanoTime() + ttlNanos);
+            }
+        } else {
+            final ConcurrentMap<Name, Long> levels = entries.get(configClass);
+            if (levels != null) {
+                levels.remove(relativePath);
+            }
+        }
+    }
+
+    public void clear()
+    {
+        entries.clear();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.api;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A configuration class used by the tests of the configuration sources.
+ */
+public class SourceTestConfig
+{
+    @NotNull
+    private String host;
+    private int port;
+    private int maxRetries;
+    @Encrypted
+    private String password;
+    private Options options;
+    @Configuration
+    private SourceTestInnerConfig inner;
+
+    public String getHost()
+    {
+        return host;
+    }
+
+    public void setHost(final String host)
+    {
+        this.host = host;
+    }
+
+    public int getPort()
+    {
+        return port;
+    }
+
+    public void setPort(final int port)
+    {
+        this.port = port;
+    }
+
+    public int getMaxRetries()
+    {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(final int maxRetries)
+    {
+        this.maxRetries = maxRetries;
+    }
+
+    public String getPassword()
+    {
+        return password;
+    }
+
+    public void setPassword(final String password)
+    {
+        this.password = password;
+    }
+
+    public Options getOptions()
+    {
+        return options;
+    }
+
+    public void setOptions(final Options options)
+    {
+        this.options = options;
+    }
+
+    public SourceTestInnerConfig getInner()
+    {
+        return inner;
+    }
+
+    public void setInner(final SourceTestInnerConfig inner)
+    {
+        this.inner = inner;
+    }
+
+    public static class Options
+    {
+        private boolean compress;
+        private boolean verbose;
+
+        public boolean isCompress()
+        {
+            return compress;
+        }
+
+        public void setCompress(final boolean compress)
+        {
+            this.compress = compress;
+        }
+
+        public boolean isVerbose()
+        {
+            return verbose;
+        }
+
+        public void setVerbose(final boolean verbose)
+        {
+            this.verbose = verbose;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.composite;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.ByteBufferInputStream;
+import com.hpe.caf.api.CafConfigurationSource;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationNotFoundException;
+import com.hpe.caf.api.ConfigurationSubscription;
+import com.hpe.caf.api.Decoder;
+import com.hpe.caf.api.HealthResult;
+import com.hpe.caf.api.HealthStatus;
+import com.hpe.caf.api.ManagedConfigurationSource;
+import com.hpe.caf.naming.Name;
+import com.hpe.caf.naming.ServicePath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Combines several configuration sources, which are queried in priority order.
+ * <p>
+ * By default the configuration is taken from the first source that has it, so for example files can override configuration from
+ * a REST server. If merging is enabled the configuration from every source that has it is instead deep-merged at the JSON tree
+ * level, with the values from higher priority sources taking precedence, and the merged document is then decoded once. Merging
+ * requires the sources to supply JSON and the decoder to accept it.
+ * <p>
+ * The configuration is resolved as a whole, so a configuration class nested within another using the @Configuration annotation may
+ * come from a different source than the class it is nested in. Decryption, substitution and validation are performed once, on the
+ * combined configuration.
+ * <p>
+ * Resolved documents are cached per class for CAF_CONFIG_COMPOSITE_CACHE_TTL_SECONDS (30 seconds by default, 0 disables the cache).
+ * The cache is cleared when any of the sources report that the configuration of a subscribed class has changed.
+ */
+public final class CompositeConfigurationSource implements ManagedConfigurationSource
+{
+    public static final String CACHE_TTL_SECONDS = "CAF_CONFIG_COMPOSITE_CACHE_TTL_SECONDS";
+    private static final int CACHE_TTL_SECONDS_DEFAULT = 30;
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeConfigurationSource.class);
+
+    private final List<CafConfigurationSource> sources;
+    private final boolean merge;
+    private final long cacheTtlNanos;
+    private final ConcurrentMap<Class<?>, CachedDocument> documents = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, SourceSubscriptions> sourceSubscriptions = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Resolver resolver;
+
+    /**
+     * Create a composite of the specified sources.
+     *
+     * @param bootstrapProvider used to provide initial configuration of the composite
+     * @param cipher used to perform any necessary decryption in the configuration objects
+     * @param servicePath used to acquire service-specific configuration
+     * @param decoder used to decode the combined configuration into objects
+     * @param sources the sources to combine, highest priority first
+     * @param merge whether to merge the configuration from every source rather than use the first source that has it
+     * @throws ConfigurationException if the composite could not be created
+     */
+    public CompositeConfigurationSource(final BootstrapConfiguration bootstrapProvider, final Cipher cipher,
+                                        final ServicePath servicePath, final Decoder decoder,
+                                        final List<? extends CafConfigurationSource> sources, final boolean merge)
+        throws ConfigurationException
+    {
+        if (sources.isEmpty()) {
+            throw new ConfigurationException("No configuration sources to combine");
+        }
+        this.sources = Collections.unmodifiableList(new ArrayList<>(sources));
+        this.merge = merge;
+        this.cacheTtlNanos = getCacheTtlSeconds(bootstrapProvider) * 1_000_000_000L;
+        this.resolver = new Resolver(bootstrapProvider, cipher, servicePath, decoder);
+    }
+
+    @Override
+    public <T> T getConfiguration(final Class<T> configClass)
+        throws ConfigurationException
+    {
+        return resolver.getConfiguration(configClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Each of the sources is asked to report changes to the class, and the combined configuration is re-acquired and passed to the
+     * subscriber when any of them do. The sources do not acquire the configuration themselves, as the configuration in any one of
+     * them may be incomplete, or may have been removed. The sources stop reporting changes once every subscription to the class
+     * has been cancelled.
+     */
+    @Override
+    public <T> ConfigurationSubscription subscribe(final Class<T> configClass, final Consumer<? super T> listener)
+    {
+        final ConfigurationSubscription subscription = resolver.subscribe(configClass, listener);
+        sourceSubscriptions.compute(configClass, (key, existing) -> {
+            final SourceSubscriptions subscriptions = existing != null ? existing : subscribeToSources(key);
+            subscriptions.count++;
+            return subscriptions;
+        });
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        return () -> {
+            if (cancelled.compareAndSet(false, true)) {
+                subscription.cancel();
+                sourceSubscriptions.computeIfPresent(configClass, (key, subscriptions) -> {
+                    if (--subscriptions.count > 0) {
+                        return subscriptions;
+                    }
+                    subscriptions.cancel();
+                    return null;
+                });
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The composite is unhealthy if any of its sources are.
+     */
+    @Override
+    public HealthResult healthCheck()
+    {
+        final List<String> messages = new ArrayList<>();
+        for (final CafConfigurationSource source : sources) {
+            final HealthResult result = source.healthCheck();
+            if (result.getStatus() != HealthStatus.HEALTHY) {
+                messages.add(source.getClass().getSimpleName() + ": " + result.getMessage());
+            }
+        }
+        return messages.isEmpty()
+            ? HealthResult.RESULT_HEALTHY
+            : new HealthResult(HealthStatus.UNHEALTHY, String.join("; ", messages));
+    }
+
+    @Override
+    public void shutdown()
+    {
+        for (final SourceSubscriptions subscriptions : sourceSubscriptions.values()) {
+            subscriptions.cancel();
+        }
+        sourceSubscriptions.clear();
+        for (final CafConfigurationSource source : sources) {
+            source.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of configuration classes requested from the composite
+     */
+    @Override
+    public int getConfigurationRequests()
+    {
+        return resolver.getConfigurationRequests();
+    }
+
+    /**
+     * @return the number of configuration classes requested from the composite that could not be acquired
+     */
+    @Override
+    public int getConfigurationErrors()
+    {
+        return resolver.getConfigurationErrors();
+    }
+
+    /**
+     * @return the total number of requests made to the sources, which does not include requests answered from the cache
+     */
+    public int getSourceConfigurationRequests()
+    {
+        return sources.stream().mapToInt(CafConfigurationSource::getConfigurationRequests).sum();
+    }
+
+    /**
+     * @return the total number of requests made to the sources that failed, including those for configuration that a source does
+     * not have
+     */
+    public int getSourceConfigurationErrors()
+    {
+        return sources.stream().mapToInt(CafConfigurationSource::getConfigurationErrors).sum();
+    }
+
+    /**
+     * Discard the cached configuration, so that it is requested from the sources again.
+     */
+    public void refresh()
+    {
+        documents.clear();
+    }
+
+    private SourceSubscriptions subscribeToSources(final Class<?> configClass)
+    {
+        final List<ConfigurationSubscription> subscriptions = new ArrayList<>();
+        for (final CafConfigurationSource source : sources) {
+            subscriptions.add(source.subscribeToChanges(configClass, () -> sourceChanged(configClass)));
+        }
+        return new SourceSubscriptions(subscriptions);
+    }
+
+    private void sourceChanged(final Class<?> configClass)
+    {
+        documents.clear();
+        resolver.notifyChanged(configClass);
+    }
+
+    private byte[] getDocument(final Class<?> configClass)
+        throws ConfigurationException
+    {
+        final CachedDocument cached = documents.get(configClass);
+        if (cached != null && System.nanoTime() - cached.expiry < 0) {
+            return cached.body;
+        }
+        final byte[] body = merge ? getMergedDocument(configClass) : getFirstDocument(configClass);
+        if (cacheTtlNanos > 0) {
+            documents.put(configClass, new CachedDocument(body, System.nanoTime() + cacheTtlNanos));
+        }
+        return body;
+    }
+
+    /**
+     * Return the configuration from the highest priority source that has it. A source that fails causes the lookup to fail, as the
+     * configuration it would have supplied might otherwise be silently replaced by that of a lower priority source.
+     */
+    private byte[] getFirstDocument(final Class<?> configClass)
+        throws ConfigurationException
+    {
+        for (final CafConfigurationSource source : sources) {
+            try {
+                return readDocument(source, configClass);
+            } catch (final ConfigurationNotFoundException e) {
+                LOG.trace("No configuration in {}", source.getClass().getSimpleName(), e);
+            }
+        }
+        throw new ConfigurationNotFoundException("No configuration found for " + configClass.getSimpleName());
+    }
+
+    /**
+     * Merge the configuration from every source that has it. A source that fails causes the merge to fail, as its values might
+     * otherwise be silently replaced by those of a lower priority source.
+     */
+    private byte[] getMergedDocument(final Class<?> configClass)
+        throws ConfigurationException
+    {
+        JsonNode merged = null;
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            final byte[] body;
+            try {
+                body = readDocument(sources.get(i), configClass);
+            } catch (final ConfigurationNotFoundException e) {
+                continue;
+            }
+            final JsonNode tree;
+            try {
+                tree = mapper.readTree(body);
+            } catch (final IOException e) {
+                throw new ConfigurationException("Configuration for " + configClass.getSimpleName() + " is not valid JSON", e);
+            }
+            merged = merged instanceof ObjectNode && tree instanceof ObjectNode
+                ? merge((ObjectNode) merged, (ObjectNode) tree)
+                : tree;
+        }
+        if (merged == null) {
+            throw new ConfigurationNotFoundException("No configuration found for " + configClass.getSimpleName());
+        }
+        try {
+            return mapper.writeValueAsBytes(merged);
+        } catch (final IOException e) {
+            throw new ConfigurationException("Failed to merge configuration for " + configClass.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Deep-merge a document into another. Objects are merged field by field, and any other value replaces the value it overrides.
+     *
+     * @param target the lower priority document, which is modified
+     * @param overrides the higher priority document
+     * @return the target
+     */
+    private static ObjectNode merge(final ObjectNode target, final ObjectNode overrides)
+    {
+        final Iterator<Map.Entry<String, JsonNode>> fields = overrides.fields();
+        while (fields.hasNext()) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            final JsonNode existing = target.get(field.getKey());
+            if (existing instanceof ObjectNode && field.getValue() instanceof ObjectNode) {
+                merge((ObjectNode) existing, (ObjectNode) field.getValue());
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        }
+        return target;
+    }
+
+    private static byte[] readDocument(final CafConfigurationSource source, final Class<?> configClass)
+        throws ConfigurationException
+    {
+        try (InputStream in = source.getSerialisedConfiguration(configClass)) {
+            if (in instanceof ByteBufferInputStream) {
+                final ByteBuffer buffer = ((ByteBufferInputStream) in).getBuffer();
+                final byte[] body = new byte[buffer.remaining()];
+                buffer.get(body);
+                return body;
+            }
+            return in.readAllBytes();
+        } catch (final IOException e) {
+            throw new ConfigurationException("Failed to read configuration for " + configClass.getSimpleName(), e);
+        }
+    }
+
+    private static int getCacheTtlSeconds(final BootstrapConfiguration bootstrapProvider)
+        throws ConfigurationException
+    {
+        return bootstrapProvider.isConfigurationPresent(CACHE_TTL_SECONDS)
+            ? bootstrapProvider.getConfigurationInteger(CACHE_TTL_SECONDS, 0, Integer.MAX_VALUE)
+            : CACHE_TTL_SECONDS_DEFAULT;
+    }
+
+    /**
+     * Decodes, completes and validates the combined configuration, using the same rules as any other source.
+     */
+    private final class Resolver extends CafConfigurationSource
+    {
+        public Resolver(final BootstrapConfiguration bootstrapProvider, final Cipher cipher, final ServicePath servicePath,
+                        final Decoder decoder)
+        {
+            super(bootstrapProvider, cipher, servicePath, decoder);
+        }
+
+        @Override
+        protected InputStream getMostSpecificConfigurationStream(final Class configClass)
+            throws ConfigurationException
+        {
+            return new ByteBufferInputStream(ByteBuffer.wrap(getDocument(configClass)));
+        }
+
+        @Override
+        protected InputStream getConfigurationStream(final Class configClass, final Name relativePath)
+            throws ConfigurationException
+        {
+            // The sources resolve the service path themselves
+            throw new ConfigurationException("Configuration is only available for the full service path");
+        }
+
+        @Override
+        public HealthResult healthCheck()
+        {
+            return HealthResult.RESULT_HEALTHY;
+        }
+
+        @Override
+        public void shutdown()
+        {
+        }
+
+        public void notifyChanged(final Class<?> configClass)
+        {
+            configurationChanged(configClass::equals);
+        }
+    }
+
+    /**
+     * The subscriptions to changes in each of the sources for a class, which are shared by the subscriptions to the composite.
+     */
+    private static final class SourceSubscriptions
+    {
+        private final List<ConfigurationSubscription> subscriptions;
+        private int count;
+
+        public SourceSubscriptions(final List<ConfigurationSubscription> subscriptions)
+        {
+            this.subscriptions = subscriptions;
+        }
+
+        public void cancel()
+        {
+            subscriptions.forEach(ConfigurationSubscription::cancel);
+        }
+    }
+
+    private static final class CachedDocument
+    {
+        private final byte[] body;
+        private final long expiry;
+
+        public CachedDocument(final byte[] body, final long expiry)
+        {
+            this.body = body;
+            this.expiry = expiry;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.composite;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.CafConfigurationSource;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationSourceProvider;
+import com.hpe.caf.api.Decoder;
+import com.hpe.caf.api.ManagedConfigurationSource;
+import com.hpe.caf.naming.ServicePath;
+import com.hpe.caf.util.ModuleLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates a {@link CompositeConfigurationSource} of the sources named in CAF_CONFIG_SOURCES, which is a comma-separated list of
+ * ConfigurationSourceProvider class names, highest priority first. The providers must be available through the ServiceLoader
+ * mechanism, and may be named by their simple class names. They are looked up once using the {@link ModuleLoader}. If
+ * CAF_CONFIG_MERGE is true the configuration from the sources is merged.
+ */
+public class CompositeConfigurationSourceProvider implements ConfigurationSourceProvider
+{
+    public static final String SOURCES = "CAF_CONFIG_SOURCES";
+    public static final String MERGE = "CAF_CONFIG_MERGE";
+
+    @Override
+    public ManagedConfigurationSource getConfigurationSource(final BootstrapConfiguration bootstrapProvider, final Cipher cipher,
+                                                             final ServicePath servicePath, final Decoder decoder)
+        throws ConfigurationException
+    {
+        if (!bootstrapProvider.isConfigurationPresent(SOURCES)) {
+            throw new ConfigurationException("Configuration parameter " + SOURCES + " not present");
+        }
+        final boolean merge = bootstrapProvider.isConfigurationPresent(MERGE) && bootstrapProvider.getConfigurationBoolean(MERGE);
+        final List<ConfigurationSourceProvider> providers = ModuleLoader.getServices(ConfigurationSourceProvider.class);
+        final List<CafConfigurationSource> sources = new ArrayList<>();
+        try {
+            for (final String providerName : bootstrapProvider.getConfiguration(SOURCES).split(",")) {
+                if (!providerName.trim().isEmpty()) {
+                    final ConfigurationSourceProvider provider = findProvider(providers, providerName.trim());
+                    sources.add(createSource(provider, providerName.trim(), bootstrapProvider, cipher, servicePath, decoder));
+                }
+            }
+            return new CompositeConfigurationSource(bootstrapProvider, cipher, servicePath, decoder, sources, merge);
+        } catch (final ConfigurationException | RuntimeException e) {
+            sources.forEach(CafConfigurationSource::shutdown);
+            throw e;
+        }
+    }
+
+    private static ConfigurationSourceProvider findProvider(final List<ConfigurationSourceProvider> providers,
+                                                            final String providerName)
+        throws ConfigurationException
+    {
+        for (final ConfigurationSourceProvider provider : providers) {
+            final Class<?> providerClass = provider.getClass();
+            if (!(provider instanceof CompositeConfigurationSourceProvider)
+                && (providerClass.getName().equals(providerName) || providerClass.getSimpleName().equals(providerName))) {
+                return provider;
+            }
+        }
+        throw new ConfigurationException("Configuration source provider not found: " + providerName);
+    }
+
+    private static CafConfigurationSource createSource(final ConfigurationSourceProvider provider, final String providerName,
+                                                       final BootstrapConfiguration bootstrapProvider, final Cipher cipher,
+                                                       final ServicePath servicePath, final Decoder decoder)
+        throws ConfigurationException
+    {
+        final ManagedConfigurationSource source = provider.getConfigurationSource(bootstrapProvider, cipher, servicePath, decoder);
+        if (!(source instanceof CafConfigurationSource)) {
+            source.shutdown();
+            throw new ConfigurationException("Configuration source " + providerName + " cannot be combined with other sources");
+        }
+        return (CafConfigurationSource) source;
+    }
+}
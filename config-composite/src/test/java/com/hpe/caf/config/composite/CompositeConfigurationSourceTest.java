@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.composite;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationSubscription;
+import com.hpe.caf.api.HealthStatus;
+import com.hpe.caf.api.SourceTestConfig;
+import com.hpe.caf.api.SourceTestInnerConfig;
+import com.hpe.caf.cipher.NullCipher;
+import com.hpe.caf.codec.JsonCodec;
+import com.hpe.caf.naming.ServicePath;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.naming.InvalidNameException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CompositeConfigurationSourceTest
+{
+    private final Codec codec = new JsonCodec();
+    private BootstrapConfiguration bootstrap;
+    private ServicePath id;
+    private TestConfigurationSource overrides;
+    private TestConfigurationSource defaults;
+
+    @BeforeMethod
+    public void setUp()
+        throws InvalidNameException
+    {
+        bootstrap = Mockito.mock(BootstrapConfiguration.class);
+        id = new ServicePath("testApp/testWorker");
+        overrides = new TestConfigurationSource(bootstrap, new NullCipher(), id, codec);
+        defaults = new TestConfigurationSource(bootstrap, new NullCipher(), id, codec);
+    }
+
+    @Test
+    public void testFirstSourceTakesPriority()
+        throws ConfigurationException
+    {
+        overrides.put("testApp/testWorker", SourceTestConfig.class, "{\"host\":\"override\"}");
+        defaults.put("testApp", SourceTestConfig.class, "{\"host\":\"default\",\"port\":8080}");
+        final SourceTestConfig config = createComposite(false).getConfiguration(SourceTestConfig.class);
+        Assert.assertEquals(config.getHost(), "override");
+        Assert.assertEquals(config.getPort(), 0);
+    }
+
+    @Test
+    public void testFallBackToLowerPrioritySource()
+        throws ConfigurationException
+    {
+        defaults.put("testApp", SourceTestConfig.class, "{\"host\":\"default\",\"port\":8080}");
+        defaults.put("testApp", SourceTestInnerConfig.class, "{\"value\":\"inner\"}");
+        final SourceTestConfig config = createComposite(false).getConfiguration(SourceTestConfig.class);
+        Assert.assertEquals(config.getHost(), "default");
+        Assert.assertEquals(config.getInner().getValue(), "inner");
+    }
+
+    @Test
+    public void testFailedSourceNotSkipped()
+        throws ConfigurationException
+    {
+        overrides.put("testApp/testWorker", SourceTestConfig.class, "{\"host\":\"override\"}");
+        defaults.put("testApp", SourceTestConfig.class, "{\"host\":\"default\"}");
+        overrides.setFailing(true);
+        final CompositeConfigurationSource composite = createComposite(false);
+        try {
+            composite.getConfiguration(SourceTestConfig.class);
+            Assert.fail("Configuration from the lower priority source should not be used");
+        } catch (final ConfigurationException e) {
+            Assert.assertEquals(composite.getConfigurationErrors(), 1);
+        }
+        overrides.setFailing(false);
+        Assert.assertEquals(composite.getConfiguration(SourceTestConfig.class).getHost(), "override");
+    }
+
+    @Test
+    public void testMergeSources()
+        throws ConfigurationException
+    {
+        overrides.put("testApp/testWorker", SourceTestConfig.class, "{\"host\":\"override\",\"options\":{\"verbose\":true}}");
+        defaults.put("testApp", SourceTestConfig.class, "{\"host\":\"default\",\"port\":8080,\"options\":{\"compress\":true}}");
+        final SourceTestConfig config = createComposite(true).getConfiguration(SourceTestConfig.class);
+        Assert.assertEquals(config.getHost(), "override");
+        Assert.assertEquals(config.getPort(), 8080);
+        Assert.assertTrue(config.getOptions().isCompress());
+        Assert.assertTrue(config.getOptions().isVerbose());
+    }
+
+    @Test
+    public void testConfigurationCached()
+        throws ConfigurationException
+    {
+        defaults.put("testApp", SourceTestConfig.class, "{\"host\":\"default\"}");
+        defaults.put("testApp", SourceTestInnerConfig.class, "{\"value\":\"inner\"}");
+        final CompositeConfigurationSource composite = createComposite(false);
+        composite.getConfiguration(SourceTestConfig.class);
+        final int sourceRequests = composite.getSourceConfigurationRequests();
+        composite.getConfiguration(SourceTestConfig.class);
+        Assert.assertEquals(composite.getSourceConfigurationRequests(), sourceRequests);
+        Assert.assertEquals(composite.getConfigurationRequests(), 2);
+        composite.refresh();
+        composite.getConfiguration(SourceTestConfig.class);
+        Assert.assertTrue(composite.getSourceConfigurationRequests() > sourceRequests);
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void testMissingConfiguration()
+        throws ConfigurationException
+    {
+        createComposite(true).getConfiguration(SourceTestConfig.class);
+    }
+
+    @Test
+    public void testRemovedConfigurationNotified()
+        throws ConfigurationException
+    {
+        overrides.put("testApp/testWorker", SourceTestConfig.class, "{\"host\":\"override\"}");
+        defaults.put("testApp", SourceTestConfig.class, "{\"host\":\"default\"}");
+        final CompositeConfigurationSource composite = createComposite(false);
+        final List<SourceTestConfig> changes = new ArrayList<>();
+        composite.subscribe(SourceTestConfig.class, changes::add);
+        overrides.remove("testApp/testWorker", SourceTestConfig.class);
+        overrides.notifyChanged(SourceTestConfig.class);
+        Assert.assertEquals(changes.size(), 1);
+        Assert.assertEquals(changes.get(0).getHost(), "default");
+    }
+
+    @Test
+    public void testChangedSourceNotAcquiredSeparately()
+        throws ConfigurationException
+    {
+        overrides.put("testApp/testWorker", SourceTestConfig.class, "{\"port\":9000}");
+        defaults.put("testApp", SourceTestConfig.class, "{\"host\":\"default\",\"port\":8080}");
+        final CompositeConfigurationSource composite = createComposite(true);
+        final List<SourceTestConfig> changes = new ArrayList<>();
+        composite.subscribe(SourceTestConfig.class, changes::add);
+        overrides.notifyChanged(SourceTestConfig.class);
+        Assert.assertEquals(changes.size(), 1);
+        Assert.assertEquals(changes.get(0).getHost(), "default");
+        Assert.assertEquals(changes.get(0).getPort(), 9000);
+        // each source is only asked for its serialised part of the merged configuration, and the nested class
+        Assert.assertEquals(overrides.getConfigurationRequests(), 2);
+    }
+
+    @Test
+    public void testCancelledSubscriptionStopsSourceNotifications()
+        throws ConfigurationException
+    {
+        defaults.put("testApp", SourceTestConfig.class, "{\"host\":\"default\"}");
+        final CompositeConfigurationSource composite = createComposite(false);
+        final List<SourceTestConfig> changes = new ArrayList<>();
+        final ConfigurationSubscription first = composite.subscribe(SourceTestConfig.class, changes::add);
+        final ConfigurationSubscription second = composite.subscribe(SourceTestConfig.class, changes::add);
+        first.cancel();
+        first.cancel();
+        defaults.notifyChanged(SourceTestConfig.class);
+        Assert.assertEquals(changes.size(), 1);
+        second.cancel();
+        final int sourceRequests = composite.getSourceConfigurationRequests();
+        defaults.notifyChanged(SourceTestConfig.class);
+        Assert.assertEquals(changes.size(), 1);
+        Assert.assertEquals(composite.getSourceConfigurationRequests(), sourceRequests);
+    }
+
+    @Test
+    public void testHealthAggregated()
+        throws ConfigurationException
+    {
+        final CompositeConfigurationSource composite = createComposite(false);
+        Assert.assertEquals(composite.healthCheck().getStatus(), HealthStatus.HEALTHY);
+        defaults.setUnhealthy("Server unavailable");
+        Assert.assertEquals(composite.healthCheck().getStatus(), HealthStatus.UNHEALTHY);
+        Assert.assertTrue(composite.healthCheck().getMessage().contains("Server unavailable"));
+    }
+
+    private CompositeConfigurationSource createComposite(final boolean merge)
+        throws ConfigurationException
+    {
+        return new CompositeConfigurationSource(bootstrap, new NullCipher(), id, codec, Arrays.asList(overrides, defaults), merge);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.composite;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.CafConfigurationSource;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationNotFoundException;
+import com.hpe.caf.api.Decoder;
+import com.hpe.caf.api.HealthResult;
+import com.hpe.caf.api.HealthStatus;
+import com.hpe.caf.naming.Name;
+import com.hpe.caf.naming.ServicePath;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A configuration source which serves documents held in memory, keyed by service path level and class name.
+ */
+public class TestConfigurationSource extends CafConfigurationSource
+{
+    private final Map<String, String> documents = new HashMap<>();
+    private HealthResult health = HealthResult.RESULT_HEALTHY;
+    private boolean failing;
+
+    public TestConfigurationSource(final BootstrapConfiguration bootstrapProvider, final Cipher cipher, final ServicePath servicePath,
+                                   final Decoder decoder)
+    {
+        super(bootstrapProvider, cipher, servicePath, decoder);
+    }
+
+    public TestConfigurationSource put(final String path, final Class<?> configClass, final String document)
+    {
+        documents.put(path + "/" + configClass.getSimpleName(), document);
+        return this;
+    }
+
+    public TestConfigurationSource remove(final String path, final Class<?> configClass)
+    {
+        documents.remove(path + "/" + configClass.getSimpleName());
+        return this;
+    }
+
+    public void notifyChanged(final Class<?> configClass)
+    {
+        configurationChanged(configClass::equals);
+    }
+
+    public void setUnhealthy(final String message)
+    {
+        health = new HealthResult(HealthStatus.UNHEALTHY, message);
+    }
+
+    public void setFailing(final boolean failing)
+    {
+        this.failing = failing;
+    }
+
+    @Override
+    protected InputStream getConfigurationStream(final Class configClass, final Name relativePath)
+        throws ConfigurationException
+    {
+        if (failing) {
+            throw new ConfigurationException("Source unavailable");
+        }
+        final String document = documents.get(relativePath.toString() + "/" + configClass.getSimpleName());
+        if (document == null) {
+            throw new ConfigurationNotFoundException("No configuration for " + configClass.getSimpleName() + " at " + relativePath);
+        }
+        return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public HealthResult healthCheck()
+    {
+        return health;
+    }
+
+    @Override
+    public void shutdown()
+    {
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.environment;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.ByteBufferInputStream;
+import com.hpe.caf.api.CafConfigurationSource;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.CodecException;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationNotFoundException;
+import com.hpe.caf.api.Decoder;
+import com.hpe.caf.api.HealthResult;
+import com.hpe.caf.config.system.SystemBootstrapConfiguration;
+import com.hpe.caf.naming.Name;
+import com.hpe.caf.naming.ServicePath;
+import com.hpe.caf.naming.ServicePathTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This is a ConfigurationSource that reads configuration from environment variables, so that small configuration classes can be
+ * supplied to a container without mounting configuration files.
+ *
+ * If retrieving the configuration class "TestConfiguration", using the ServicePath /a/b, the variable CAF_CFG_A_B_TESTCONFIGURATION
+ * may hold the whole serialised configuration, and variables such as CAF_CFG_A_B_TESTCONFIGURATION_MAX_RETRIES may hold the values
+ * of individual fields, in this case the field "maxRetries". Field values override the same fields in the whole configuration. As
+ * with other configuration sources, configuration for the less specific ServicePath /a, such as CAF_CFG_A_TESTCONFIGURATION, is used
+ * if there is none for /a/b.
+ *
+ * The variables are read once, when the source is created, using {@link SystemBootstrapConfiguration}, so system properties with
+ * the same names are also recognised and take precedence.
+ */
+public class EnvironmentConfigurationSource extends CafConfigurationSource
+{
+    public static final String VARIABLE_PREFIX = "CAF_CFG_";
+    private static final String SEPARATOR = "_";
+    private static final Logger LOG = LoggerFactory.getLogger(EnvironmentConfigurationSource.class);
+    private final Decoder decoder;
+    /**
+     * The variables for each level of the service path, keyed by upper case configuration class name and then by level.
+     */
+    private final Map<String, ServicePathTrie<EnvironmentDocument>> documents;
+    private final ConcurrentMap<Class<?>, byte[]> resolvedDocuments;
+
+    /**
+     * {@inheritDoc}
+     */
+    public EnvironmentConfigurationSource(
+        final BootstrapConfiguration bootstrap,
+        final Cipher cipher,
+        final ServicePath servicePath,
+        final Decoder decoder
+    )
+    {
+        super(bootstrap, cipher, servicePath, decoder);
+        this.decoder = decoder;
+        final SystemBootstrapConfiguration environment = bootstrap instanceof SystemBootstrapConfiguration
+            ? (SystemBootstrapConfiguration) bootstrap
+            : new SystemBootstrapConfiguration();
+        this.documents = indexVariables(environment.getConfigurationWithPrefix(VARIABLE_PREFIX), servicePath);
+        this.resolvedDocuments = new ConcurrentHashMap<>();
+        LOG.debug("Initialised with configuration for {} configuration classes", documents.size());
+    }
+
+    @Override
+    public void shutdown()
+    {
+        // nothing to do
+    }
+
+    @Override
+    public HealthResult healthCheck()
+    {
+        return HealthResult.RESULT_HEALTHY;
+    }
+
+    @Override
+    protected InputStream getConfigurationStream(final Class configClass, final Name relativePath)
+        throws ConfigurationException
+    {
+        final ServicePathTrie<EnvironmentDocument> levels = documents.get(getClassKey(configClass));
+        final EnvironmentDocument document = levels == null ? null : levels.get(relativePath);
+        if (document == null) {
+            throw new ConfigurationNotFoundException("No environment configuration found for " + configClass.getSimpleName());
+        }
+        return toStream(serialise(configClass, document));
+    }
+
+    /**
+     * The serialised configuration is built from the indexed variables the first time each class is requested, and reused after
+     * that.
+     */
+    @Override
+    protected InputStream getMostSpecificConfigurationStream(final Class configClass)
+        throws ConfigurationException
+    {
+        final Class<?> cls = configClass;
+        byte[] resolved = resolvedDocuments.get(cls);
+        if (resolved == null) {
+            resolved = resolve(cls);
+            resolvedDocuments.putIfAbsent(cls, resolved);
+        }
+        if (resolved.length == 0) {
+            throw new ConfigurationNotFoundException("No environment configuration found for " + cls.getSimpleName());
+        }
+        return toStream(resolved);
+    }
+
+    private byte[] resolve(final Class<?> configClass)
+        throws ConfigurationException
+    {
+        final ServicePathTrie<EnvironmentDocument> levels = documents.get(getClassKey(configClass));
+        final EnvironmentDocument document = levels == null ? null : levels.getLongestPrefixMatch(getServicePath());
+        return document == null ? new byte[0] : serialise(configClass, document);
+    }
+
+    /**
+     * Serialise the configuration held in the variables for a configuration class. If there are no field variables the whole
+     * configuration variable is used as it is, so any decoder can be used. Field variables require the decoder to be a Codec, so
+     * that the configuration can be reserialised with the field values applied.
+     */
+    private byte[] serialise(final Class<?> configClass, final EnvironmentDocument document)
+        throws ConfigurationException
+    {
+        if (document.fields.isEmpty()) {
+            return document.content.getBytes(StandardCharsets.UTF_8);
+        }
+        if (!(decoder instanceof Codec)) {
+            throw new ConfigurationException(
+                "Configuration fields for " + configClass.getSimpleName() + " cannot be read from environment variables using "
+                + decoder.getClass().getSimpleName() + ", which is not a Codec");
+        }
+        final Codec codec = (Codec) decoder;
+        try {
+            final Map<String, Object> values = new LinkedHashMap<>();
+            if (document.content != null) {
+                @SuppressWarnings("unchecked")
+                final Map<String, Object> content = codec.deserialise(document.content.getBytes(StandardCharsets.UTF_8), Map.class);
+                values.putAll(content);
+            }
+            final Map<String, String> fieldNames = getFieldNames(configClass);
+            for (final Map.Entry<String, EnvironmentVariable> field : document.fields.entrySet()) {
+                final String fieldName = fieldNames.get(field.getKey());
+                if (fieldName == null) {
+                    throw new ConfigurationException(
+                        "Environment variable " + field.getValue().name + " does not match a field of " + configClass.getSimpleName());
+                }
+                values.put(fieldName, field.getValue().value);
+            }
+            return codec.serialise(values);
+        } catch (final CodecException e) {
+            throw new ConfigurationException("Failed to read environment configuration for " + configClass.getSimpleName(), e);
+        }
+    }
+
+    private static InputStream toStream(final byte[] document)
+    {
+        return new ByteBufferInputStream(ByteBuffer.wrap(document).asReadOnlyBuffer());
+    }
+
+    /**
+     * Assign each variable to the most specific level of the service path whose name it starts with.
+     */
+    private static Map<String, ServicePathTrie<EnvironmentDocument>> indexVariables(
+        final Map<String, String> variables,
+        final ServicePath servicePath
+    )
+    {
+        final List<Name> levels = new ArrayList<>();
+        final List<String> levelPrefixes = new ArrayList<>();
+        final Iterator<Name> levelIterator = servicePath.descendingPathIterator();
+        while (levelIterator.hasNext()) {
+            final Name level = levelIterator.next();
+            levels.add(level);
+            levelPrefixes.add(VARIABLE_PREFIX + toVariableName(String.join(SEPARATOR, level)) + SEPARATOR);
+        }
+        final Map<String, Map<Name, EnvironmentDocument>> documents = new HashMap<>();
+        for (final Map.Entry<String, String> variable : variables.entrySet()) {
+            final String name = variable.getKey().toUpperCase(Locale.ROOT);
+            for (int i = 0; i < levels.size(); i++) {
+                if (!name.startsWith(levelPrefixes.get(i))) {
+                    continue;
+                }
+                final String remainder = name.substring(levelPrefixes.get(i).length());
+                final int separator = remainder.indexOf(SEPARATOR);
+                final String classKey = separator == -1 ? remainder : remainder.substring(0, separator);
+                if (classKey.isEmpty()) {
+                    break;
+                }
+                final EnvironmentDocument document = documents
+                    .computeIfAbsent(classKey, key -> new HashMap<>())
+                    .computeIfAbsent(levels.get(i), level -> new EnvironmentDocument());
+                if (separator == -1) {
+                    document.content = variable.getValue();
+                } else {
+                    document.fields.put(toFieldKey(remainder.substring(separator + 1)),
+                                        new EnvironmentVariable(variable.getKey(), variable.getValue()));
+                }
+                break;
+            }
+        }
+        final Map<String, ServicePathTrie<EnvironmentDocument>> tries = new HashMap<>();
+        documents.forEach((classKey, classDocuments) -> tries.put(classKey, new ServicePathTrie<>(classDocuments)));
+        return tries;
+    }
+
+    private static Map<String, String> getFieldNames(final Class<?> configClass)
+    {
+        final Map<String, String> fieldNames = new HashMap<>();
+        for (Class<?> cls = configClass; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            for (final Field field : cls.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    fieldNames.putIfAbsent(toFieldKey(field.getName()), field.getName());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(fieldNames);
+    }
+
+    private static String getClassKey(final Class<?> configClass)
+    {
+        return toVariableName(configClass.getSimpleName());
+    }
+
+    private static String toFieldKey(final String name)
+    {
+        return toVariableName(name).replace(SEPARATOR, "");
+    }
+
+    private static String toVariableName(final String name)
+    {
+        return name.toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", SEPARATOR);
+    }
+
+    private static final class EnvironmentDocument
+    {
+        private String content;
+        private final Map<String, EnvironmentVariable> fields = new HashMap<>();
+    }
+
+    private static final class EnvironmentVariable
+    {
+        private final String name;
+        private final String value;
+
+        public EnvironmentVariable(final String name, final String value)
+        {
+            this.name = name;
+            this.value = value;
+        }
+    }
+}
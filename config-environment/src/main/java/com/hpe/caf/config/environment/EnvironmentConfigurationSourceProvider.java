@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.environment;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationSourceProvider;
+import com.hpe.caf.api.Decoder;
+import com.hpe.caf.api.ManagedConfigurationSource;
+import com.hpe.caf.naming.ServicePath;
+
+public class EnvironmentConfigurationSourceProvider implements ConfigurationSourceProvider
+{
+    @Override
+    public ManagedConfigurationSource getConfigurationSource(final BootstrapConfiguration bootstrapProvider, final Cipher cipher,
+                                                             final ServicePath servicePath, final Decoder decoder)
+        throws ConfigurationException
+    {
+        return new EnvironmentConfigurationSource(bootstrapProvider, cipher, servicePath, decoder);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.environment;
+
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.SourceTestConfig;
+import com.hpe.caf.cipher.NullCipher;
+import com.hpe.caf.codec.JsonCodec;
+import com.hpe.caf.config.system.SystemBootstrapConfiguration;
+import com.hpe.caf.naming.ServicePath;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.naming.InvalidNameException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EnvironmentConfigurationSourceTest
+{
+    private final Codec codec = new JsonCodec();
+    private final List<String> variables = new ArrayList<>();
+    private ServicePath id;
+
+    @BeforeMethod
+    public void setUp()
+        throws InvalidNameException
+    {
+        id = new ServicePath("testApp/testWorker");
+    }
+
+    @AfterMethod
+    public void tearDown()
+    {
+        variables.forEach(System::clearProperty);
+        variables.clear();
+    }
+
+    @Test
+    public void testGetWholeConfiguration()
+        throws ConfigurationException
+    {
+        set("CAF_CFG_TESTAPP_SOURCETESTCONFIG", "{\"host\":\"app\",\"port\":8080}");
+        set("CAF_CFG_TESTAPP_TESTWORKER_SOURCETESTINNERCONFIG", "{\"value\":\"worker\"}");
+        final SourceTestConfig config = createSource().getConfiguration(SourceTestConfig.class);
+        Assert.assertEquals(config.getHost(), "app");
+        Assert.assertEquals(config.getPort(), 8080);
+        Assert.assertEquals(config.getInner().getValue(), "worker");
+    }
+
+    @Test
+    public void testGetConfigurationFields()
+        throws ConfigurationException
+    {
+        set("CAF_CFG_TESTAPP_TESTWORKER_SOURCETESTCONFIG", "{\"host\":\"worker\",\"port\":8080}");
+        set("CAF_CFG_TESTAPP_TESTWORKER_SOURCETESTCONFIG_PORT", "9090");
+        set("CAF_CFG_TESTAPP_TESTWORKER_SOURCETESTCONFIG_MAX_RETRIES", "3");
+        set("CAF_CFG_TESTAPP_SOURCETESTCONFIG_HOST", "app");
+        final SourceTestConfig config = createSource().getConfiguration(SourceTestConfig.class);
+        Assert.assertEquals(config.getHost(), "worker");
+        Assert.assertEquals(config.getPort(), 9090);
+        Assert.assertEquals(config.getMaxRetries(), 3);
+    }
+
+    @Test
+    public void testVariablesAreReadOnce()
+        throws ConfigurationException
+    {
+        set("CAF_CFG_TESTAPP_SOURCETESTCONFIG_HOST", "app");
+        final EnvironmentConfigurationSource source = createSource();
+        set("CAF_CFG_TESTAPP_SOURCETESTCONFIG_HOST", "changed");
+        Assert.assertEquals(source.getConfiguration(SourceTestConfig.class).getHost(), "app");
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void testUnknownField()
+        throws ConfigurationException
+    {
+        set("CAF_CFG_TESTAPP_SOURCETESTCONFIG_HOST", "app");
+        set("CAF_CFG_TESTAPP_SOURCETESTCONFIG_HOSTNAME", "app");
+        createSource().getConfiguration(SourceTestConfig.class);
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void testInvalidConfiguration()
+        throws ConfigurationException
+    {
+        set("CAF_CFG_TESTAPP_SOURCETESTCONFIG_PORT", "8080");
+        createSource().getConfiguration(SourceTestConfig.class);
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void testMissingConfiguration()
+        throws ConfigurationException
+    {
+        set("CAF_CFG_OTHERAPP_SOURCETESTCONFIG_HOST", "other");
+        createSource().getConfiguration(SourceTestConfig.class);
+    }
+
+    private EnvironmentConfigurationSource createSource()
+    {
+        return new EnvironmentConfigurationSource(new SystemBootstrapConfiguration(), new NullCipher(), id, codec);
+    }
+
+    private void set(final String name, final String value)
+    {
+        System.setProperty(name, value);
+        variables.add(name);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.file;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A set of configuration files packaged into a single file with a prebuilt index.
+ * <p>
+ * The bundle starts with a header which lists the name of each configuration file along with the offset and length of its content,
+ * followed by the content of the files. A bundle is loaded with a single sequential read, after which configuration files can be
+ * looked up by name without any further I/O. The file names follow the same conventions as the files in a configuration directory,
+ * so they identify both the service path and the configuration class.
+ * <p>
+ * The format is:
+ * <pre>
+ * int     magic number
+ * int     format version
+ * int     number of entries
+ * entries:
+ *   short   length of the file name in bytes
+ *   byte[]  file name, UTF-8 encoded
+ *   int     offset of the content from the start of the data section
+ *   int     length of the content
+ * data section
+ * </pre>
+ */
+final class ConfigBundle
+{
+    private static final int MAGIC = 0x43464742;
+    private static final int VERSION = 1;
+    private static final String CONFIG_FILE_PREFIX = "cfg";
+
+    private final Map<String, ByteBuffer> entries;
+
+    private ConfigBundle(final Map<String, ByteBuffer> entries)
+    {
+        this.entries = entries;
+    }
+
+    /**
+     * Load a configuration bundle from a file.
+     *
+     * @param bundleFile the bundle file
+     * @return the loaded bundle
+     * @throws IOException if the bundle cannot be read or is not valid
+     */
+    public static ConfigBundle read(final Path bundleFile)
+        throws IOException
+    {
+        return parse(ByteBuffer.wrap(Files.readAllBytes(bundleFile)));
+    }
+
+    /**
+     * Load a configuration bundle from a stream.
+     *
+     * @param stream the stream containing the bundle, which is read to the end but not closed
+     * @return the loaded bundle
+     * @throws IOException if the bundle cannot be read or is not valid
+     */
+    public static ConfigBundle read(final InputStream stream)
+        throws IOException
+    {
+        return parse(ByteBuffer.wrap(stream.readAllBytes()));
+    }
+
+    /**
+     * Package the configuration files in a directory into a bundle.
+     *
+     * @param directory the directory containing the configuration files
+     * @param out the stream to write the bundle to, which is not closed
+     * @return the number of configuration files written to the bundle
+     * @throws IOException if the configuration files cannot be read or the bundle cannot be written
+     */
+    public static int write(final Path directory, final OutputStream out)
+        throws IOException
+    {
+        final Map<String, byte[]> files = new TreeMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, CONFIG_FILE_PREFIX + "*")) {
+            for (final Path entry : entries) {
+                if (Files.isRegularFile(entry)) {
+                    files.put(entry.getFileName().toString(), Files.readAllBytes(entry));
+                }
+            }
+        }
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(files.size());
+        long offset = 0;
+        for (final Map.Entry<String, byte[]> file : files.entrySet()) {
+            final byte[] name = file.getKey().getBytes(StandardCharsets.UTF_8);
+            final int length = file.getValue().length;
+            if (name.length > 0xFFFF || offset + length > Integer.MAX_VALUE) {
+                throw new IOException("Configuration files are too large to bundle");
+            }
+            data.writeShort(name.length);
+            data.write(name);
+            data.writeInt((int) offset);
+            data.writeInt(length);
+            offset += length;
+        }
+        for (final byte[] content : files.values()) {
+            data.write(content);
+        }
+        data.flush();
+        return files.size();
+    }
+
+    /**
+     * Return the content of a configuration file.
+     *
+     * @param fileName the name of the configuration file
+     * @return a new buffer containing the content of the file, or null if the bundle does not contain the file
+     */
+    public ByteBuffer get(final String fileName)
+    {
+        final ByteBuffer content = entries.get(fileName);
+        return content == null ? null : content.duplicate();
+    }
+
+    /**
+     * @return the names of the configuration files in the bundle
+     */
+    public Set<String> getFileNames()
+    {
+        return entries.keySet();
+    }
+
+    private static ConfigBundle parse(final ByteBuffer buffer)
+        throws IOException
+    {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a configuration bundle");
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported configuration bundle version: " + version);
+            }
+            final int count = buffer.getInt();
+            if (count < 0) {
+                throw new IOException("Invalid configuration bundle header");
+            }
+            final Map<String, int[]> index = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                final byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(name);
+                index.put(new String(name, StandardCharsets.UTF_8), new int[]{buffer.getInt(), buffer.getInt()});
+            }
+            final ByteBuffer data = buffer.slice();
+            final Map<String, ByteBuffer> entries = new HashMap<>();
+            for (final Map.Entry<String, int[]> entry : index.entrySet()) {
+                final int offset = entry.getValue()[0];
+                final int length = entry.getValue()[1];
+                if (offset < 0 || length < 0 || offset > data.limit() - length) {
+                    throw new IOException("Invalid configuration bundle entry: " + entry.getKey());
+                }
+                final ByteBuffer content = data.duplicate();
+                content.position(offset).limit(offset + length);
+                entries.put(entry.getKey(), content.slice());
+            }
+            return new ConfigBundle(Collections.unmodifiableMap(entries));
+        } catch (final BufferUnderflowException e) {
+            throw new IOException("Truncated configuration bundle", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.file;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Utility app for packaging the configuration files in a directory into a configuration bundle, which can be loaded by the
+ * FileConfigurationSource using the CAF_CONFIG_BUNDLE bootstrap parameter.
+ *
+ * Usage: java -cp "*" com.hpe.caf.config.file.ConfigBundleBuilder configDirectory bundleFile
+ */
+public final class ConfigBundleBuilder
+{
+    private ConfigBundleBuilder()
+    {
+    }
+
+    public static void main(final String[] args)
+        throws IOException
+    {
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp * com.hpe.caf.config.file.ConfigBundleBuilder configDirectory bundleFile");
+            System.exit(1);
+        }
+
+        final int count = build(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Bundled " + count + " configuration files into " + args[1]);
+    }
+
+    /**
+     * Package the configuration files in a directory into a configuration bundle. The bundle is written to a temporary file which
+     * then replaces the bundle file, so that the bundle file is never left partially written.
+     *
+     * @param configDirectory the directory containing the configuration files
+     * @param bundleFile the bundle file to create or replace
+     * @return the number of configuration files in the bundle
+     * @throws IOException if the configuration files cannot be read or the bundle cannot be written
+     */
+    public static int build(final Path configDirectory, final Path bundleFile)
+        throws IOException
+    {
+        final Path absoluteBundleFile = bundleFile.toAbsolutePath();
+        final Path tempFile = Files.createTempFile(absoluteBundleFile.getParent(), absoluteBundleFile.getFileName().toString(), ".tmp");
+        try {
+            final int count;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                count = ConfigBundle.write(configDirectory, out);
+            }
+            Files.move(tempFile, absoluteBundleFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An in-memory index of the configuration files that are available in a configuration directory.
+ * <p>
+ * The directory is scanned once and the configuration file names are held in memory, so that resolving a configuration class does
+ * not need to probe the file system for every candidate file name. If the directory is on the default file system then its
+ * modification time is checked before each lookup, and the index is rebuilt if files have been added, removed or renamed.
+ */
+final class ConfigFileIndex
+{
+    private static final String CONFIG_FILE_PREFIX = "cfg";
+    /**
+     * File systems may only record modification times to the nearest second or two, so a directory that was modified very recently
+     * may be modified again without its modification time changing. Until it has been settled for this long it is rescanned on each
+     * lookup.
+     */
+    private static final long MODIFICATION_TIME_RESOLUTION_MILLIS = 2000;
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigFileIndex.class);
+
+    private final Path directory;
+    private final boolean trackChanges;
+    private final Runnable refreshListener;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Create a new index of the configuration files in the specified directory.
+     *
+     * @param directory the directory containing the configuration files
+     * @param refreshListener called whenever the index is rebuilt and configuration files have been added, removed or renamed
+     */
+    public ConfigFileIndex(final Path directory, final Runnable refreshListener)
+    {
+        this.directory = Objects.requireNonNull(directory);
+        this.trackChanges = directory.getFileSystem() == FileSystems.getDefault();
+        this.refreshListener = Objects.requireNonNull(refreshListener);
+        this.snapshot = scan();
+    }
+
+    /**
+     * Return the configuration files that are currently available, keyed by file name. The index is rebuilt first if the
+     * directory has changed since it was last scanned.
+     *
+     * @return an unmodifiable map of configuration file names to their paths
+     */
+    public Map<String, Path> getFiles()
+    {
+        checkForChanges();
+        return snapshot.files;
+    }
+
+    /**
+     * Rebuild the index if the directory has changed since it was last scanned.
+     */
+    public void checkForChanges()
+    {
+        if (trackChanges && isStale()) {
+            refresh();
+        }
+    }
+
+    /**
+     * Rescan the directory and replace the index. The refresh listener is only called if the configuration files in the directory
+     * have changed, since a rescan that finds the same files does not make any configuration available that was missing before.
+     */
+    public void refresh()
+    {
+        final boolean filesChanged;
+        synchronized (this) {
+            final Snapshot previous = snapshot;
+            snapshot = scan();
+            filesChanged = !snapshot.files.equals(previous.files);
+        }
+        if (filesChanged) {
+            refreshListener.run();
+        }
+    }
+
+    private boolean isStale()
+    {
+        return !Objects.equals(snapshot.lastModified, getLastModifiedTime());
+    }
+
+    private Snapshot scan()
+    {
+        final FileTime lastModified = trackChanges ? getSettledLastModifiedTime() : null;
+        final Map<String, Path> files = new HashMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, CONFIG_FILE_PREFIX + "*")) {
+            for (final Path entry : entries) {
+                files.put(entry.getFileName().toString(), entry);
+            }
+        } catch (final IOException e) {
+            LOG.warn("Unable to list configuration directory {}", directory, e);
+        }
+        LOG.debug("Indexed {} configuration files in {}", files.size(), directory);
+        return new Snapshot(lastModified, Collections.unmodifiableMap(files));
+    }
+
+    private FileTime getSettledLastModifiedTime()
+    {
+        final FileTime lastModified = getLastModifiedTime();
+        return lastModified == null || System.currentTimeMillis() - lastModified.toMillis() < MODIFICATION_TIME_RESOLUTION_MILLIS
+            ? null
+            : lastModified;
+    }
+
+    private FileTime getLastModifiedTime()
+    {
+        try {
+            return Files.getLastModifiedTime(directory);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private static final class Snapshot
+    {
+        private final FileTime lastModified;
+        private final Map<String, Path> files;
+
+        public Snapshot(final FileTime lastModified, final Map<String, Path> files)
+        {
+            this.lastModified = lastModified;
+            this.files = files;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Watches a configuration directory for changes to the configuration files within it.
+ * <p>
+ * Events are collected until the directory has been quiet for the debounce period, and the content of the files concerned is then
+ * compared with what it was previously, so that a burst of events results in a single notification which only names the files whose
+ * content has actually changed.
+ * <p>
+ * Kubernetes mounts ConfigMaps as symbolic links into a hidden, timestamped data directory, and updates them by atomically swapping
+ * the "..data" link to a new directory. The configuration file links themselves are not modified, so any change to an entry whose
+ * name starts with ".." causes every configuration file to be re-examined.
+ */
+final class ConfigFileWatcher implements Closeable
+{
+    private static final String CONFIG_FILE_PREFIX = "cfg";
+    private static final String HIDDEN_ENTRY_PREFIX = "..";
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigFileWatcher.class);
+
+    private final Path directory;
+    private final long debounceMillis;
+    private final Consumer<Set<String>> changeHandler;
+    private final WatchService watchService;
+    private final Map<String, Long> checksums;
+    private final Thread thread;
+
+    /**
+     * Start watching a configuration directory.
+     *
+     * @param directory the directory containing the configuration files
+     * @param debounceMillis how long the directory must be quiet before changes are reported
+     * @param changeHandler called with the names of the configuration files whose content has changed
+     * @throws IOException if the directory cannot be watched
+     */
+    public ConfigFileWatcher(final Path directory, final long debounceMillis, final Consumer<Set<String>> changeHandler)
+        throws IOException
+    {
+        this.directory = Objects.requireNonNull(directory);
+        this.debounceMillis = debounceMillis;
+        this.changeHandler = Objects.requireNonNull(changeHandler);
+        this.watchService = directory.getFileSystem().newWatchService();
+        try {
+            directory.register(
+                watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (final IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+        this.checksums = new HashMap<>();
+        for (final String fileName : listConfigFiles()) {
+            checksums.put(fileName, getChecksum(fileName));
+        }
+        this.thread = new Thread(this::watch, "caf-config-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void watch()
+    {
+        final Set<String> pendingFiles = new HashSet<>();
+        boolean pendingRescan = false;
+        long quietDeadline = 0;
+        try {
+            while (true) {
+                final boolean pending = pendingRescan || !pendingFiles.isEmpty();
+                final long waitMillis = quietDeadline - System.currentTimeMillis();
+                if (pending && waitMillis <= 0) {
+                    checkForChanges(pendingFiles, pendingRescan);
+                    pendingFiles.clear();
+                    pendingRescan = false;
+                    continue;
+                }
+                final WatchKey key = pending ? watchService.poll(waitMillis, TimeUnit.MILLISECONDS) : watchService.take();
+                if (key == null) {
+                    continue;
+                }
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        pendingRescan = true;
+                    } else {
+                        final String entryName = ((Path) event.context()).getFileName().toString();
+                        if (entryName.startsWith(CONFIG_FILE_PREFIX)) {
+                            pendingFiles.add(entryName);
+                        } else if (entryName.startsWith(HIDDEN_ENTRY_PREFIX)) {
+                            pendingRescan = true;
+                        }
+                    }
+                }
+                quietDeadline = System.currentTimeMillis() + debounceMillis;
+                if (!key.reset()) {
+                    LOG.warn("Configuration directory {} is no longer accessible, no further changes will be detected", directory);
+                    return;
+                }
+            }
+        } catch (final ClosedWatchServiceException | InterruptedException e) {
+            LOG.debug("Stopped watching configuration directory {}", directory);
+        }
+    }
+
+    private void checkForChanges(final Set<String> pendingFiles, final boolean rescan)
+    {
+        final Set<String> candidates = new HashSet<>(pendingFiles);
+        if (rescan) {
+            candidates.addAll(checksums.keySet());
+            candidates.addAll(listConfigFiles());
+        }
+        final Set<String> changedFiles = new HashSet<>();
+        for (final String fileName : candidates) {
+            final Long checksum = getChecksum(fileName);
+            final Long previousChecksum = checksum == null ? checksums.remove(fileName) : checksums.put(fileName, checksum);
+            if (!Objects.equals(checksum, previousChecksum)) {
+                changedFiles.add(fileName);
+            }
+        }
+        if (changedFiles.isEmpty()) {
+            return;
+        }
+        LOG.debug("Configuration files changed: {}", changedFiles);
+        try {
+            changeHandler.accept(Collections.unmodifiableSet(changedFiles));
+        } catch (final RuntimeException e) {
+            LOG.error("Failed to process configuration file changes", e);
+        }
+    }
+
+    private Set<String> listConfigFiles()
+    {
+        final Set<String> fileNames = new HashSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, CONFIG_FILE_PREFIX + "*")) {
+            for (final Path entry : entries) {
+                fileNames.add(entry.getFileName().toString());
+            }
+        } catch (final IOException e) {
+            LOG.warn("Unable to list configuration directory {}", directory, e);
+        }
+        return fileNames;
+    }
+
+    /**
+     * Calculate a checksum of the content of a configuration file.
+     *
+     * @param fileName the name of the configuration file
+     * @return the checksum, or null if the file does not exist or cannot be read
+     */
+    private Long getChecksum(final String fileName)
+    {
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(directory.resolve(fileName))) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } catch (final IOException e) {
+            return null;
+        }
+        return crc.getValue();
+    }
+}
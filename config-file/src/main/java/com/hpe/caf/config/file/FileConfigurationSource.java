@@ -16,11 +16,13 @@
 package com.hpe.caf.config.file;
 
 import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.ByteBufferInputStream;
 import com.hpe.caf.api.CafConfigurationSource;
 import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.ConfigFileNames;
 import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationNotFoundException;
 import com.hpe.caf.api.Decoder;
-import com.hpe.caf.api.FileExtensions;
 import com.hpe.caf.api.HealthResult;
 import com.hpe.caf.naming.Name;
 import com.hpe.caf.naming.ServicePath;
@@ -33,14 +35,20 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This is a ConfigurationProvider that reads from a local disk file. If the bootstrap parameter config.path is set, it will read the
@@ -48,24 +56,37 @@ import java.util.Collections;
  *
  * If retrieving the configuration class "TestConfiguration", using the ServicePath /a/b, it will expect the file to be called
  * "cfg_a_b_TestConfiguration".
+ *
+ * If the bootstrap parameter CAF_CONFIG_ENABLE_WATCH is set to true, the configuration directory is watched for changes and the
+ * subscribers are notified with the newly resolved configuration of the classes that are affected.
+ *
+ * If the bootstrap parameter CAF_CONFIG_BUNDLE is set, the configuration files are instead read from the specified configuration
+ * bundle, which is loaded into memory in a single read when the source is created. See {@link ConfigBundleBuilder}.
+ *
+ * Files that are at least CAF_CONFIG_MMAP_THRESHOLD_BYTES in size are memory-mapped and passed to the decoder as a buffer.
  */
 public class FileConfigurationSource extends CafConfigurationSource
 {
     public static final String CONFIG_PATH = "CAF_CONFIG_PATH";
     public static final String RESOURCE_PATH = "CAF_RESOURCE_PATH";
+    public static final String CONFIG_BUNDLE = "CAF_CONFIG_BUNDLE";
+    public static final String ENABLE_WATCH = "CAF_CONFIG_ENABLE_WATCH";
+    public static final String WATCH_DEBOUNCE_MILLIS = "CAF_CONFIG_WATCH_DEBOUNCE_MILLIS";
+    public static final String MMAP_THRESHOLD_BYTES = "CAF_CONFIG_MMAP_THRESHOLD_BYTES";
     @Deprecated
     public static final String OLD_CONFIG_PATH = "config.path";
+    private static final int WATCH_DEBOUNCE_MILLIS_DEFAULT = 500;
+    private static final int WATCH_DEBOUNCE_MILLIS_MAX = 60000;
+    private static final int MMAP_THRESHOLD_BYTES_DEFAULT = 1024 * 1024;
     private final FileSystem configFilesystem;
     private final Path configPath;
+    private final ConfigBundle configBundle;
+    private final ConfigFileIndex configFileIndex;
+    private final ConfigFileWatcher configFileWatcher;
+    private final long mmapThresholdBytes;
     private static final Logger LOG = LoggerFactory.getLogger(FileConfigurationSource.class);
-    private static final ArrayList<String> fileNameDelimiters = new ArrayList<>();
     private final String[] fileExtensions;
 
-    static {
-        fileNameDelimiters.add("_");
-        fileNameDelimiters.add("~");
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -77,12 +98,16 @@ public class FileConfigurationSource extends CafConfigurationSource
     ) throws ConfigurationException
     {
         super(bootstrap, cipher, servicePath, decoder);
+        configBundle = bootstrap.isConfigurationPresent(CONFIG_BUNDLE) ? loadBundle(bootstrap.getConfiguration(CONFIG_BUNDLE)) : null;
         try {
             /**
              * This method was identified as a possible issue for path manipulation, marking as false positive due to the path being
              * picked up from environment variable. Creating a regex to match valid paths here would be overkill.
              */
-            if (bootstrap.isConfigurationPresent(CONFIG_PATH)) {
+            if (configBundle != null) {
+                configFilesystem = null;
+                configPath = null;
+            } else if (bootstrap.isConfigurationPresent(CONFIG_PATH)) {
                 configFilesystem = null;
                 configPath = FileSystems.getDefault().getPath(bootstrap.getConfiguration(CONFIG_PATH));
             } else if (bootstrap.isConfigurationPresent(OLD_CONFIG_PATH)) {
@@ -120,13 +145,17 @@ public class FileConfigurationSource extends CafConfigurationSource
         } catch (final InvalidPathException | URISyntaxException e) {
             throw new ConfigurationException("Invalid configuration path", e);
         }
-        fileExtensions = getFileExtensions(decoder);
+        fileExtensions = ConfigFileNames.getFileExtensions(decoder);
+        configFileIndex = configBundle == null ? new ConfigFileIndex(configPath, this::clearMissingConfigurationCache) : null;
+        mmapThresholdBytes = getMmapThresholdBytes(bootstrap);
+        configFileWatcher = createWatcher(bootstrap);
         LOG.debug("Initialised");
     }
 
     @Override
     public void shutdown()
     {
+        closeSilently(configFileWatcher);
         closeSilently(configFilesystem);
     }
 
@@ -140,66 +169,181 @@ public class FileConfigurationSource extends CafConfigurationSource
     protected InputStream getConfigurationStream(final Class configClass, final Name relativePath)
         throws ConfigurationException
     {
+        final Map<String, Path> configFiles = configBundle == null ? configFileIndex.getFiles() : null;
         // Try each configuration source filename format delimiter in attempt to load the configuration source
-        for (final String fileNameDelimiter : fileNameDelimiters) {
+        for (final String fileNameDelimiter : ConfigFileNames.getFileNameDelimiters()) {
             for (final String fileExtension : fileExtensions) {
-                String configFile = nameToFile(configClass, relativePath, fileNameDelimiter, fileExtension);
-                Path p;
-                if (configPath != null) {
-                    p = configPath.resolve(configFile);
-                } else {
-                    p = Paths.get(configFile);
+                String configFile = ConfigFileNames.getFileName(configClass.getSimpleName(), relativePath, fileNameDelimiter,
+                                                                fileExtension);
+                if (configBundle != null) {
+                    final ByteBuffer content = configBundle.get(configFile);
+                    if (content != null) {
+                        LOG.debug("Getting configuration for {} from bundle entry {}", configClass.getSimpleName(), configFile);
+                        return new ByteBufferInputStream(content);
+                    }
+                    continue;
                 }
-                LOG.debug("Getting configuration for {} from {}", configClass.getSimpleName(), p);
-                // Check if the file exists and try to return it as an input stream
-                if (Files.exists(p)) {
+                Path p = configFiles.get(configFile);
+                // Check if the file is in the index and try to return it as an input stream
+                if (p != null) {
+                    LOG.debug("Getting configuration for {} from {}", configClass.getSimpleName(), p);
                     try {
-                        return Files.newInputStream(p);
+                        return openConfigFile(p);
                     } catch (final IOException ioe) {
                         throw new ConfigurationException("Cannot read config file: " + configFile, ioe);
                     }
                 }
             }
         }
-        throw new ConfigurationException("Cannot find config file for " + configClass.getSimpleName());
+        throw new ConfigurationNotFoundException("Cannot find config file for " + configClass.getSimpleName());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The directory is checked for changes first, so that levels at which configuration was previously missing are not skipped if
+     * files have since been added.
+     */
+    @Override
+    protected InputStream getMostSpecificConfigurationStream(final Class configClass)
+        throws ConfigurationException
+    {
+        if (configFileIndex != null) {
+            configFileIndex.checkForChanges();
+        }
+        return super.getMostSpecificConfigurationStream(configClass);
     }
 
     /**
-     * Retrieves the file extensions to use with the specified decoder.
-     * <p>
-     * If the specified Decoder doesn't have any file extensions explicitly associated with it, then a single empty string is returned.
+     * Rescan the configuration directory. Changes to the directory are normally detected automatically, so this is only required
+     * if the file system does not reliably update the directory modification time. Configuration bundles are not reloaded.
      */
-    private static String[] getFileExtensions(final Decoder decoder)
+    public void refresh()
     {
-        final Class<? extends Decoder> decoderClass = decoder.getClass();
-        final FileExtensions fileExtensionsAnnotation = decoderClass.getAnnotation(FileExtensions.class);
+        if (configFileIndex != null) {
+            configFileIndex.refresh();
+        }
+    }
 
-        return (fileExtensionsAnnotation == null)
-            ? new String[]{""}
-            : fileExtensionsAnnotation.value();
+    /**
+     * Load a configuration bundle from the file system or, if there is no such file, from the classpath.
+     */
+    private static ConfigBundle loadBundle(final String bundleLocation)
+        throws ConfigurationException
+    {
+        try {
+            final Path bundleFile = FileSystems.getDefault().getPath(bundleLocation);
+            if (Files.isRegularFile(bundleFile)) {
+                final ConfigBundle bundle = ConfigBundle.read(bundleFile);
+                LOG.debug("Loaded {} configuration files from bundle {}", bundle.getFileNames().size(), bundleFile);
+                return bundle;
+            }
+        } catch (final InvalidPathException e) {
+            LOG.trace("Configuration bundle location {} is not a file path", bundleLocation, e);
+        } catch (final IOException e) {
+            throw new ConfigurationException("Cannot read configuration bundle " + bundleLocation, e);
+        }
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(bundleLocation)) {
+            if (in == null) {
+                throw new ConfigurationException("Configuration bundle " + bundleLocation + " not found");
+            }
+            final ConfigBundle bundle = ConfigBundle.read(in);
+            LOG.debug("Loaded {} configuration files from bundle resource {}", bundle.getFileNames().size(), bundleLocation);
+            return bundle;
+        } catch (final IOException e) {
+            throw new ConfigurationException("Cannot read configuration bundle " + bundleLocation, e);
+        }
     }
 
     /**
-     * Convert a (partial) ServicePath into a file name to access. The file names are in the format
-     * "cfg_group_subgroup_appid_ConfigurationClass[.ext]".
-     *
-     * @param configClass the configuration class to try and acquire
-     * @param servicePath the partial or complete ServicePath in Name format
-     * @param fileNameDelimiter the symbol used to separate cfg, group, subgroup, appid and ConfigurationClass
-     * @param extension the file extension, or an empty string if there is no extension
-     * @return the constructed file name to try and access
+     * Open a configuration file. Files on the default file system that are at least the memory-mapping threshold in size are mapped
+     * into memory rather than read through a stream, so that the decoder can read them directly without further copying.
      */
-    private String nameToFile(final Class configClass, final Name servicePath, final String fileNameDelimiter, final String extension)
+    private InputStream openConfigFile(final Path file)
+        throws IOException
     {
-        StringBuilder builder = new StringBuilder("cfg");
-        for (final String component : servicePath) {
-            builder.append(fileNameDelimiter).append(component);
+        if (configFilesystem != null) {
+            return Files.newInputStream(file);
         }
-        builder.append(fileNameDelimiter).append(configClass.getSimpleName());
-        if (!extension.isEmpty()) {
-            builder.append('.').append(extension);
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            if (size < mmapThresholdBytes || size > Integer.MAX_VALUE) {
+                return Channels.newInputStream(channel);
+            }
+            // The mapping remains valid after the channel is closed
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            channel.close();
+            LOG.debug("Memory-mapped {} bytes from {}", size, file);
+            return new ByteBufferInputStream(buffer);
+        } catch (final IOException | RuntimeException e) {
+            closeSilently(channel);
+            throw e;
+        }
+    }
+
+    private static long getMmapThresholdBytes(final BootstrapConfiguration bootstrap)
+        throws ConfigurationException
+    {
+        return bootstrap.isConfigurationPresent(MMAP_THRESHOLD_BYTES)
+            ? bootstrap.getConfigurationInteger(MMAP_THRESHOLD_BYTES, 0, Integer.MAX_VALUE)
+            : MMAP_THRESHOLD_BYTES_DEFAULT;
+    }
+
+    private ConfigFileWatcher createWatcher(final BootstrapConfiguration bootstrap)
+        throws ConfigurationException
+    {
+        if (!bootstrap.isConfigurationPresent(ENABLE_WATCH) || !bootstrap.getConfigurationBoolean(ENABLE_WATCH)) {
+            return null;
+        }
+        if (configBundle != null) {
+            LOG.warn("Configuration bundles cannot be watched for changes");
+            return null;
+        }
+        if (configFilesystem != null) {
+            LOG.warn("Configuration files in {} cannot be watched for changes", configPath);
+            return null;
+        }
+        final int debounceMillis = bootstrap.isConfigurationPresent(WATCH_DEBOUNCE_MILLIS)
+            ? bootstrap.getConfigurationInteger(WATCH_DEBOUNCE_MILLIS, 0, WATCH_DEBOUNCE_MILLIS_MAX)
+            : WATCH_DEBOUNCE_MILLIS_DEFAULT;
+        try {
+            return new ConfigFileWatcher(configPath, debounceMillis, this::configFilesChanged);
+        } catch (final IOException e) {
+            throw new ConfigurationException("Unable to watch configuration directory " + configPath, e);
+        }
+    }
+
+    /**
+     * Notify the subscribers of the configuration classes that are affected by changes to the specified files.
+     *
+     * @param changedFiles the names of the configuration files that have been added, removed or modified
+     */
+    private void configFilesChanged(final Set<String> changedFiles)
+    {
+        configFileIndex.refresh();
+        configurationChanged(configClass -> isAffected(configClass, changedFiles));
+    }
+
+    /**
+     * Determine whether any of the files that the specified class could be read from are amongst the changed files.
+     */
+    private boolean isAffected(final Class<?> configClass, final Set<String> changedFiles)
+    {
+        final Iterator<Name> it = getServicePath().descendingPathIterator();
+        while (it.hasNext()) {
+            final Name relativePath = it.next();
+            for (final String fileNameDelimiter : ConfigFileNames.getFileNameDelimiters()) {
+                for (final String fileExtension : fileExtensions) {
+                    final String configFile = ConfigFileNames.getFileName(configClass.getSimpleName(), relativePath, fileNameDelimiter,
+                                                                           fileExtension);
+                    if (changedFiles.contains(configFile)) {
+                        return true;
+                    }
+                }
+            }
         }
-        return builder.toString();
+        return false;
     }
 
     private static void closeSilently(final Closeable closee)
@@ -36,7 +36,12 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FileConfigurationSourceTest
 {
@@ -137,6 +142,144 @@ public class FileConfigurationSourceTest
         Assert.assertEquals(testInt, result.getInnerConfig().getTestValue());
     }
 
+    @Test
+    public void testGetConfigurationAddedAfterInitialisation()
+        throws IOException, ConfigurationException, CodecException
+    {
+        BootstrapConfiguration bc = Mockito.mock(BootstrapConfiguration.class);
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.CONFIG_PATH)).thenReturn(true);
+        Mockito.when(bc.getConfiguration(FileConfigurationSource.CONFIG_PATH)).thenReturn(temp.toString());
+        ConfigurationSource ycp = new FileConfigurationSource(bc, new NullCipher(), id, codec);
+        TestFileConfig tyc = new TestFileConfig();
+        final String comparisonString = "test789";
+        tyc.setTestString(comparisonString);
+        String name = "cfg~" + groupName + "~" + appId + "~" + TestFileConfig.class.getSimpleName() + ".yaml";
+        try (BufferedWriter writer = Files.newBufferedWriter(temp.resolve(name), StandardCharsets.UTF_8, StandardOpenOption.CREATE)) {
+            writer.write(new String(codec.serialise(tyc), StandardCharsets.UTF_8));
+        }
+        TestFileConfig result = ycp.getConfiguration(TestFileConfig.class);
+        Assert.assertEquals(comparisonString, result.getTestString());
+    }
+
+    @Test
+    public void testGetMoreSpecificConfigurationAddedAfterLookup()
+        throws IOException, ConfigurationException, CodecException
+    {
+        writeTestFileConfig(temp.resolve("cfg_" + groupName + "_" + TestFileConfig.class.getSimpleName()), "group");
+        BootstrapConfiguration bc = Mockito.mock(BootstrapConfiguration.class);
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.CONFIG_PATH)).thenReturn(true);
+        Mockito.when(bc.getConfiguration(FileConfigurationSource.CONFIG_PATH)).thenReturn(temp.toString());
+        ConfigurationSource ycp = new FileConfigurationSource(bc, new NullCipher(), id, codec);
+        Assert.assertEquals(ycp.getConfiguration(TestFileConfig.class).getTestString(), "group");
+        writeTestFileConfig(temp.resolve("cfg_" + groupName + "_" + appId + "_" + TestFileConfig.class.getSimpleName()), "worker");
+        Assert.assertEquals(ycp.getConfiguration(TestFileConfig.class).getTestString(), "worker");
+    }
+
+    @Test
+    public void testIndexRefreshOnlyReportsChangedFiles()
+        throws IOException, CodecException
+    {
+        writeTestFileConfig(temp.resolve("cfg_" + groupName + "_" + TestFileConfig.class.getSimpleName()), "group");
+        final AtomicInteger refreshes = new AtomicInteger();
+        final ConfigFileIndex index = new ConfigFileIndex(temp, refreshes::incrementAndGet);
+        index.refresh();
+        Assert.assertEquals(refreshes.get(), 0);
+        writeTestFileConfig(temp.resolve("cfg_" + groupName + "_" + TestFileConfig.class.getSimpleName()), "modified");
+        index.refresh();
+        Assert.assertEquals(refreshes.get(), 0);
+        writeTestFileConfig(temp.resolve("cfg_" + groupName + "_" + appId + "_" + TestFileConfig.class.getSimpleName()), "worker");
+        index.refresh();
+        Assert.assertEquals(refreshes.get(), 1);
+    }
+
+    @Test
+    public void testGetMemoryMappedConfiguration()
+        throws IOException, ConfigurationException, CodecException
+    {
+        writeTestFileConfig(temp.resolve("cfg_" + groupName + "_" + appId + "_" + TestFileConfig.class.getSimpleName()), "mapped");
+        BootstrapConfiguration bc = Mockito.mock(BootstrapConfiguration.class);
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.CONFIG_PATH)).thenReturn(true);
+        Mockito.when(bc.getConfiguration(FileConfigurationSource.CONFIG_PATH)).thenReturn(temp.toString());
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.MMAP_THRESHOLD_BYTES)).thenReturn(true);
+        Mockito.when(bc.getConfigurationInteger(Mockito.eq(FileConfigurationSource.MMAP_THRESHOLD_BYTES), Mockito.anyInt(),
+                                                Mockito.anyInt())).thenReturn(0);
+        ConfigurationSource ycp = new FileConfigurationSource(bc, new NullCipher(), id, codec);
+        Assert.assertEquals(ycp.getConfiguration(TestFileConfig.class).getTestString(), "mapped");
+    }
+
+    @Test
+    public void testWatchConfiguration()
+        throws IOException, ConfigurationException, CodecException, InterruptedException
+    {
+        String name = "cfg_" + groupName + "_" + appId + "_" + TestFileConfig.class.getSimpleName();
+        writeTestFileConfig(temp.resolve(name), "test456");
+        FileConfigurationSource ycp = new FileConfigurationSource(getWatchBootstrap(), new NullCipher(), id, codec);
+        try {
+            BlockingQueue<TestFileConfig> changes = new LinkedBlockingQueue<>();
+            ycp.subscribe(TestFileConfig.class, changes::add);
+            writeTestFileConfig(temp.resolve(name), "test789");
+            TestFileConfig result = changes.poll(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(result, "Expected listener to be notified of the configuration change");
+            Assert.assertEquals("test789", result.getTestString());
+        } finally {
+            ycp.shutdown();
+        }
+    }
+
+    @Test
+    public void testWatchConfigMapUpdate()
+        throws IOException, ConfigurationException, CodecException, InterruptedException
+    {
+        String name = "cfg_" + groupName + "_" + appId + "_" + TestFileConfig.class.getSimpleName();
+        Path firstVersion = Files.createDirectory(temp.resolve("..version1"));
+        writeTestFileConfig(firstVersion.resolve(name), "test456");
+        Files.createSymbolicLink(temp.resolve("..data"), firstVersion.getFileName());
+        Files.createSymbolicLink(temp.resolve(name), temp.getFileSystem().getPath("..data", name));
+        FileConfigurationSource ycp = new FileConfigurationSource(getWatchBootstrap(), new NullCipher(), id, codec);
+        try {
+            Assert.assertEquals("test456", ycp.getConfiguration(TestFileConfig.class).getTestString());
+            BlockingQueue<TestFileConfig> changes = new LinkedBlockingQueue<>();
+            ycp.subscribe(TestFileConfig.class, changes::add);
+            Path secondVersion = Files.createDirectory(temp.resolve("..version2"));
+            writeTestFileConfig(secondVersion.resolve(name), "test789");
+            Files.createSymbolicLink(temp.resolve("..data_tmp"), secondVersion.getFileName());
+            Files.move(temp.resolve("..data_tmp"), temp.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+            TestFileConfig result = changes.poll(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(result, "Expected listener to be notified of the configuration change");
+            Assert.assertEquals("test789", result.getTestString());
+        } finally {
+            ycp.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetBundledConfiguration()
+        throws IOException, ConfigurationException, CodecException
+    {
+        final Path configDir = Files.createDirectory(temp.resolve("config"));
+        writeTestFileConfig(configDir.resolve("cfg_" + groupName + "_" + TestFileConfig.class.getSimpleName()), "bundled");
+        final Path bundleFile = temp.resolve("config.bundle");
+        Assert.assertEquals(ConfigBundleBuilder.build(configDir, bundleFile), 1);
+        deleteDir(configDir.toFile());
+        BootstrapConfiguration bc = Mockito.mock(BootstrapConfiguration.class);
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.CONFIG_BUNDLE)).thenReturn(true);
+        Mockito.when(bc.getConfiguration(FileConfigurationSource.CONFIG_BUNDLE)).thenReturn(bundleFile.toString());
+        ConfigurationSource ycp = new FileConfigurationSource(bc, new NullCipher(), id, codec);
+        Assert.assertEquals(ycp.getConfiguration(TestFileConfig.class).getTestString(), "bundled");
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void testInvalidBundle()
+        throws IOException, ConfigurationException
+    {
+        final Path bundleFile = temp.resolve("config.bundle");
+        Files.write(bundleFile, "not a bundle".getBytes(StandardCharsets.UTF_8));
+        BootstrapConfiguration bc = Mockito.mock(BootstrapConfiguration.class);
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.CONFIG_BUNDLE)).thenReturn(true);
+        Mockito.when(bc.getConfiguration(FileConfigurationSource.CONFIG_BUNDLE)).thenReturn(bundleFile.toString());
+        new FileConfigurationSource(bc, new NullCipher(), id, codec);
+    }
+
     @Test(expectedExceptions = ConfigurationException.class)
     public void testMissingConfiguration()
         throws ConfigurationException
@@ -162,4 +305,26 @@ public class FileConfigurationSourceTest
         ConfigurationSource ycp = new FileConfigurationSource(bc, new NullCipher(), id, codec);
         TestFileConfig result = ycp.getConfiguration(TestFileConfig.class);
     }
+
+    private BootstrapConfiguration getWatchBootstrap()
+        throws ConfigurationException
+    {
+        BootstrapConfiguration bc = Mockito.mock(BootstrapConfiguration.class);
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.CONFIG_PATH)).thenReturn(true);
+        Mockito.when(bc.getConfiguration(FileConfigurationSource.CONFIG_PATH)).thenReturn(temp.toString());
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.ENABLE_WATCH)).thenReturn(true);
+        Mockito.when(bc.getConfigurationBoolean(FileConfigurationSource.ENABLE_WATCH)).thenReturn(true);
+        Mockito.when(bc.isConfigurationPresent(FileConfigurationSource.WATCH_DEBOUNCE_MILLIS)).thenReturn(true);
+        Mockito.when(bc.getConfigurationInteger(Mockito.eq(FileConfigurationSource.WATCH_DEBOUNCE_MILLIS), Mockito.anyInt(),
+                                                Mockito.anyInt())).thenReturn(100);
+        return bc;
+    }
+
+    private void writeTestFileConfig(final Path path, final String testString)
+        throws IOException, CodecException
+    {
+        TestFileConfig tyc = new TestFileConfig();
+        tyc.setTestString(testString);
+        Files.write(path, codec.serialise(tyc));
+    }
 }
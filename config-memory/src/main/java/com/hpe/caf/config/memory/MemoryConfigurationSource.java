@@ -0,0 +1,296 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.memory;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.ByteBufferInputStream;
+import com.hpe.caf.api.CafConfigurationSource;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.ConfigFileNames;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationNotFoundException;
+import com.hpe.caf.api.Decoder;
+import com.hpe.caf.api.HealthResult;
+import com.hpe.caf.naming.Name;
+import com.hpe.caf.naming.ServicePath;
+import com.hpe.caf.naming.ServicePathTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This is a ConfigurationSource that holds all of its configuration in memory, which makes it suitable for tests and for embedded use.
+ *
+ * The configuration is either supplied directly, as the serialised configuration for each class at each level of the service path,
+ * or read from the classpath resources under the directory named by CAF_CONFIG_CLASSPATH_PREFIX, which defaults to "config". The
+ * resources are named in the same way as the files read by the file configuration source, so retrieving the configuration class
+ * "TestConfiguration" using the ServicePath /a/b will use the resource "config/cfg_a_b_TestConfiguration" if it exists.
+ *
+ * The most specific configuration for each class is resolved when the source is created, so retrieving it only requires a single
+ * map lookup.
+ */
+public class MemoryConfigurationSource extends CafConfigurationSource
+{
+    public static final String CLASSPATH_PREFIX = "CAF_CONFIG_CLASSPATH_PREFIX";
+    private static final String CLASSPATH_PREFIX_DEFAULT = "config";
+    private static final Logger LOG = LoggerFactory.getLogger(MemoryConfigurationSource.class);
+    /**
+     * The configuration at each level of the service path, keyed by configuration class simple name and then by level.
+     */
+    private final Map<String, ServicePathTrie<byte[]>> documents;
+    /**
+     * The most specific configuration for the service path, keyed by configuration class simple name.
+     */
+    private final Map<String, byte[]> resolvedDocuments;
+
+    /**
+     * Create a configuration source from the classpath resources under the directory named by CAF_CONFIG_CLASSPATH_PREFIX.
+     *
+     * {@inheritDoc}
+     */
+    public MemoryConfigurationSource(
+        final BootstrapConfiguration bootstrap,
+        final Cipher cipher,
+        final ServicePath servicePath,
+        final Decoder decoder
+    ) throws ConfigurationException
+    {
+        super(bootstrap, cipher, servicePath, decoder);
+        final String prefix = bootstrap.isConfigurationPresent(CLASSPATH_PREFIX)
+            ? bootstrap.getConfiguration(CLASSPATH_PREFIX)
+            : CLASSPATH_PREFIX_DEFAULT;
+        this.documents = toTries(indexResources(readResources(prefix), servicePath, ConfigFileNames.getFileExtensions(decoder)));
+        this.resolvedDocuments = resolve(documents, servicePath);
+        LOG.debug("Initialised with {} configuration resources from {}", countDocuments(documents), prefix);
+    }
+
+    /**
+     * Create a configuration source from the supplied configuration.
+     *
+     * @param bootstrap the bootstrap configuration
+     * @param cipher the cipher used to decrypt fields marked @Encrypted
+     * @param servicePath the service path that configuration is resolved for
+     * @param decoder the decoder used to deserialise the configuration
+     * @param configuration the serialised configuration for each configuration class, keyed by the level of the service path it
+     * applies to, such as "a" or "a/b"
+     * @throws ConfigurationException if the source cannot be created
+     */
+    public MemoryConfigurationSource(
+        final BootstrapConfiguration bootstrap,
+        final Cipher cipher,
+        final ServicePath servicePath,
+        final Decoder decoder,
+        final Map<Name, ? extends Map<Class<?>, byte[]>> configuration
+    ) throws ConfigurationException
+    {
+        super(bootstrap, cipher, servicePath, decoder);
+        this.documents = toTries(copyDocuments(Objects.requireNonNull(configuration)));
+        this.resolvedDocuments = resolve(documents, servicePath);
+        LOG.debug("Initialised with {} configuration documents", countDocuments(documents));
+    }
+
+    @Override
+    public void shutdown()
+    {
+        // nothing to do
+    }
+
+    @Override
+    public HealthResult healthCheck()
+    {
+        return HealthResult.RESULT_HEALTHY;
+    }
+
+    @Override
+    protected InputStream getConfigurationStream(final Class configClass, final Name relativePath)
+        throws ConfigurationException
+    {
+        final ServicePathTrie<byte[]> levels = documents.get(configClass.getSimpleName());
+        return toStream(configClass, levels == null ? null : levels.get(relativePath));
+    }
+
+    @Override
+    protected InputStream getMostSpecificConfigurationStream(final Class configClass)
+        throws ConfigurationException
+    {
+        return toStream(configClass, resolvedDocuments.get(configClass.getSimpleName()));
+    }
+
+    private static InputStream toStream(final Class<?> configClass, final byte[] document)
+        throws ConfigurationNotFoundException
+    {
+        if (document == null) {
+            throw new ConfigurationNotFoundException("No configuration found for " + configClass.getSimpleName());
+        }
+        return new ByteBufferInputStream(ByteBuffer.wrap(document).asReadOnlyBuffer());
+    }
+
+    private static Map<Name, Map<String, byte[]>> copyDocuments(final Map<Name, ? extends Map<Class<?>, byte[]>> configuration)
+    {
+        final Map<Name, Map<String, byte[]>> documents = new HashMap<>();
+        for (final Map.Entry<Name, ? extends Map<Class<?>, byte[]>> level : configuration.entrySet()) {
+            final Map<String, byte[]> levelDocuments = new HashMap<>();
+            for (final Map.Entry<Class<?>, byte[]> document : level.getValue().entrySet()) {
+                levelDocuments.put(document.getKey().getSimpleName(), document.getValue().clone());
+            }
+            documents.put(level.getKey(), levelDocuments);
+        }
+        return documents;
+    }
+
+    /**
+     * Regroup the configuration by configuration class, so that the most specific level for each class can be found in a single
+     * traversal of the service path.
+     */
+    private static Map<String, ServicePathTrie<byte[]>> toTries(final Map<Name, Map<String, byte[]>> documents)
+    {
+        final Map<String, Map<Name, byte[]>> classDocuments = new HashMap<>();
+        documents.forEach((level, levelDocuments) -> levelDocuments.forEach(
+            (className, document) -> classDocuments.computeIfAbsent(className, key -> new HashMap<>()).put(level, document)));
+        final Map<String, ServicePathTrie<byte[]>> tries = new HashMap<>();
+        classDocuments.forEach((className, levels) -> tries.put(className, new ServicePathTrie<>(levels)));
+        return tries;
+    }
+
+    /**
+     * Determine the most specific configuration for each configuration class that is available at any level of the service path.
+     */
+    private static Map<String, byte[]> resolve(final Map<String, ServicePathTrie<byte[]>> documents, final ServicePath servicePath)
+    {
+        final Map<String, byte[]> resolved = new HashMap<>();
+        documents.forEach((className, levels) -> {
+            final byte[] document = levels.getLongestPrefixMatch(servicePath);
+            if (document != null) {
+                resolved.put(className, document);
+            }
+        });
+        return resolved;
+    }
+
+    /**
+     * Match the configuration resource names against the levels of the service path. As with configuration files, resource names
+     * using the "_" delimiter take precedence over those using "~", and the extensions are tried in the order the decoder lists them.
+     */
+    private static Map<Name, Map<String, byte[]>> indexResources(
+        final Map<String, byte[]> resources,
+        final ServicePath servicePath,
+        final String[] fileExtensions
+    )
+    {
+        final Map<Name, Map<String, byte[]>> documents = new HashMap<>();
+        final Iterator<Name> levels = servicePath.descendingPathIterator();
+        while (levels.hasNext()) {
+            final Name level = levels.next();
+            final Map<String, byte[]> levelDocuments = new HashMap<>();
+            for (final String delimiter : ConfigFileNames.getFileNameDelimiters()) {
+                for (final String fileExtension : fileExtensions) {
+                    for (final Map.Entry<String, byte[]> resource : resources.entrySet()) {
+                        final String className = ConfigFileNames.getClassName(resource.getKey(), level, delimiter, fileExtension);
+                        if (className != null) {
+                            levelDocuments.putIfAbsent(className, resource.getValue());
+                        }
+                    }
+                }
+            }
+            if (!levelDocuments.isEmpty()) {
+                documents.put(level, levelDocuments);
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Read every configuration resource in the named classpath directory. If the directory is present in more than one classpath
+     * entry, a resource in an earlier entry hides one of the same name in a later entry.
+     */
+    private static Map<String, byte[]> readResources(final String prefix)
+        throws ConfigurationException
+    {
+        final Map<String, byte[]> resources = new HashMap<>();
+        try {
+            final Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources(prefix);
+            while (urls.hasMoreElements()) {
+                readResources(urls.nextElement().toURI(), resources);
+            }
+        } catch (final IOException e) {
+            throw new ConfigurationException("Failed to read configuration resources from " + prefix, e);
+        } catch (final URISyntaxException e) {
+            throw new ConfigurationException("Invalid configuration resource path " + prefix, e);
+        }
+        return resources;
+    }
+
+    private static void readResources(final URI uri, final Map<String, byte[]> resources)
+        throws IOException
+    {
+        if (uri.getScheme().equalsIgnoreCase("file")) {
+            readDirectory(FileSystems.getDefault().provider().getPath(uri), resources);
+            return;
+        }
+        FileSystem fileSystem;
+        try {
+            fileSystem = FileSystems.newFileSystem(uri, Collections.emptyMap());
+        } catch (final FileSystemAlreadyExistsException e) {
+            fileSystem = null;
+        }
+        try {
+            readDirectory(Path.of(uri), resources);
+        } finally {
+            if (fileSystem != null) {
+                fileSystem.close();
+            }
+        }
+    }
+
+    private static void readDirectory(final Path directory, final Map<String, byte[]> resources)
+        throws IOException
+    {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, ConfigFileNames.CONFIG_FILE_PREFIX + "*")) {
+            for (final Path entry : entries) {
+                final String name = entry.getFileName().toString();
+                if (!resources.containsKey(name) && Files.isRegularFile(entry)) {
+                    resources.put(name, Files.readAllBytes(entry));
+                }
+            }
+        }
+    }
+
+    private static int countDocuments(final Map<String, ServicePathTrie<byte[]>> documents)
+    {
+        return documents.values().stream().mapToInt(ServicePathTrie::size).sum();
+    }
+}
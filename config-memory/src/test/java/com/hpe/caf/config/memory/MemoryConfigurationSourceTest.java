@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.memory;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.CipherException;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.SourceTestConfig;
+import com.hpe.caf.api.SourceTestInnerConfig;
+import com.hpe.caf.cipher.NullCipher;
+import com.hpe.caf.codec.JsonCodec;
+import com.hpe.caf.naming.Name;
+import com.hpe.caf.naming.ServicePath;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.naming.InvalidNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MemoryConfigurationSourceTest
+{
+    private final Codec codec = new JsonCodec();
+    private BootstrapConfiguration bootstrap;
+    private ServicePath id;
+    private Map<Name, Map<Class<?>, byte[]>> configuration;
+
+    @BeforeMethod
+    public void setUp()
+        throws InvalidNameException
+    {
+        bootstrap = Mockito.mock(BootstrapConfiguration.class);
+        id = new ServicePath("testApp/testWorker");
+        configuration = new HashMap<>();
+    }
+
+    @Test
+    public void testGetMostSpecificConfiguration()
+        throws ConfigurationException
+    {
+        put("testApp", SourceTestConfig.class, "{\"host\":\"app\",\"port\":8080}");
+        put("testApp/testWorker", SourceTestConfig.class, "{\"host\":\"worker\"}");
+        put("testApp", SourceTestInnerConfig.class, "{\"value\":\"inner\"}");
+        final MemoryConfigurationSource source = new MemoryConfigurationSource(bootstrap, new NullCipher(), id, codec, configuration);
+        final SourceTestConfig config = source.getConfiguration(SourceTestConfig.class);
+        Assert.assertEquals(config.getHost(), "worker");
+        Assert.assertEquals(config.getPort(), 0);
+        Assert.assertEquals(config.getInner().getValue(), "inner");
+    }
+
+    @Test
+    public void testSuppliedConfigurationIsCopied()
+        throws ConfigurationException
+    {
+        final byte[] document = "{\"host\":\"original\"}".getBytes(StandardCharsets.UTF_8);
+        put("testApp", SourceTestConfig.class, document);
+        final MemoryConfigurationSource source = new MemoryConfigurationSource(bootstrap, new NullCipher(), id, codec, configuration);
+        document[10] = 'X';
+        configuration.clear();
+        Assert.assertEquals(source.getConfiguration(SourceTestConfig.class).getHost(), "original");
+    }
+
+    @Test
+    public void testDecryptEncryptedFields()
+        throws ConfigurationException, CipherException
+    {
+        final Cipher cipher = Mockito.mock(Cipher.class);
+        Mockito.when(cipher.decrypt("encrypted")).thenReturn("decrypted");
+        put("testApp", SourceTestConfig.class, "{\"host\":\"app\",\"password\":\"encrypted\"}");
+        final MemoryConfigurationSource source = new MemoryConfigurationSource(bootstrap, cipher, id, codec, configuration);
+        Assert.assertEquals(source.getConfiguration(SourceTestConfig.class).getPassword(), "decrypted");
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void testInvalidConfiguration()
+        throws ConfigurationException
+    {
+        put("testApp", SourceTestConfig.class, "{\"port\":8080}");
+        new MemoryConfigurationSource(bootstrap, new NullCipher(), id, codec, configuration).getConfiguration(SourceTestConfig.class);
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void testMissingConfiguration()
+        throws ConfigurationException
+    {
+        put("otherApp", SourceTestConfig.class, "{\"host\":\"other\"}");
+        new MemoryConfigurationSource(bootstrap, new NullCipher(), id, codec, configuration).getConfiguration(SourceTestConfig.class);
+    }
+
+    @Test
+    public void testGetConfigurationFromClasspath()
+        throws ConfigurationException
+    {
+        final MemoryConfigurationSource source = new MemoryConfigurationSource(bootstrap, new NullCipher(), id, codec);
+        final SourceTestConfig config = source.getConfiguration(SourceTestConfig.class);
+        Assert.assertEquals(config.getHost(), "classpath");
+        Assert.assertEquals(config.getPort(), 8080);
+        Assert.assertEquals(config.getInner().getValue(), "worker");
+    }
+
+    @Test
+    public void testMissingClasspathPrefix()
+        throws ConfigurationException
+    {
+        Mockito.when(bootstrap.isConfigurationPresent(MemoryConfigurationSource.CLASSPATH_PREFIX)).thenReturn(true);
+        Mockito.when(bootstrap.getConfiguration(MemoryConfigurationSource.CLASSPATH_PREFIX)).thenReturn("missing");
+        final MemoryConfigurationSource source = new MemoryConfigurationSource(bootstrap, new NullCipher(), id, codec);
+        try {
+            source.getConfiguration(SourceTestConfig.class);
+            Assert.fail("Configuration should not have been found");
+        } catch (final ConfigurationException e) {
+            Assert.assertEquals(source.getConfigurationErrors(), 1);
+        }
+    }
+
+    private void put(final String level, final Class<?> configClass, final String document)
+    {
+        put(level, configClass, document.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void put(final String level, final Class<?> configClass, final byte[] document)
+    {
+        configuration.computeIfAbsent(new Name(level), name -> new HashMap<>()).put(configClass, document);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A circuit breaker which stops requests from being made to a server that is unreachable.
+ * <p>
+ * The circuit opens after a number of consecutive failures, and requests are then refused without being attempted. Once the reset
+ * period has passed a single trial request is allowed through; if it succeeds the circuit closes again, and if it fails the circuit
+ * stays open for another reset period.
+ * <p>
+ * Each request that is allowed is given a permit, which must be passed back when its outcome is recorded. While the circuit is open
+ * only the outcome of the trial request changes its state, so requests that were started before the circuit opened cannot restart
+ * the reset period or end the trial when they eventually fail.
+ */
+final class CircuitBreaker
+{
+    /**
+     * The permit returned when a request is refused.
+     */
+    public static final long REFUSED = 0;
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final int failureThreshold;
+    private final long resetNanos;
+    private int consecutiveFailures;
+    private boolean open;
+    private long lastPermit;
+    private long trialPermit = REFUSED;
+    private long openedAt;
+    private int openCount;
+
+    /**
+     * Create a new circuit breaker, which is initially closed.
+     *
+     * @param failureThreshold the number of consecutive failures after which the circuit opens
+     * @param resetMillis how long the circuit stays open before a trial request is allowed
+     */
+    public CircuitBreaker(final int failureThreshold, final long resetMillis)
+    {
+        this.failureThreshold = failureThreshold;
+        this.resetNanos = resetMillis * 1_000_000L;
+    }
+
+    /**
+     * Determine whether a request may be made. If the circuit is open and the reset period has passed then the caller is allowed to
+     * make the trial request.
+     *
+     * @return the permit for the request, which must be passed to {@link #recordSuccess}, {@link #recordFailure} or
+     * {@link #release}, or {@link #REFUSED} if the request may not be made
+     */
+    public synchronized long allowRequest()
+    {
+        if (!open) {
+            return ++lastPermit;
+        }
+        if (trialPermit != REFUSED || System.nanoTime() - openedAt < resetNanos) {
+            return REFUSED;
+        }
+        trialPermit = ++lastPermit;
+        return trialPermit;
+    }
+
+    public synchronized void recordSuccess(final long permit)
+    {
+        if (open) {
+            if (permit != trialPermit) {
+                return;
+            }
+            LOG.info("Configuration server is reachable again, circuit closed");
+            open = false;
+            trialPermit = REFUSED;
+        }
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure(final long permit)
+    {
+        if (open) {
+            if (permit == trialPermit) {
+                openedAt = System.nanoTime();
+                trialPermit = REFUSED;
+            }
+            return;
+        }
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            LOG.warn("Configuration server is unreachable after {} consecutive failures, circuit opened", consecutiveFailures);
+            open = true;
+            openedAt = System.nanoTime();
+            openCount++;
+        }
+    }
+
+    /**
+     * Record that a request was abandoned before its outcome was known. If it was the trial request then another trial request is
+     * allowed.
+     */
+    public synchronized void release(final long permit)
+    {
+        if (open && permit == trialPermit) {
+            trialPermit = REFUSED;
+        }
+    }
+
+    public synchronized boolean isOpen()
+    {
+        return open;
+    }
+
+    /**
+     * @return the number of times the circuit has opened
+     */
+    public synchronized int getOpenCount()
+    {
+        return openCount;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Encodes batch configuration requests and decodes the framed responses.
+ * <p>
+ * A batch request is a POST to /config/batch/servicePath with a text/plain body that lists one configuration name per line. The
+ * server resolves each configuration at the most specific level of the service path at which it is available, and responds with the
+ * {@value #CONTENT_TYPE} content type and a body consisting of one frame per configuration:
+ * <pre>
+ * configName length\n
+ * document (length bytes)
+ * </pre>
+ * A length of -1, with no document, indicates that the configuration is not available at any level of the service path.
+ */
+final class ConfigBatch
+{
+    public static final String CONTENT_TYPE = "application/vnd.caf.config-batch";
+    public static final String REQUEST_CONTENT_TYPE = "text/plain; charset=UTF-8";
+    private static final int MAX_HEADER_LENGTH = 4096;
+
+    private ConfigBatch()
+    {
+    }
+
+    /**
+     * Create the body of a batch request.
+     *
+     * @param configNames the names of the configurations to request
+     * @return the request body
+     */
+    public static byte[] encodeRequest(final Collection<String> configNames)
+    {
+        return String.join("\n", configNames).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode the body of a batch response.
+     *
+     * @param body the response body
+     * @return the documents, keyed by configuration name, with an empty value for configurations that are not available
+     * @throws IOException if the response is not correctly framed
+     */
+    public static Map<String, Optional<byte[]>> decodeResponse(final byte[] body)
+        throws IOException
+    {
+        final Map<String, Optional<byte[]>> documents = new HashMap<>();
+        int position = 0;
+        while (position < body.length) {
+            final int headerEnd = indexOf(body, (byte) '\n', position);
+            if (headerEnd < 0 || headerEnd - position > MAX_HEADER_LENGTH) {
+                throw new IOException("Invalid batch response frame header at offset " + position);
+            }
+            final String header = new String(body, position, headerEnd - position, StandardCharsets.UTF_8);
+            final int separator = header.lastIndexOf(' ');
+            if (separator <= 0) {
+                throw new IOException("Invalid batch response frame header: " + header);
+            }
+            final String configName = header.substring(0, separator);
+            final int length;
+            try {
+                length = Integer.parseInt(header.substring(separator + 1));
+            } catch (final NumberFormatException e) {
+                throw new IOException("Invalid batch response frame length: " + header, e);
+            }
+            position = headerEnd + 1;
+            if (length == -1) {
+                documents.put(configName, Optional.empty());
+            } else if (length < 0 || length > body.length - position) {
+                throw new IOException("Invalid batch response frame length: " + header);
+            } else {
+                final byte[] document = new byte[length];
+                System.arraycopy(body, position, document, 0, length);
+                documents.put(configName, Optional.of(document));
+                position += length;
+            }
+        }
+        return documents;
+    }
+
+    private static int indexOf(final byte[] data, final byte value, final int from)
+    {
+        for (int i = from; i < data.length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
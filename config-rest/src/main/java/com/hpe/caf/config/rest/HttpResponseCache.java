@@ -0,0 +1,226 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A cache of configuration responses, keyed by URL, which allows configuration to be requested conditionally.
+ * <p>
+ * Responses that carry an ETag or Last-Modified header are cached along with their body. When the same URL is requested again the
+ * cached validators are sent as If-None-Match and If-Modified-Since headers, and if the server responds with 304 Not Modified then the
+ * cached body is used. If a directory is specified the cache is also written to disk and reloaded when the cache is created, so that
+ * the bodies do not need to be transferred again after a restart.
+ */
+final class HttpResponseCache
+{
+    private static final int FILE_MAGIC = 0x43464743;
+    private static final String FILE_SUFFIX = ".response";
+    private static final Logger LOG = LoggerFactory.getLogger(HttpResponseCache.class);
+
+    private final ConcurrentMap<URI, CachedResponse> entries = new ConcurrentHashMap<>();
+    private final PersistentStore store;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Create a response cache.
+     *
+     * @param directory the directory to persist the cache to, or null if the cache should only be held in memory
+     * @throws IOException if the directory cannot be created
+     */
+    public HttpResponseCache(final Path directory)
+        throws IOException
+    {
+        if (directory == null) {
+            store = null;
+        } else {
+            store = new PersistentStore(directory, FILE_MAGIC, FILE_SUFFIX);
+            load();
+            LOG.debug("Loaded {} cached configuration responses from {}", entries.size(), directory);
+        }
+    }
+
+    /**
+     * Return the cached response for a URL, if there is one.
+     *
+     * @param uri the URL
+     * @return the cached response, or null if the URL is not cached
+     */
+    public CachedResponse get(final URI uri)
+    {
+        return entries.get(uri);
+    }
+
+    /**
+     * Process the response to a request, updating the cache as necessary.
+     *
+     * @param uri the URL that was requested
+     * @param cached the cached response whose validators were sent with the request, or null if the request was not conditional
+     * @param response the response
+     * @return the body to use, which is the cached body if the server indicated that it has not been modified, or null if the
+     * response does not contain the resource
+     */
+    public byte[] process(final URI uri, final CachedResponse cached, final HttpResponse<byte[]> response)
+    {
+        final int status = response.statusCode();
+        if (status == 304 && cached != null) {
+            hits.incrementAndGet();
+            return cached.body;
+        }
+        if (status / 100 == 2) {
+            misses.incrementAndGet();
+            final Optional<String> eTag = response.headers().firstValue("ETag");
+            final Optional<String> lastModified = response.headers().firstValue("Last-Modified");
+            if (eTag.isPresent() || lastModified.isPresent()) {
+                put(uri, new CachedResponse(eTag.orElse(null), lastModified.orElse(null), response.body()));
+            } else {
+                remove(uri);
+            }
+            return response.body();
+        }
+        if (status == 404 || status == 410) {
+            remove(uri);
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of requests that were answered from the cache after the server responded with 304 Not Modified
+     */
+    public int getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests for which the server returned the full body
+     */
+    public int getMisses()
+    {
+        return misses.get();
+    }
+
+    private void put(final URI uri, final CachedResponse response)
+    {
+        entries.put(uri, response);
+        if (store == null) {
+            return;
+        }
+        try {
+            store.write(uri.toString(), response.encode());
+        } catch (final IOException e) {
+            LOG.warn("Unable to write cached configuration response for {}", uri, e);
+        }
+    }
+
+    private void remove(final URI uri)
+    {
+        if (entries.remove(uri) != null && store != null) {
+            try {
+                store.delete(uri.toString());
+            } catch (final IOException e) {
+                LOG.warn("Unable to delete cached configuration response for {}", uri, e);
+            }
+        }
+    }
+
+    private void load()
+        throws IOException
+    {
+        for (final Map.Entry<String, byte[]> document : store.load().entrySet()) {
+            try {
+                entries.put(URI.create(document.getKey()), CachedResponse.decode(document.getValue()));
+            } catch (final IOException | IllegalArgumentException e) {
+                LOG.warn("Ignoring invalid cached configuration response for {}", document.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * A cached response body, along with the validators needed to request it conditionally.
+     */
+    static final class CachedResponse
+    {
+        private final String eTag;
+        private final String lastModified;
+        private final byte[] body;
+
+        CachedResponse(final String eTag, final String lastModified, final byte[] body)
+        {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        /**
+         * Add the headers that make a request conditional on the resource having changed since this response was received.
+         *
+         * @param request the request
+         * @return the request
+         */
+        public HttpRequest.Builder addConditionalHeaders(final HttpRequest.Builder request)
+        {
+            if (eTag != null) {
+                request.header("If-None-Match", eTag);
+            }
+            if (lastModified != null) {
+                request.header("If-Modified-Since", lastModified);
+            }
+            return request;
+        }
+
+        private byte[] encode()
+            throws IOException
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 64);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeUTF(eTag == null ? "" : eTag);
+                out.writeUTF(lastModified == null ? "" : lastModified);
+                out.write(body);
+            }
+            return bytes.toByteArray();
+        }
+
+        private static CachedResponse decode(final byte[] document)
+            throws IOException
+        {
+            final ByteArrayInputStream bytes = new ByteArrayInputStream(document);
+            try (DataInputStream in = new DataInputStream(bytes)) {
+                final String eTag = in.readUTF();
+                final String lastModified = in.readUTF();
+                return new CachedResponse(eTag.isEmpty() ? null : eTag, lastModified.isEmpty() ? null : lastModified,
+                                          in.readAllBytes());
+            }
+        }
+    }
+}
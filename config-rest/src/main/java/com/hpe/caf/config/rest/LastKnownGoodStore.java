@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A persistent store of the last configuration that was successfully retrieved from the server, which can be used when the server is
+ * unavailable.
+ * <p>
+ * Each document is held in memory and written to the store directory, keyed by the service path and configuration name. The store is
+ * loaded when it is created.
+ */
+final class LastKnownGoodStore
+{
+    private static final int FILE_MAGIC = 0x4346474B;
+    private static final String FILE_SUFFIX = ".config";
+    private static final Logger LOG = LoggerFactory.getLogger(LastKnownGoodStore.class);
+
+    private final ConcurrentMap<String, byte[]> entries = new ConcurrentHashMap<>();
+    private final PersistentStore store;
+
+    /**
+     * Create a last known good store, loading any documents that are already in the directory.
+     *
+     * @param directory the directory to persist the documents to
+     * @throws IOException if the directory cannot be created
+     */
+    public LastKnownGoodStore(final Path directory)
+        throws IOException
+    {
+        this.store = new PersistentStore(directory, FILE_MAGIC, FILE_SUFFIX);
+        entries.putAll(store.load());
+        LOG.debug("Loaded {} last known good configurations from {}", entries.size(), directory);
+    }
+
+    /**
+     * Return the last known good document for a configuration.
+     *
+     * @param servicePath the service path the configuration was retrieved for
+     * @param configName the configuration name
+     * @return the document, or null if there is none
+     */
+    public byte[] get(final String servicePath, final String configName)
+    {
+        return entries.get(getKey(servicePath, configName));
+    }
+
+    /**
+     * Record a document that has been retrieved from the server. Nothing is written if the document has not changed.
+     *
+     * @param servicePath the service path the configuration was retrieved for
+     * @param configName the configuration name
+     * @param body the document
+     */
+    public void put(final String servicePath, final String configName, final byte[] body)
+    {
+        final String key = getKey(servicePath, configName);
+        final byte[] previousBody = entries.put(key, body);
+        if (Arrays.equals(body, previousBody)) {
+            return;
+        }
+        try {
+            store.write(key, body);
+        } catch (final IOException e) {
+            LOG.warn("Unable to write last known good configuration for {}", key, e);
+        }
+    }
+
+    /**
+     * Forget a configuration which the server has indicated no longer exists.
+     *
+     * @param servicePath the service path the configuration was retrieved for
+     * @param configName the configuration name
+     */
+    public void remove(final String servicePath, final String configName)
+    {
+        final String key = getKey(servicePath, configName);
+        if (entries.remove(key) != null) {
+            try {
+                store.delete(key);
+            } catch (final IOException e) {
+                LOG.warn("Unable to delete last known good configuration for {}", key, e);
+            }
+        }
+    }
+
+    private static String getKey(final String servicePath, final String configName)
+    {
+        return servicePath + "/" + configName;
+    }
+}
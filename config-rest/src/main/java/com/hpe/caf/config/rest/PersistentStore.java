@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A directory of documents, keyed by name, which is used to persist configuration between restarts.
+ * <p>
+ * Each document is written to its own file, named after a hash of its key, along with the key and a number that identifies the kind
+ * of document. Files are written to a temporary file and then atomically moved into place, so that a process which is stopped part
+ * way through writing never leaves a partial document behind.
+ */
+final class PersistentStore
+{
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentStore.class);
+
+    private final Path directory;
+    private final int fileMagic;
+    private final String fileSuffix;
+
+    /**
+     * Create a persistent store, creating the directory if it does not exist.
+     *
+     * @param directory the directory to write the documents to
+     * @param fileMagic the number written at the start of each file, which identifies the kind of document it holds
+     * @param fileSuffix the suffix of the document file names
+     * @throws IOException if the directory cannot be created
+     */
+    public PersistentStore(final Path directory, final int fileMagic, final String fileSuffix)
+        throws IOException
+    {
+        this.directory = Objects.requireNonNull(directory);
+        this.fileMagic = fileMagic;
+        this.fileSuffix = Objects.requireNonNull(fileSuffix);
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Read every document in the directory. Files that cannot be read, or that hold a different kind of document, are ignored.
+     *
+     * @return the documents, keyed by name
+     * @throws IOException if the directory cannot be listed
+     */
+    public Map<String, byte[]> load()
+        throws IOException
+    {
+        final Map<String, byte[]> documents = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + fileSuffix)) {
+            for (final Path file : files) {
+                try (SeekableByteChannel channel = Files.newByteChannel(file);
+                     DataInputStream in = new DataInputStream(Channels.newInputStream(channel))) {
+                    if (in.readInt() != fileMagic) {
+                        throw new IOException("Unexpected file type");
+                    }
+                    final String key = in.readUTF();
+                    // the stream is unbuffered, so the channel position is the number of bytes read so far
+                    final int length = in.readInt();
+                    if (length != channel.size() - channel.position()) {
+                        throw new IOException("Unexpected document length " + length);
+                    }
+                    final byte[] document = new byte[length];
+                    in.readFully(document);
+                    documents.put(key, document);
+                } catch (final IOException | RuntimeException e) {
+                    LOG.warn("Ignoring invalid file {}", file, e);
+                }
+            }
+        }
+        LOG.debug("Loaded {} documents from {}", documents.size(), directory);
+        return documents;
+    }
+
+    /**
+     * Write a document, replacing any previous document with the same key.
+     *
+     * @param key the name of the document
+     * @param document the document
+     * @throws IOException if the document cannot be written
+     */
+    public void write(final String key, final byte[] document)
+        throws IOException
+    {
+        final Path tempFile = Files.createTempFile(directory, "document", ".tmp");
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(tempFile);
+                 DataOutputStream out = new DataOutputStream(fileOut)) {
+                out.writeInt(fileMagic);
+                out.writeUTF(key);
+                out.writeInt(document.length);
+                out.write(document);
+            }
+            Files.move(tempFile, getFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Delete a document, if it exists.
+     *
+     * @param key the name of the document
+     * @throws IOException if the document cannot be deleted
+     */
+    public void delete(final String key)
+        throws IOException
+    {
+        Files.deleteIfExists(getFile(key));
+    }
+
+    private Path getFile(final String key)
+    {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder name = new StringBuilder(digest.length * 2 + fileSuffix.length());
+            for (final byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return directory.resolve(name.append(fileSuffix).toString());
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -16,9 +16,11 @@
 package com.hpe.caf.config.rest;
 
 import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.ByteBufferInputStream;
 import com.hpe.caf.api.CafConfigurationSource;
 import com.hpe.caf.api.Cipher;
 import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationNotFoundException;
 import com.hpe.caf.api.Decoder;
 import com.hpe.caf.api.HealthResult;
 import com.hpe.caf.api.HealthStatus;
@@ -26,9 +28,6 @@ import com.hpe.caf.naming.Name;
 import com.hpe.caf.naming.ServicePath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import retrofit.ErrorHandler;
-import retrofit.RestAdapter;
-import retrofit.RetrofitError;
 import retrofit.client.Response;
 import retrofit.http.GET;
 import retrofit.http.Path;
@@ -38,21 +37,113 @@ import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.Socket;
+import java.net.URI;
 import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * Retrieves JSON data from an HTTP REST source. It expects the configuration on the remote server to be relative to the REST endpoint in
  * the format /config/servicePath/configName, that is to say, if you were requesting the configuration for the backend class TestWorker,
  * with service path group/subgroup/name on the endpoint localhost:8080, it would request the JSON from
  * http://localhost:8080/config/group/subgroup/name/TestWorker
+ *
+ * Requests are made using a shared HTTP client, which keeps connections alive between requests and uses HTTP/2 where the server
+ * supports it. The requests for each level of the service path are made concurrently, and the most specific configuration found is
+ * used.
+ *
+ * Unless CAF_CONFIG_ENABLE_BATCH is set to false, a configuration class and the classes nested within it are requested together
+ * from the batch endpoint, /config/batch/servicePath. If the server does not support the batch endpoint then the configuration is
+ * requested per class instead.
+ *
+ * Responses are cached, and configuration that has been requested before is requested conditionally, so that configuration that has
+ * not changed is not transferred again. If CAF_CONFIG_CACHE_DIR is set the cache is also persisted to that directory. If
+ * CAF_CONFIG_POLL_INTERVAL_SECONDS is set the server is polled for changes to the configuration classes that have been subscribed to.
+ *
+ * Requests that cannot be made are retried with jittered exponential backoff, without blocking the calling thread, until
+ * CAF_CONFIG_CALL_DEADLINE_MILLIS has passed. After CAF_CONFIG_CIRCUIT_BREAKER_THRESHOLD consecutive failures no further requests are
+ * attempted until CAF_CONFIG_CIRCUIT_BREAKER_RESET_MILLIS has passed, so that an unreachable server fails lookups quickly.
+ *
+ * If CAF_CONFIG_LAST_KNOWN_GOOD_DIR is set, the configuration retrieved from the server is also written to that directory, and is used
+ * if the server cannot be reached. Configuration that was served from the directory is requested again in the background every
+ * CAF_CONFIG_LAST_KNOWN_GOOD_REFRESH_SECONDS until the server responds, and subscribers are notified if it has changed.
  */
 public class RestConfigurationSource extends CafConfigurationSource
 {
     public static final String CONFIG_REST_HOST = "CAF_CONFIG_HOST";
+    public static final String CONNECT_TIMEOUT_MILLIS = "CAF_CONFIG_CONNECT_TIMEOUT_MILLIS";
+    public static final String REQUEST_TIMEOUT_MILLIS = "CAF_CONFIG_REQUEST_TIMEOUT_MILLIS";
+    public static final String ENABLE_BATCH = "CAF_CONFIG_ENABLE_BATCH";
+    public static final String CACHE_DIR = "CAF_CONFIG_CACHE_DIR";
+    public static final String POLL_INTERVAL_SECONDS = "CAF_CONFIG_POLL_INTERVAL_SECONDS";
+    public static final String CALL_DEADLINE_MILLIS = "CAF_CONFIG_CALL_DEADLINE_MILLIS";
+    public static final String CIRCUIT_BREAKER_THRESHOLD = "CAF_CONFIG_CIRCUIT_BREAKER_THRESHOLD";
+    public static final String CIRCUIT_BREAKER_RESET_MILLIS = "CAF_CONFIG_CIRCUIT_BREAKER_RESET_MILLIS";
+    public static final String LAST_KNOWN_GOOD_DIR = "CAF_CONFIG_LAST_KNOWN_GOOD_DIR";
+    public static final String LAST_KNOWN_GOOD_REFRESH_SECONDS = "CAF_CONFIG_LAST_KNOWN_GOOD_REFRESH_SECONDS";
     @Deprecated
     public static final String OLD_CONFIG_REST_HOST = "config.rest.host";
+    private static final int CONNECT_TIMEOUT_MILLIS_DEFAULT = 5000;
+    private static final int REQUEST_TIMEOUT_MILLIS_DEFAULT = 30000;
+    private static final int CALL_DEADLINE_MILLIS_DEFAULT = 30000;
+    private static final int CIRCUIT_BREAKER_THRESHOLD_DEFAULT = 5;
+    private static final int CIRCUIT_BREAKER_RESET_MILLIS_DEFAULT = 30000;
+    private static final int LAST_KNOWN_GOOD_REFRESH_SECONDS_DEFAULT = 10;
+    private static final long RETRY_BASE_DELAY_MILLIS = 1000;
+    private static final long RETRY_MAX_DELAY_MILLIS = 16000;
     private URL httpServer;
-    private RemoteRestConfiguration remote;
+    private final URI configEndpoint;
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final URI batchEndpoint;
+    private volatile boolean batchSupported;
+    private final ConcurrentMap<String, Optional<byte[]>> prefetched = new ConcurrentHashMap<>();
+    private final Set<String> batchRequested = ConcurrentHashMap.newKeySet();
+    private final HttpResponseCache responseCache;
+    private final ConcurrentMap<Class<?>, byte[]> acquiredDocuments = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService poller;
+    private final long callDeadlineNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final ScheduledExecutorService retryScheduler;
+    private final ExecutorService asyncExecutor;
+    private final AtomicInteger retryCount = new AtomicInteger();
+    private final AtomicLong retryWaitMillis = new AtomicLong();
+    private final LastKnownGoodStore lastKnownGood;
+    private final Set<Class<?>> staleClasses = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService lastKnownGoodRefresher;
+    private final AtomicInteger lastKnownGoodCount = new AtomicInteger();
     private int retries = 5;
     private static final Logger LOG = LoggerFactory.getLogger(RestConfigurationSource.class);
 
@@ -67,21 +158,45 @@ public class RestConfigurationSource extends CafConfigurationSource
         try {
             httpServer = new URL(getConfigHost(bootstrap));
             LOG.debug("REST host is {}", httpServer);
-        } catch (final MalformedURLException e) {
+            configEndpoint = URI.create(httpServer.toString().replaceAll("/+$", "") + "/config/");
+            batchEndpoint = URI.create(configEndpoint + "batch/" + getServicePath().toString());
+        } catch (final MalformedURLException | IllegalArgumentException e) {
             throw new ConfigurationException("Invalid endpoint URL", e);
         }
-        RestAdapter adapter = new RestAdapter.Builder()
-            .setEndpoint(httpServer.toString())
-            .setErrorHandler(new RemoteRestConfigurationErrorHandler())
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(getTimeoutMillis(bootstrap, CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MILLIS_DEFAULT)))
+            .followRedirects(HttpClient.Redirect.NORMAL)
             .build();
-        remote = adapter.create(RemoteRestConfiguration.class);
+        requestTimeout = Duration.ofMillis(getTimeoutMillis(bootstrap, REQUEST_TIMEOUT_MILLIS, REQUEST_TIMEOUT_MILLIS_DEFAULT));
+        batchSupported = !bootstrap.isConfigurationPresent(ENABLE_BATCH) || bootstrap.getConfigurationBoolean(ENABLE_BATCH);
+        responseCache = createResponseCache(bootstrap);
+        callDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(
+            getTimeoutMillis(bootstrap, CALL_DEADLINE_MILLIS, CALL_DEADLINE_MILLIS_DEFAULT));
+        circuitBreaker = new CircuitBreaker(
+            bootstrap.isConfigurationPresent(CIRCUIT_BREAKER_THRESHOLD)
+                ? bootstrap.getConfigurationInteger(CIRCUIT_BREAKER_THRESHOLD, 1, Integer.MAX_VALUE)
+                : CIRCUIT_BREAKER_THRESHOLD_DEFAULT,
+            getTimeoutMillis(bootstrap, CIRCUIT_BREAKER_RESET_MILLIS, CIRCUIT_BREAKER_RESET_MILLIS_DEFAULT));
+        retryScheduler = createRetryScheduler();
+        asyncExecutor = createAsyncExecutor();
+        lastKnownGood = createLastKnownGoodStore(bootstrap);
+        lastKnownGoodRefresher = createLastKnownGoodRefresher(bootstrap);
+        poller = createPoller(bootstrap);
         LOG.debug("Initialised");
     }
 
     @Override
     public void shutdown()
     {
-        // nothing to do
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        if (lastKnownGoodRefresher != null) {
+            lastKnownGoodRefresher.shutdownNow();
+        }
+        retryScheduler.shutdownNow();
+        asyncExecutor.shutdownNow();
     }
 
     @Override
@@ -106,53 +221,719 @@ public class RestConfigurationSource extends CafConfigurationSource
         this.retries = Math.max(0, retries);
     }
 
+    /**
+     * @return the number of configuration requests that were answered from the response cache because the configuration had not
+     * changed
+     */
+    public int getResponseCacheHits()
+    {
+        return responseCache.getHits();
+    }
+
+    /**
+     * @return the number of configuration requests for which the configuration was transferred from the server
+     */
+    public int getResponseCacheMisses()
+    {
+        return responseCache.getMisses();
+    }
+
+    /**
+     * @return the number of times a request that could not be made has been retried
+     */
+    public int getRetryCount()
+    {
+        return retryCount.get();
+    }
+
+    /**
+     * @return the total time, in milliseconds, that requests have waited before being retried
+     */
+    public long getRetryWaitMillis()
+    {
+        return retryWaitMillis.get();
+    }
+
+    /**
+     * @return the number of times the circuit breaker has opened because the server could not be reached
+     */
+    public int getCircuitBreakerOpenCount()
+    {
+        return circuitBreaker.getOpenCount();
+    }
+
+    /**
+     * @return true if requests are currently being refused because the server could not be reached
+     */
+    public boolean isCircuitBreakerOpen()
+    {
+        return circuitBreaker.isOpen();
+    }
+
+    /**
+     * @return the number of times configuration has been served from the last known good store because the server could not be
+     * reached
+     */
+    public int getLastKnownGoodCount()
+    {
+        return lastKnownGoodCount.get();
+    }
+
     /**
      * {@inheritDoc}
      *
-     * Descend back through the full service path to try and acquire configuration. This means we will try and get a more specific
-     * configuration first before going down to a more general configuration.
+     * The configuration class and the classes nested within it are requested without blocking the calling thread, and the
+     * configuration is then decoded and validated on a thread owned by the source. The documents retrieved are only used by this
+     * call, except that prefetched configuration is used if it is available.
+     */
+    @Override
+    public <T> CompletableFuture<T> getConfigurationAsync(final Class<T> configClass)
+    {
+        Objects.requireNonNull(configClass);
+        final long deadline = System.nanoTime() + callDeadlineNanos;
+        final Map<Class<?>, byte[]> documents = new ConcurrentHashMap<>();
+        final Set<Class<?>> fetchedClasses = ConcurrentHashMap.newKeySet();
+        final Set<Class<?>> missingClasses = ConcurrentHashMap.newKeySet();
+        final List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (final Class<?> nestedClass : getNestedConfigurationClasses(configClass)) {
+            final String configName = nestedClass.getSimpleName();
+            final Optional<byte[]> prefetchedDocument = prefetched.remove(configName);
+            if (prefetchedDocument != null) {
+                prefetchedDocument.ifPresent(body -> documents.put(nestedClass, body));
+                continue;
+            }
+            final byte[] lastKnownGoodDocument = getLastKnownGood(configName);
+            final CompletableFuture<byte[]> request
+                = getMostSpecificDocumentAsync(nestedClass, true, lastKnownGoodDocument == null ? retries : 0, deadline);
+            requests.add(request.handle((body, failure) -> {
+                if (failure == null) {
+                    documents.put(nestedClass, body);
+                    fetchedClasses.add(nestedClass);
+                } else if (lastKnownGoodDocument != null && !(unwrap(failure) instanceof ConfigurationNotFoundException)) {
+                    LOG.warn("Unable to retrieve configuration for {}, using the last known good configuration", configName, failure);
+                    useLastKnownGood(nestedClass);
+                    documents.put(nestedClass, lastKnownGoodDocument);
+                } else if (nestedClass == configClass) {
+                    throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+                } else if (unwrap(failure) instanceof ConfigurationNotFoundException) {
+                    // Nested configuration that cannot be acquired is left unset, and its last known good entry is removed
+                    missingClasses.add(nestedClass);
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).thenApplyAsync(ignored -> {
+            recordDocuments(documents, fetchedClasses, missingClasses);
+            try {
+                return getConfiguration(configClass, documents);
+            } catch (final ConfigurationException e) {
+                throw new CompletionException(e);
+            }
+        }, asyncExecutor);
+    }
+
+    /**
+     * Record the documents used by an asynchronous acquisition, as {@link #getMostSpecificConfigurationStream(Class)} does for a
+     * synchronous one. This writes to the last known good store, so it is not done on the threads that complete the requests.
      */
+    private void recordDocuments(final Map<Class<?>, byte[]> documents, final Set<Class<?>> fetchedClasses,
+                                 final Set<Class<?>> missingClasses)
+    {
+        for (final Map.Entry<Class<?>, byte[]> entry : documents.entrySet()) {
+            final Class<?> configClass = entry.getKey();
+            if (lastKnownGood != null && (fetchedClasses.contains(configClass) || !staleClasses.contains(configClass))) {
+                staleClasses.remove(configClass);
+                lastKnownGood.put(getServicePath().toString(), configClass.getSimpleName(), entry.getValue());
+            }
+            acquiredDocuments.put(configClass, entry.getValue());
+        }
+        if (lastKnownGood != null) {
+            for (final Class<?> configClass : missingClasses) {
+                staleClasses.remove(configClass);
+                lastKnownGood.remove(getServicePath().toString(), configClass.getSimpleName());
+            }
+        }
+    }
+
     @Override
     protected InputStream getConfigurationStream(final Class configClass, final Name relativePath)
         throws ConfigurationException
+    {
+        final byte[] body = getResponseBody(
+            remoteCall(relativePath, configClass.getSimpleName(), retries, System.nanoTime() + callDeadlineNanos));
+        return new ByteBufferInputStream(ByteBuffer.wrap(body));
+    }
+
+    /**
+     * Request the specified configuration classes, and the classes nested within them, from the batch endpoint in a single request.
+     * The documents returned are held until the configuration classes are next acquired, so an application can acquire all of its
+     * configuration with one round trip by prefetching it first. Nothing is prefetched if the server does not support the batch
+     * endpoint, and the configuration is then requested per class when it is acquired.
+     *
+     * @param configClasses the configuration classes that are about to be acquired
+     */
+    public void prefetch(final Collection<Class<?>> configClasses)
+    {
+        prefetch(configClasses, System.nanoTime() + callDeadlineNanos);
+    }
+
+    private void prefetch(final Collection<Class<?>> configClasses, final long deadline)
+    {
+        final Set<String> configNames = new LinkedHashSet<>();
+        for (final Class<?> configClass : configClasses) {
+            for (final Class<?> nestedClass : getNestedConfigurationClasses(configClass)) {
+                configNames.add(nestedClass.getSimpleName());
+            }
+        }
+        batchRequested.addAll(configNames);
+        if (batchSupported && !configNames.isEmpty()) {
+            prefetched.putAll(batchCall(configNames, deadline));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Prefetched configuration is used if it is available. Otherwise, the first time a configuration class is acquired, it is
+     * requested from the batch endpoint along with the classes nested within it, which are then prefetched. Subsequent requests, and
+     * requests for configuration that is already in a persisted response cache, are made conditionally from every level of the
+     * service path at once, so that they can be answered from the response cache. The batch request and the requests made after it
+     * share a single call deadline. No batch request is made while the circuit breaker is open, or for configuration that is in the
+     * last known good store, so that an unavailable server does not delay falling back to it.
+     */
+    @Override
+    protected InputStream getMostSpecificConfigurationStream(final Class configClass)
+        throws ConfigurationException
+    {
+        final String configName = configClass.getSimpleName();
+        final long deadline = System.nanoTime() + callDeadlineNanos;
+        Optional<byte[]> document = prefetched.remove(configName);
+        if (document == null && isBatchRequestUseful(configName)) {
+            prefetch(List.of(configClass), deadline);
+            document = prefetched.remove(configName);
+        }
+        if (document != null && document.isEmpty()) {
+            throw new ConfigurationNotFoundException("No configuration found for " + configName);
+        }
+        final byte[] body;
+        if (document != null) {
+            body = document.get();
+            if (lastKnownGood != null && !staleClasses.contains(configClass)) {
+                lastKnownGood.put(getServicePath().toString(), configName, body);
+            }
+        } else {
+            body = getLatestDocument(configClass, deadline);
+        }
+        acquiredDocuments.put(configClass, body);
+        return new ByteBufferInputStream(ByteBuffer.wrap(body));
+    }
+
+    /**
+     * Retrieve the most specific configuration from the server, and record it in the last known good store. If the server cannot be
+     * reached then the last known good configuration is returned instead, and it is requested again in the background. Requests are
+     * not retried if there is last known good configuration to fall back on, so that an unreachable server does not delay startup.
+     */
+    private byte[] getLatestDocument(final Class<?> configClass, final long deadline)
+        throws ConfigurationException
+    {
+        final String configName = configClass.getSimpleName();
+        final byte[] lastKnownGoodDocument = getLastKnownGood(configName);
+        try {
+            final byte[] body = getMostSpecificDocument(configClass, true, lastKnownGoodDocument == null ? retries : 0, deadline);
+            if (lastKnownGood != null) {
+                staleClasses.remove(configClass);
+                lastKnownGood.put(getServicePath().toString(), configName, body);
+            }
+            return body;
+        } catch (final ConfigurationNotFoundException e) {
+            if (lastKnownGood != null) {
+                staleClasses.remove(configClass);
+                lastKnownGood.remove(getServicePath().toString(), configName);
+            }
+            throw e;
+        } catch (final ConfigurationException e) {
+            if (lastKnownGoodDocument == null || Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            LOG.warn("Unable to retrieve configuration for {}, using the last known good configuration", configName, e);
+            useLastKnownGood(configClass);
+            return lastKnownGoodDocument;
+        }
+    }
+
+    private boolean isBatchRequestUseful(final String configName)
+    {
+        return batchSupported
+            && !batchRequested.contains(configName)
+            && !circuitBreaker.isOpen()
+            && !isCached(configName)
+            && getLastKnownGood(configName) == null;
+    }
+
+    private byte[] getLastKnownGood(final String configName)
+    {
+        return lastKnownGood == null ? null : lastKnownGood.get(getServicePath().toString(), configName);
+    }
+
+    private void useLastKnownGood(final Class<?> configClass)
+    {
+        lastKnownGoodCount.incrementAndGet();
+        staleClasses.add(configClass);
+    }
+
+    /**
+     * Request the configuration that was served from the last known good store again, and once the server responds notify the
+     * subscribers of any configuration that has changed in the meantime.
+     */
+    private void refreshLastKnownGood()
+    {
+        final Set<Class<?>> changedClasses = new HashSet<>();
+        for (final Class<?> configClass : staleClasses) {
+            final String configName = configClass.getSimpleName();
+            final byte[] body;
+            try {
+                body = getMostSpecificDocument(configClass, false, 0, System.nanoTime() + callDeadlineNanos);
+            } catch (final ConfigurationNotFoundException e) {
+                staleClasses.remove(configClass);
+                lastKnownGood.remove(getServicePath().toString(), configName);
+                continue;
+            } catch (final ConfigurationException e) {
+                LOG.debug("Configuration server is still unavailable for {}", configName, e);
+                continue;
+            }
+            staleClasses.remove(configClass);
+            lastKnownGood.put(getServicePath().toString(), configName, body);
+            final byte[] previousBody = acquiredDocuments.put(configClass, body);
+            if (previousBody != null && !Arrays.equals(body, previousBody)) {
+                changedClasses.add(configClass);
+            }
+        }
+        if (!changedClasses.isEmpty()) {
+            LOG.info("Configuration server is available, configuration changed since the last known good: {}", changedClasses);
+            configurationChanged(changedClasses::contains);
+        }
+    }
+
+    private boolean isCached(final String configName)
+    {
+        final Iterator<Name> it = getServicePath().descendingPathIterator();
+        while (it.hasNext()) {
+            if (responseCache.get(URI.create(configEndpoint + it.next().toString() + "/" + configName)) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] getMostSpecificDocument(final Class<?> configClass, final boolean skipMissing, final int maxRetries,
+                                           final long deadline)
+        throws ConfigurationException
+    {
+        return getResponseBody(getMostSpecificDocumentAsync(configClass, skipMissing, maxRetries, deadline));
+    }
+
+    /**
+     * Request the configuration from every level of the service path at once. The responses are then examined in order, starting
+     * with the full service path, so the most specific configuration is returned without waiting for each less specific request to
+     * fail in turn.
+     *
+     * @param configClass the configuration class
+     * @param skipMissing whether to skip the levels at which the configuration was recently found to be missing
+     * @param maxRetries the maximum number of times to retry each request that cannot be made
+     * @param deadline the {@link System#nanoTime()} by which the requests must have completed
+     * @return the most specific configuration, which completes exceptionally with a ConfigurationNotFoundException if there is none
+     */
+    private CompletableFuture<byte[]> getMostSpecificDocumentAsync(final Class<?> configClass, final boolean skipMissing,
+                                                                   final int maxRetries, final long deadline)
+    {
+        final List<Name> paths = new ArrayList<>();
+        final List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+        final Iterator<Name> it = getServicePath().descendingPathIterator();
+        try {
+            while (it.hasNext()) {
+                final Name relativePath = it.next();
+                if (skipMissing && isMissingConfiguration(configClass, relativePath)) {
+                    continue;
+                }
+                paths.add(relativePath);
+                responses.add(remoteCall(relativePath, configClass.getSimpleName(), maxRetries, deadline));
+            }
+        } catch (final ConfigurationException e) {
+            responses.forEach(response -> response.cancel(false));
+            return CompletableFuture.failedFuture(e);
+        }
+        final CompletableFuture<byte[]> document = selectMostSpecificDocument(configClass, paths, responses, 0, null);
+        // Any remaining requests are for less specific configuration, which is not needed
+        document.whenComplete((body, failure) -> responses.forEach(response -> response.cancel(false)));
+        return document;
+    }
+
+    private CompletableFuture<byte[]> selectMostSpecificDocument(
+        final Class<?> configClass,
+        final List<Name> paths,
+        final List<CompletableFuture<byte[]>> responses,
+        final int index,
+        final Throwable previousFailure
+    )
+    {
+        if (index == responses.size()) {
+            final String configName = configClass.getSimpleName();
+            return CompletableFuture.failedFuture(previousFailure == null
+                ? new ConfigurationNotFoundException("No configuration found for " + configName)
+                : new ConfigurationException("Failed to retrieve configuration for " + configName, previousFailure));
+        }
+        return responses.get(index).handle((body, failure) -> {
+            if (failure == null) {
+                setMissingConfiguration(configClass, paths.get(index), false);
+                return CompletableFuture.completedFuture(body);
+            }
+            final Throwable cause = unwrap(failure);
+            LOG.trace("No configuration at this path level", cause);
+            if (cause instanceof ConfigurationNotFoundException) {
+                setMissingConfiguration(configClass, paths.get(index), true);
+                return selectMostSpecificDocument(configClass, paths, responses, index + 1, previousFailure);
+            }
+            return selectMostSpecificDocument(configClass, paths, responses, index + 1,
+                                              previousFailure == null ? cause : previousFailure);
+        }).thenCompose(Function.identity());
+    }
+
+    private static Throwable unwrap(final Throwable failure)
+    {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Wait for a response and return its content. The request is cancelled if the calling thread is interrupted.
+     *
+     * @throws ConfigurationException if there is no configuration at the specified path level or the request failed
+     */
+    private static byte[] getResponseBody(final CompletableFuture<byte[]> response)
+        throws ConfigurationException
     {
         try {
-            return remoteCall(relativePath.toString(), configClass.getSimpleName()).getBody().in();
-        } catch (final HttpConfigurationException e) {
-            throw new ConfigurationException("No configuration at path: " + relativePath, e);
-        } catch (final IOException | InterruptedException e) {
-            throw new ConfigurationException("Failed to retrieve configuration", e);
+            return response.get();
+        } catch (final InterruptedException e) {
+            response.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ConfigurationException("Interrupted while retrieving configuration", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof ConfigurationException) {
+                throw (ConfigurationException) e.getCause();
+            }
+            throw new ConfigurationException("Failed to retrieve configuration", e.getCause());
         }
     }
 
     /**
-     * Perform exponential backoff/retry of acquiring a data file from an HTTP source.
+     * Request a configuration resource, with exponential backoff/retry if the request cannot be made, until the call deadline has
+     * passed. Responses from the HTTP server are not retried, even if they are errors. If the resource has been cached the request is
+     * conditional, and the cached content is used if it has not been modified. Cancelling the content cancels the request, including
+     * any retry that has been scheduled.
      *
+     * @param path the service path level
      * @param configName the configuration file name
-     * @return the HTTP response
-     * @throws ConfigurationException if the data cannot be acquired
-     * @throws InterruptedException usually if the application is shutting down
+     * @param maxRetries the maximum number of times to retry the request if it cannot be made
+     * @param deadline the {@link System#nanoTime()} after which the request is not retried
+     * @return the content of the resource, which completes exceptionally if the server cannot provide the resource or the request
+     * fails on every attempt
+     * @throws ConfigurationException if the request cannot be created
+     */
+    private CompletableFuture<byte[]> remoteCall(final Name path, final String configName, final int maxRetries, final long deadline)
+        throws ConfigurationException
+    {
+        final URI uri;
+        try {
+            uri = URI.create(configEndpoint + path.toString() + "/" + configName);
+        } catch (final IllegalArgumentException e) {
+            throw new ConfigurationException("Invalid configuration URL for path: " + path, e);
+        }
+        final HttpResponseCache.CachedResponse cached = responseCache.get(uri);
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uri).GET();
+        if (cached != null) {
+            cached.addConditionalHeaders(request);
+        }
+        final CompletableFuture<HttpResponse<byte[]>> response = send(request, maxRetries, deadline);
+        final CompletableFuture<byte[]> content = response.thenApply(result -> {
+            final byte[] body = responseCache.process(uri, cached, result);
+            if (body == null) {
+                final String message = "HTTP source cannot provide configuration at path " + path + ": " + result.statusCode();
+                throw new CompletionException(result.statusCode() == 404 || result.statusCode() == 410
+                    ? new ConfigurationNotFoundException(message)
+                    : new HttpConfigurationException(message));
+            }
+            return body;
+        });
+        // Cancelling the content must stop the request, which a dependent future does not do by itself
+        content.whenComplete((body, failure) -> response.cancel(false));
+        return content;
+    }
+
+    /**
+     * Send a request, and if it cannot be made schedule it to be retried after a jittered exponential backoff. Cancelling the
+     * response cancels the attempt in progress and any retry that has been scheduled.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> send(final HttpRequest.Builder request, final int maxRetries, final long deadline)
+    {
+        final CompletableFuture<HttpResponse<byte[]>> response = new CompletableFuture<>();
+        sendAttempt(request, 0, maxRetries, deadline, response);
+        return response;
+    }
+
+    /**
+     * Make an attempt to send a request, and complete the response when it succeeds or no further attempts will be made. No attempt
+     * is made if the response has already been completed or cancelled, if the circuit breaker is open, or if the deadline has
+     * passed, and no retry is scheduled that would start after the deadline. Each attempt times out at the request timeout or the
+     * deadline, whichever is sooner.
      */
-    private Response remoteCall(final String path, final String configName)
-        throws ConfigurationException, InterruptedException
+    private void sendAttempt(final HttpRequest.Builder request, final int attempt, final int maxRetries, final long deadline,
+                             final CompletableFuture<HttpResponse<byte[]>> response)
     {
-        int i = 0;
-        while (true) {
+        if (response.isDone()) {
+            return;
+        }
+        final long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+            response.completeExceptionally(new HttpConfigurationException("Deadline exceeded requesting configuration"));
+            return;
+        }
+        final long permit = circuitBreaker.allowRequest();
+        if (permit == CircuitBreaker.REFUSED) {
+            response.completeExceptionally(new HttpConfigurationException("Circuit breaker is open for " + httpServer));
+            return;
+        }
+        final Duration timeout = Duration.ofNanos(Math.min(requestTimeout.toNanos(), remainingNanos));
+        final CompletableFuture<HttpResponse<byte[]>> exchange
+            = httpClient.sendAsync(request.copy().timeout(timeout).build(), HttpResponse.BodyHandlers.ofByteArray());
+        response.whenComplete((result, failure) -> exchange.cancel(true));
+        exchange.whenComplete((result, failure) -> {
+            if (failure == null) {
+                circuitBreaker.recordSuccess(permit);
+                response.complete(result);
+                return;
+            }
+            if (response.isDone()) {
+                // The request was cancelled, so its failure says nothing about whether the server can be reached
+                circuitBreaker.release(permit);
+                return;
+            }
+            circuitBreaker.recordFailure(permit);
+            final long delayMillis = getRetryDelayMillis(attempt);
+            if (attempt >= maxRetries || System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis) - deadline >= 0) {
+                response.completeExceptionally(failure);
+                return;
+            }
+            LOG.debug("HTTP client call failed, retrying in {}ms", delayMillis, failure);
+            final ScheduledFuture<?> retry;
             try {
-                return remote.getRemoteConfiguration(path, configName);
-            } catch (final HttpConfigurationException nfe) {
-                // don't retry if we have an explicit failure from the HTTP server
-                throw nfe;
+                retry = retryScheduler.schedule(
+                    () -> sendAttempt(request, attempt + 1, maxRetries, deadline, response), delayMillis, TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException e) {
+                response.completeExceptionally(failure);
+                return;
+            }
+            response.whenComplete((retryResult, retryFailure) -> retry.cancel(false));
+            retryCount.incrementAndGet();
+            retryWaitMillis.addAndGet(delayMillis);
+        });
+    }
+
+    /**
+     * Calculate how long to wait before retrying a request. The delay doubles with each attempt, up to a maximum, and half of it is
+     * random so that clients which failed together do not all retry at the same moment.
+     */
+    private static long getRetryDelayMillis(final int attempt)
+    {
+        final long backoffMillis = Math.min(RETRY_MAX_DELAY_MILLIS, RETRY_BASE_DELAY_MILLIS << Math.min(attempt, 20));
+        return backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+    }
+
+    /**
+     * Request a set of configurations from the batch endpoint. If the server indicates that it does not support the batch endpoint
+     * then no further batch requests are made. Other failures are logged, and the configurations are then requested individually.
+     * No request is made if the circuit breaker is open, and the request times out at the request timeout or the deadline, whichever
+     * is sooner.
+     *
+     * @param configNames the configuration names
+     * @param deadline the {@link System#nanoTime()} by which the request must have completed
+     * @return the documents returned by the server, which may not include all of the configurations requested
+     */
+    private Map<String, Optional<byte[]>> batchCall(final Set<String> configNames, final long deadline)
+    {
+        final long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return Map.of();
+        }
+        final long permit = circuitBreaker.allowRequest();
+        if (permit == CircuitBreaker.REFUSED) {
+            return Map.of();
+        }
+        final HttpRequest request = HttpRequest.newBuilder(batchEndpoint)
+            .timeout(Duration.ofNanos(Math.min(requestTimeout.toNanos(), remainingNanos)))
+            .header("Content-Type", ConfigBatch.REQUEST_CONTENT_TYPE)
+            .header("Accept", ConfigBatch.CONTENT_TYPE)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(ConfigBatch.encodeRequest(configNames)))
+            .build();
+        final HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            circuitBreaker.recordSuccess(permit);
+        } catch (final InterruptedException e) {
+            circuitBreaker.release(permit);
+            Thread.currentThread().interrupt();
+            return Map.of();
+        } catch (final IOException e) {
+            circuitBreaker.recordFailure(permit);
+            LOG.debug("Batch configuration request failed", e);
+            return Map.of();
+        }
+        final int status = response.statusCode();
+        if (status == 404 || status == 405 || status == 501) {
+            LOG.debug("Batch configuration requests are not supported by {}", httpServer);
+            batchSupported = false;
+            return Map.of();
+        }
+        if (status / 100 != 2) {
+            LOG.debug("Batch configuration request failed: {}", status);
+            return Map.of();
+        }
+        final Optional<String> contentType = response.headers().firstValue("Content-Type");
+        try {
+            if (contentType.isEmpty() || !contentType.get().startsWith(ConfigBatch.CONTENT_TYPE)) {
+                throw new IOException("Unexpected content type: " + contentType.orElse(null));
+            }
+            final Map<String, Optional<byte[]>> documents = ConfigBatch.decodeResponse(response.body());
+            LOG.debug("Received {} configurations from batch request for {}", documents.size(), configNames);
+            return documents;
+        } catch (final IOException e) {
+            LOG.warn("Invalid response to batch configuration request, batch requests disabled", e);
+            batchSupported = false;
+            return Map.of();
+        }
+    }
+
+    /**
+     * Check whether the configuration of the subscribed classes has changed since it was last acquired, and notify the subscribers of
+     * the classes that have changed. Configuration that cannot currently be retrieved is not treated as having changed.
+     */
+    private void poll()
+    {
+        final Set<Class<?>> changedClasses = new HashSet<>();
+        for (final Class<?> configClass : getSubscribedConfigurationClasses()) {
+            try {
+                // Every level is requested, so that configuration added at a more specific level is noticed
+                final byte[] body = getMostSpecificDocument(configClass, false, retries, System.nanoTime() + callDeadlineNanos);
+                final byte[] previousBody = acquiredDocuments.put(configClass, body);
+                if (previousBody != null && !Arrays.equals(body, previousBody)) {
+                    changedClasses.add(configClass);
+                }
             } catch (final ConfigurationException e) {
-                LOG.debug("HTTP client call failed, retrying");
-                if (i == retries) {
-                    throw e;
-                } else {
-                    Thread.sleep((long) Math.pow(2, i) * 1000L);
+                LOG.debug("Unable to poll for changes to {}", configClass.getSimpleName(), e);
+            }
+        }
+        if (!changedClasses.isEmpty()) {
+            LOG.debug("Configuration changed: {}", changedClasses);
+            configurationChanged(changedClasses::contains);
+        }
+    }
+
+    private static HttpResponseCache createResponseCache(final BootstrapConfiguration bootstrap)
+        throws ConfigurationException
+    {
+        final String cacheDir = bootstrap.isConfigurationPresent(CACHE_DIR) ? bootstrap.getConfiguration(CACHE_DIR) : null;
+        try {
+            return new HttpResponseCache(cacheDir == null ? null : Paths.get(cacheDir));
+        } catch (final IOException | InvalidPathException e) {
+            throw new ConfigurationException("Invalid configuration cache directory: " + cacheDir, e);
+        }
+    }
+
+    private static LastKnownGoodStore createLastKnownGoodStore(final BootstrapConfiguration bootstrap)
+        throws ConfigurationException
+    {
+        if (!bootstrap.isConfigurationPresent(LAST_KNOWN_GOOD_DIR)) {
+            return null;
+        }
+        final String directory = bootstrap.getConfiguration(LAST_KNOWN_GOOD_DIR);
+        try {
+            return new LastKnownGoodStore(Paths.get(directory));
+        } catch (final IOException | InvalidPathException e) {
+            throw new ConfigurationException("Invalid last known good configuration directory: " + directory, e);
+        }
+    }
+
+    private ScheduledExecutorService createLastKnownGoodRefresher(final BootstrapConfiguration bootstrap)
+        throws ConfigurationException
+    {
+        if (lastKnownGood == null) {
+            return null;
+        }
+        final int refreshSeconds = bootstrap.isConfigurationPresent(LAST_KNOWN_GOOD_REFRESH_SECONDS)
+            ? bootstrap.getConfigurationInteger(LAST_KNOWN_GOOD_REFRESH_SECONDS, 1, Integer.MAX_VALUE)
+            : LAST_KNOWN_GOOD_REFRESH_SECONDS_DEFAULT;
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "caf-config-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                if (!staleClasses.isEmpty()) {
+                    refreshLastKnownGood();
                 }
-                i++;
+            } catch (final RuntimeException e) {
+                LOG.error("Failed to refresh last known good configuration", e);
             }
+        }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        return executor;
+    }
+
+    private static ScheduledExecutorService createRetryScheduler()
+    {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "caf-config-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private static ExecutorService createAsyncExecutor()
+    {
+        return Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "caf-config-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private ScheduledExecutorService createPoller(final BootstrapConfiguration bootstrap)
+        throws ConfigurationException
+    {
+        if (!bootstrap.isConfigurationPresent(POLL_INTERVAL_SECONDS)) {
+            return null;
         }
+        final int pollIntervalSeconds = bootstrap.getConfigurationInteger(POLL_INTERVAL_SECONDS, 1, Integer.MAX_VALUE);
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "caf-config-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (final RuntimeException e) {
+                LOG.error("Failed to poll for configuration changes", e);
+            }
+        }, pollIntervalSeconds, pollIntervalSeconds, TimeUnit.SECONDS);
+        return executor;
+    }
+
+    private static long getTimeoutMillis(final BootstrapConfiguration bootstrap, final String key, final int defaultMillis)
+        throws ConfigurationException
+    {
+        return bootstrap.isConfigurationPresent(key) ? bootstrap.getConfigurationInteger(key, 1, Integer.MAX_VALUE) : defaultMillis;
     }
 
     private String getConfigHost(final BootstrapConfiguration bootstrap)
@@ -169,6 +950,12 @@ public class RestConfigurationSource extends CafConfigurationSource
         return ret;
     }
 
+    /**
+     * The Retrofit interface that was used to request configuration before requests were made with the JDK HTTP client.
+     *
+     * @deprecated RestConfigurationSource no longer uses Retrofit, and this interface will be removed in the next major release.
+     */
+    @Deprecated
     public interface RemoteRestConfiguration
     {
         @GET("/config/{servicePath}/{configResource}")
@@ -178,20 +965,6 @@ public class RestConfigurationSource extends CafConfigurationSource
         ) throws ConfigurationException;
     }
 
-    private static class RemoteRestConfigurationErrorHandler implements ErrorHandler
-    {
-        @Override
-        public Throwable handleError(final RetrofitError retrofitError)
-        {
-            if (retrofitError.getKind() == RetrofitError.Kind.HTTP) {
-                return new HttpConfigurationException(
-                    "HTTP source cannot provide configuration: " + retrofitError.getResponse().getStatus());
-            } else {
-                return new ConfigurationException("Could not retrieve configuration", retrofitError);
-            }
-        }
-    }
-
     private static class HttpConfigurationException extends ConfigurationException
     {
         public HttpConfigurationException(final String message)
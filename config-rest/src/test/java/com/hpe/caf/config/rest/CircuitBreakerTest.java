@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest
+{
+    @Test
+    public void testOpensAfterThreshold()
+    {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(2, 60000);
+        circuitBreaker.recordFailure(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.isOpen());
+        circuitBreaker.recordFailure(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.isOpen());
+        assertEquals(1, circuitBreaker.getOpenCount());
+        assertEquals(CircuitBreaker.REFUSED, circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testStaleOutcomesIgnoredWhileOpen()
+        throws InterruptedException
+    {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        final long stalePermit = circuitBreaker.allowRequest();
+        circuitBreaker.recordFailure(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.isOpen());
+        Thread.sleep(100);
+        final long trialPermit = circuitBreaker.allowRequest();
+        assertTrue(trialPermit != CircuitBreaker.REFUSED);
+
+        // A request made before the circuit opened neither ends the trial nor closes the circuit
+        circuitBreaker.recordFailure(stalePermit);
+        circuitBreaker.recordSuccess(stalePermit);
+        assertTrue(circuitBreaker.isOpen());
+        assertEquals(CircuitBreaker.REFUSED, circuitBreaker.allowRequest());
+
+        circuitBreaker.recordSuccess(trialPermit);
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void testFailedTrialRestartsResetPeriod()
+        throws InterruptedException
+    {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        circuitBreaker.recordFailure(circuitBreaker.allowRequest());
+        Thread.sleep(100);
+        circuitBreaker.recordFailure(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.isOpen());
+        assertEquals(CircuitBreaker.REFUSED, circuitBreaker.allowRequest());
+        assertEquals(1, circuitBreaker.getOpenCount());
+    }
+
+    @Test
+    public void testReleasedTrialAllowsAnotherTrial()
+        throws InterruptedException
+    {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        circuitBreaker.recordFailure(circuitBreaker.allowRequest());
+        Thread.sleep(100);
+        circuitBreaker.release(circuitBreaker.allowRequest());
+        assertTrue(circuitBreaker.allowRequest() != CircuitBreaker.REFUSED);
+    }
+}
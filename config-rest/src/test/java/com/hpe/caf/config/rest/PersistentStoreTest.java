@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that documents are read back from a PersistentStore, and that invalid files are ignored.
+ */
+public class PersistentStoreTest
+{
+    private static final int MAGIC = 0x54455354;
+    private Path storeDir;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        storeDir = Files.createTempDirectory("store");
+    }
+
+    @After
+    public void tearDown()
+    {
+        final File[] files = storeDir.toFile().listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        storeDir.toFile().delete();
+    }
+
+    @Test
+    public void testLoad()
+        throws IOException
+    {
+        final PersistentStore store = new PersistentStore(storeDir, MAGIC, ".doc");
+        store.write("a", "first".getBytes(StandardCharsets.UTF_8));
+        store.write("b", "second".getBytes(StandardCharsets.UTF_8));
+        final Map<String, byte[]> documents = store.load();
+        assertEquals(2, documents.size());
+        assertArrayEquals("first".getBytes(StandardCharsets.UTF_8), documents.get("a"));
+        assertArrayEquals("second".getBytes(StandardCharsets.UTF_8), documents.get("b"));
+    }
+
+    @Test
+    public void testCorruptLengthIgnored()
+        throws IOException
+    {
+        final PersistentStore store = new PersistentStore(storeDir, MAGIC, ".doc");
+        store.write("a", "first".getBytes(StandardCharsets.UTF_8));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storeDir)) {
+            for (final Path file : files) {
+                final byte[] content = Files.readAllBytes(file);
+                // the length follows the magic number and the key, which is written as a two byte length and one character
+                ByteBuffer.wrap(content).putInt(4 + 2 + 1, Integer.MAX_VALUE);
+                Files.write(file, content);
+            }
+        }
+        assertTrue(store.load().isEmpty());
+    }
+}
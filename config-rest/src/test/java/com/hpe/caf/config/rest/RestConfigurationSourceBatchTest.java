@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.Configuration;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.cipher.NullCipher;
+import com.hpe.caf.codec.JsonCodec;
+import com.hpe.caf.naming.ServicePath;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.InvalidNameException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+public class RestConfigurationSourceBatchTest
+{
+    private final Codec codec = new JsonCodec();
+    private final List<String> batchRequests = new CopyOnWriteArrayList<>();
+    private volatile boolean batchSupported = true;
+    private TestConfigServer server;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        server = new TestConfigServer(this::handle);
+        server.putDocument("/config/testApp/ParentConfig", "{\"testData\":\"parent\"}");
+        server.putDocument("/config/testApp/testWorker/RestTestConfig", "{\"testData\":\"child\"}");
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.close();
+    }
+
+    @Test
+    public void testBatchRequest()
+        throws ConfigurationException, InvalidNameException
+    {
+        final RestConfigurationSource source = getSource();
+        final ParentConfig config = source.getConfiguration(ParentConfig.class);
+        assertEquals("parent", config.getTestData());
+        assertEquals("child", config.getChild().getTestData());
+        assertEquals(Arrays.asList("POST /config/batch/testApp/testWorker"), server.getRequests());
+        assertEquals(Arrays.asList("ParentConfig,RestTestConfig"), batchRequests);
+    }
+
+    @Test
+    public void testPrefetch()
+        throws ConfigurationException, InvalidNameException
+    {
+        final RestConfigurationSource source = getSource();
+        source.prefetch(Arrays.asList(ParentConfig.class));
+        assertEquals(1, server.getRequests().size());
+        final ParentConfig config = source.getConfiguration(ParentConfig.class);
+        assertEquals("parent", config.getTestData());
+        assertEquals("child", config.getChild().getTestData());
+        assertEquals(1, server.getRequests().size());
+    }
+
+    @Test
+    public void testBatchNotSupported()
+        throws ConfigurationException, InvalidNameException
+    {
+        batchSupported = false;
+        final RestConfigurationSource source = getSource();
+        assertEquals("child", source.getConfiguration(RestTestConfig.class).getTestData());
+        assertEquals("child", source.getConfiguration(RestTestConfig.class).getTestData());
+        assertEquals(1, server.getRequests().stream().filter(request -> request.startsWith("POST")).count());
+    }
+
+    private RestConfigurationSource getSource()
+        throws ConfigurationException, InvalidNameException
+    {
+        final RestConfigurationSource source = new RestConfigurationSource(server.getBootstrap(), new NullCipher(),
+                                                                           new ServicePath("testApp/testWorker"), codec);
+        source.setRetries(0);
+        return source;
+    }
+
+    /**
+     * Serves the documents, resolving batch requests at the most specific level of the service path.
+     */
+    private void handle(final HttpExchange exchange)
+        throws IOException
+    {
+        final String path = exchange.getRequestURI().getPath();
+        if (!path.startsWith("/config/batch/")) {
+            server.serveDocument(exchange);
+            return;
+        }
+        final String[] configNames = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        Arrays.sort(configNames);
+        batchRequests.add(String.join(",", configNames));
+        if (!batchSupported) {
+            TestConfigServer.sendStatus(exchange, 405);
+            return;
+        }
+        final ServicePath servicePath;
+        try {
+            servicePath = new ServicePath(path.substring("/config/batch/".length()));
+        } catch (final InvalidNameException e) {
+            throw new IOException(e);
+        }
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (final String configName : configNames) {
+            String document = null;
+            for (int i = servicePath.getPath().size(); i > 0 && document == null; i--) {
+                document = server.getDocument("/config/" + servicePath.getPath().getPrefix(i) + "/" + configName);
+            }
+            final byte[] data = document == null ? new byte[0] : document.getBytes(StandardCharsets.UTF_8);
+            body.write((configName + " " + (document == null ? -1 : data.length) + "\n").getBytes(StandardCharsets.UTF_8));
+            body.write(data);
+        }
+        TestConfigServer.sendResponse(exchange, body.toByteArray(), ConfigBatch.CONTENT_TYPE);
+    }
+
+    public static class ParentConfig
+    {
+        @JsonProperty
+        private String testData;
+
+        @Configuration
+        private RestTestConfig child = new RestTestConfig();
+
+        public String getTestData()
+        {
+            return testData;
+        }
+
+        public void setTestData(final String data)
+        {
+            this.testData = data;
+        }
+
+        public RestTestConfig getChild()
+        {
+            return child;
+        }
+
+        public void setChild(final RestTestConfig child)
+        {
+            this.child = child;
+        }
+    }
+}
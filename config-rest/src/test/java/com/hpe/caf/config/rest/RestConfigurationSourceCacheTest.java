@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.cipher.NullCipher;
+import com.hpe.caf.codec.JsonCodec;
+import com.hpe.caf.naming.ServicePath;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.InvalidNameException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class RestConfigurationSourceCacheTest
+{
+    private static final String CONFIG_PATH = "/config/testApp/testWorker/RestTestConfig";
+    private final Codec codec = new JsonCodec();
+    private TestConfigServer server;
+    private Path cacheDir;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        server = new TestConfigServer(this::handle);
+        server.putDocument(CONFIG_PATH, "{\"testData\":\"first\"}");
+        cacheDir = Files.createTempDirectory("config-cache");
+    }
+
+    @After
+    public void tearDown()
+        throws IOException
+    {
+        server.close();
+        try (Stream<Path> files = Files.walk(cacheDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testNotModified()
+        throws ConfigurationException, InvalidNameException
+    {
+        final RestConfigurationSource source = getSource(getBootstrap());
+        assertEquals("first", source.getConfiguration(RestTestConfig.class).getTestData());
+        assertEquals("first", source.getConfiguration(RestTestConfig.class).getTestData());
+        assertEquals(1, source.getResponseCacheMisses());
+        assertEquals(1, source.getResponseCacheHits());
+        server.putDocument(CONFIG_PATH, "{\"testData\":\"second\"}");
+        assertEquals("second", source.getConfiguration(RestTestConfig.class).getTestData());
+        assertEquals(2, source.getResponseCacheMisses());
+    }
+
+    @Test
+    public void testPersistentCache()
+        throws ConfigurationException, InvalidNameException
+    {
+        final BootstrapConfiguration bc = getBootstrap();
+        TestConfigServer.setConfiguration(bc, RestConfigurationSource.CACHE_DIR, cacheDir.toString());
+        assertEquals("first", getSource(bc).getConfiguration(RestTestConfig.class).getTestData());
+        final RestConfigurationSource restarted = getSource(bc);
+        assertEquals("first", restarted.getConfiguration(RestTestConfig.class).getTestData());
+        assertEquals(0, restarted.getResponseCacheMisses());
+        assertEquals(1, restarted.getResponseCacheHits());
+    }
+
+    @Test
+    public void testPollForChanges()
+        throws ConfigurationException, InvalidNameException, InterruptedException
+    {
+        final BootstrapConfiguration bc = getBootstrap();
+        TestConfigServer.setConfiguration(bc, RestConfigurationSource.POLL_INTERVAL_SECONDS, 1);
+        final RestConfigurationSource source = getSource(bc);
+        try {
+            final BlockingQueue<RestTestConfig> changes = new LinkedBlockingQueue<>();
+            source.subscribe(RestTestConfig.class, changes::add);
+            assertEquals("first", source.getConfiguration(RestTestConfig.class).getTestData());
+            server.putDocument(CONFIG_PATH, "{\"testData\":\"second\"}");
+            final RestTestConfig changed = changes.poll(10, TimeUnit.SECONDS);
+            assertNotNull(changed);
+            assertEquals("second", changed.getTestData());
+        } finally {
+            source.shutdown();
+        }
+    }
+
+    private BootstrapConfiguration getBootstrap()
+        throws ConfigurationException
+    {
+        final BootstrapConfiguration bc = server.getBootstrap();
+        TestConfigServer.setConfiguration(bc, RestConfigurationSource.ENABLE_BATCH, false);
+        return bc;
+    }
+
+    private RestConfigurationSource getSource(final BootstrapConfiguration bc)
+        throws ConfigurationException, InvalidNameException
+    {
+        final RestConfigurationSource source = new RestConfigurationSource(bc, new NullCipher(), new ServicePath("testApp/testWorker"),
+                                                                           codec);
+        source.setRetries(0);
+        return source;
+    }
+
+    /**
+     * Serves the document with an ETag, and responds with 304 Not Modified if the request includes the current ETag.
+     */
+    private void handle(final HttpExchange exchange)
+        throws IOException
+    {
+        final String document = server.getDocument(exchange.getRequestURI().getPath());
+        if (document == null) {
+            TestConfigServer.sendStatus(exchange, 404);
+            return;
+        }
+        final String eTag = "\"" + Integer.toHexString(document.hashCode()) + "\"";
+        exchange.getResponseHeaders().add("ETag", eTag);
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            TestConfigServer.sendStatus(exchange, 304);
+        } else {
+            TestConfigServer.sendResponse(exchange, document.getBytes(StandardCharsets.UTF_8), "application/json");
+        }
+    }
+}
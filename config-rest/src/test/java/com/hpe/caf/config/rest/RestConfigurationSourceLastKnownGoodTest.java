@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.cipher.NullCipher;
+import com.hpe.caf.codec.JsonCodec;
+import com.hpe.caf.naming.ServicePath;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.InvalidNameException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that configuration is served from the last known good store when the server cannot be reached.
+ */
+public class RestConfigurationSourceLastKnownGoodTest
+{
+    private final Codec codec = new JsonCodec();
+    private Path storeDir;
+    private TestConfigServer server;
+    private volatile boolean unavailable;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        storeDir = Files.createTempDirectory("lkg");
+        server = new TestConfigServer(exchange -> {
+            if (!unavailable) {
+                server.serveDocument(exchange);
+                return;
+            }
+            if (exchange.getRequestURI().getPath().startsWith("/config/batch/")) {
+                TestConfigServer.sleep(5000);
+            }
+            TestConfigServer.sendStatus(exchange, 503);
+        });
+        server.putDocument("/config/testApp/RestTestConfig", "{\"testData\":\"good\"}");
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.close();
+        final File[] files = storeDir.toFile().listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        storeDir.toFile().delete();
+    }
+
+    @Test
+    public void testLastKnownGoodUsedWhenServerUnavailable()
+        throws ConfigurationException, InvalidNameException
+    {
+        final BootstrapConfiguration bootstrap = getBootstrap();
+        final RestConfigurationSource source = new RestConfigurationSource(bootstrap, new NullCipher(),
+                                                                           new ServicePath("testApp/testWorker"), codec);
+        assertEquals("good", source.getConfiguration(RestTestConfig.class).getTestData());
+        assertEquals(0, source.getLastKnownGoodCount());
+        source.shutdown();
+        server.close();
+
+        final RestConfigurationSource offlineSource = new RestConfigurationSource(bootstrap, new NullCipher(),
+                                                                                  new ServicePath("testApp/testWorker"), codec);
+        final long start = System.currentTimeMillis();
+        assertEquals("good", offlineSource.getConfiguration(RestTestConfig.class).getTestData());
+        final long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Lookup took " + elapsed + "ms", elapsed < 1000);
+        assertEquals(1, offlineSource.getLastKnownGoodCount());
+        offlineSource.shutdown();
+    }
+
+    @Test
+    public void testLastKnownGoodNotDelayedByBatchRequest()
+        throws ConfigurationException, InvalidNameException
+    {
+        final BootstrapConfiguration bootstrap = getBootstrap();
+        final RestConfigurationSource source = new RestConfigurationSource(bootstrap, new NullCipher(),
+                                                                           new ServicePath("testApp/testWorker"), codec);
+        assertEquals("good", source.getConfiguration(RestTestConfig.class).getTestData());
+        source.shutdown();
+        unavailable = true;
+
+        final RestConfigurationSource unavailableSource = new RestConfigurationSource(bootstrap, new NullCipher(),
+                                                                                      new ServicePath("testApp/testWorker"), codec);
+        final long start = System.currentTimeMillis();
+        assertEquals("good", unavailableSource.getConfiguration(RestTestConfig.class).getTestData());
+        final long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Lookup took " + elapsed + "ms", elapsed < 1000);
+        assertEquals(1, unavailableSource.getLastKnownGoodCount());
+        unavailableSource.shutdown();
+    }
+
+    private BootstrapConfiguration getBootstrap()
+        throws ConfigurationException
+    {
+        final BootstrapConfiguration bc = server.getBootstrap();
+        TestConfigServer.setConfiguration(bc, RestConfigurationSource.LAST_KNOWN_GOOD_DIR, storeDir.toString());
+        return bc;
+    }
+}
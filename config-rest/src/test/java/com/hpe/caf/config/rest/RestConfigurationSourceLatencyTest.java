@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.cipher.NullCipher;
+import com.hpe.caf.codec.JsonCodec;
+import com.hpe.caf.naming.ServicePath;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.InvalidNameException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the concurrent lookup of configuration against a local HTTP server which adds latency to every response.
+ */
+public class RestConfigurationSourceLatencyTest
+{
+    private static final long LATENCY_MILLIS = 1000;
+    private final Codec codec = new JsonCodec();
+    private final Map<String, Long> latencies = new ConcurrentHashMap<>();
+    private TestConfigServer server;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        server = new TestConfigServer(exchange -> {
+            TestConfigServer.sleep(latencies.getOrDefault(exchange.getRequestURI().getPath(), LATENCY_MILLIS));
+            server.serveDocument(exchange);
+        });
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.close();
+    }
+
+    @Test
+    public void testLevelsRequestedConcurrently()
+        throws ConfigurationException, InvalidNameException
+    {
+        server.putDocument("/config/testApp/RestTestConfig", "{\"testData\":\"app\"}");
+        final RestConfigurationSource source = new RestConfigurationSource(server.getBootstrap(), new NullCipher(),
+                                                                           new ServicePath("testApp/testWorker/instance"), codec);
+        final long start = System.currentTimeMillis();
+        assertEquals("app", source.getConfiguration(RestTestConfig.class).getTestData());
+        final long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Lookup took " + elapsed + "ms", elapsed < 3 * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void testMostSpecificConfigurationReturned()
+        throws ConfigurationException, InvalidNameException
+    {
+        server.putDocument("/config/testApp/RestTestConfig", "{\"testData\":\"app\"}");
+        server.putDocument("/config/testApp/testWorker/RestTestConfig", "{\"testData\":\"worker\"}");
+        latencies.put("/config/testApp/RestTestConfig", 0L);
+        final RestConfigurationSource source = new RestConfigurationSource(server.getBootstrap(), new NullCipher(),
+                                                                           new ServicePath("testApp/testWorker"), codec);
+        assertEquals("worker", source.getConfiguration(RestTestConfig.class).getTestData());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testMissingConfiguration()
+        throws ConfigurationException, InvalidNameException
+    {
+        final RestConfigurationSource source = new RestConfigurationSource(server.getBootstrap(), new NullCipher(),
+                                                                           new ServicePath("testApp/testWorker"), codec);
+        source.setRetries(0);
+        source.getConfiguration(RestTestConfig.class);
+    }
+}
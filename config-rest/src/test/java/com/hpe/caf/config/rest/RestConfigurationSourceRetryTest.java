@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.CodecException;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.Decoder;
+import com.hpe.caf.cipher.NullCipher;
+import com.hpe.caf.codec.JsonCodec;
+import com.hpe.caf.naming.ServicePath;
+import org.junit.Test;
+
+import javax.naming.InvalidNameException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the retry, deadline and circuit breaker behaviour when the configuration server cannot be reached.
+ */
+public class RestConfigurationSourceRetryTest
+{
+    private final Codec codec = new JsonCodec();
+
+    @Test
+    public void testRetriesStopAtDeadline()
+        throws ConfigurationException, InvalidNameException, IOException, InterruptedException
+    {
+        final RestConfigurationSource source = new RestConfigurationSource(getBootstrap(getUnusedUrl(), 3000, 100), new NullCipher(),
+                                                                           new ServicePath("testApp/testWorker"), codec);
+        final long start = System.currentTimeMillis();
+        final CompletableFuture<RestTestConfig> config = source.getConfigurationAsync(RestTestConfig.class);
+        assertTrue("Calling thread was blocked", System.currentTimeMillis() - start < 1000);
+        try {
+            config.get();
+            fail("Configuration should not be available");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof ConfigurationException);
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Lookup took " + elapsed + "ms", elapsed < 3500);
+        assertTrue(source.getRetryCount() > 0);
+        assertTrue(source.getRetryWaitMillis() > 0);
+        source.shutdown();
+    }
+
+    @Test
+    public void testCircuitBreakerFailsFast()
+        throws ConfigurationException, InvalidNameException, IOException
+    {
+        final RestConfigurationSource source = new RestConfigurationSource(getBootstrap(getUnusedUrl(), 3000, 2), new NullCipher(),
+                                                                           new ServicePath("testApp/testWorker"), codec);
+        source.setRetries(0);
+        try {
+            source.getConfiguration(RestTestConfig.class);
+            fail("Configuration should not be available");
+        } catch (final ConfigurationException e) {
+            assertTrue(source.isCircuitBreakerOpen());
+            assertEquals(1, source.getCircuitBreakerOpenCount());
+        }
+        source.setRetries(5);
+        final long start = System.currentTimeMillis();
+        try {
+            source.getConfiguration(RestTestConfig.class);
+            fail("Configuration should not be available");
+        } catch (final ConfigurationException e) {
+            final long elapsed = System.currentTimeMillis() - start;
+            assertTrue("Lookup took " + elapsed + "ms", elapsed < 500);
+        }
+        source.shutdown();
+    }
+
+    @Test
+    public void testGetConfigurationAsync()
+        throws ConfigurationException, InvalidNameException, IOException, InterruptedException, ExecutionException
+    {
+        try (TestConfigServer server = new TestConfigServer()) {
+            server.putDocument("/config/testApp/RestTestConfig", "{\"testData\":\"async\"}");
+            final RestConfigurationSource source = new RestConfigurationSource(
+                getBootstrap(server.getUrl(), 3000, 2), new NullCipher(), new ServicePath("testApp/testWorker"), codec);
+            assertEquals("async", source.getConfigurationAsync(RestTestConfig.class).get().getTestData());
+            assertEquals(0, source.getRetryCount());
+            assertFalse(source.isCircuitBreakerOpen());
+            source.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentGetConfigurationAsync()
+        throws ConfigurationException, InvalidNameException, IOException, InterruptedException, ExecutionException
+    {
+        try (TestConfigServer server = new TestConfigServer(exchange -> {
+            TestConfigServer.sleep(200);
+            if (exchange.getRequestURI().getPath().equals("/config/testApp/RestTestConfig")) {
+                final byte[] body = "{\"testData\":\"async\"}".getBytes(StandardCharsets.UTF_8);
+                TestConfigServer.sendResponse(exchange, body, "application/json");
+            } else {
+                TestConfigServer.sendStatus(exchange, 404);
+            }
+        })) {
+            final Set<String> decodingThreads = ConcurrentHashMap.newKeySet();
+            final Decoder decoder = new Decoder()
+            {
+                @Override
+                public <T> T deserialise(final InputStream stream, final Class<T> clazz)
+                    throws CodecException
+                {
+                    decodingThreads.add(Thread.currentThread().getName());
+                    return codec.deserialise(stream, clazz);
+                }
+            };
+            final RestConfigurationSource source = new RestConfigurationSource(
+                getBootstrap(server.getUrl(), 3000, 2), new NullCipher(), new ServicePath("testApp/testWorker"), decoder);
+            final List<CompletableFuture<RestTestConfig>> configs = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                configs.add(source.getConfigurationAsync(RestTestConfig.class));
+            }
+            for (final CompletableFuture<RestTestConfig> config : configs) {
+                assertEquals("async", config.get().getTestData());
+            }
+            assertEquals(Set.of("caf-config-async"), decodingThreads);
+            assertTrue(server.getRequests().stream().noneMatch(request -> request.contains("/config/batch/")));
+            source.shutdown();
+        }
+    }
+
+    @Test
+    public void testBatchRequestStopsAtDeadline()
+        throws ConfigurationException, InvalidNameException, IOException
+    {
+        try (TestConfigServer server = new TestConfigServer(exchange -> {
+            TestConfigServer.sleep(5000);
+            TestConfigServer.sendStatus(exchange, 503);
+        })) {
+            final RestConfigurationSource source = new RestConfigurationSource(
+                getBootstrap(server.getUrl(), 500, 2), new NullCipher(), new ServicePath("testApp/testWorker"), codec);
+            final long start = System.currentTimeMillis();
+            try {
+                source.getConfiguration(RestTestConfig.class);
+                fail("Configuration should not be available");
+            } catch (final ConfigurationException e) {
+                final long elapsed = System.currentTimeMillis() - start;
+                assertTrue("Lookup took " + elapsed + "ms", elapsed < 1500);
+            }
+            source.shutdown();
+        }
+    }
+
+    @Test
+    public void testRetriesCancelledOnceConfigurationFound()
+        throws ConfigurationException, InvalidNameException, IOException, InterruptedException
+    {
+        final AtomicInteger lessSpecificRequests = new AtomicInteger();
+        try (TestConfigServer server = new TestConfigServer(exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            if (path.equals("/config/testApp/testWorker/RestTestConfig")) {
+                TestConfigServer.sleep(300);
+                final byte[] body = "{\"testData\":\"worker\"}".getBytes(StandardCharsets.UTF_8);
+                TestConfigServer.sendResponse(exchange, body, "application/json");
+            } else if (path.equals("/config/testApp/RestTestConfig")) {
+                // Closing the connection without a response fails the request, so it is retried
+                lessSpecificRequests.incrementAndGet();
+                exchange.close();
+            } else {
+                TestConfigServer.sendStatus(exchange, 404);
+            }
+        })) {
+            final RestConfigurationSource source = new RestConfigurationSource(
+                getBootstrap(server.getUrl(), 10000, 100), new NullCipher(), new ServicePath("testApp/testWorker"), codec);
+            assertEquals("worker", source.getConfiguration(RestTestConfig.class).getTestData());
+            final int requestsMade = lessSpecificRequests.get();
+            Thread.sleep(2000);
+            assertEquals(requestsMade, lessSpecificRequests.get());
+            source.shutdown();
+        }
+    }
+
+    private static String getUnusedUrl()
+        throws IOException
+    {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return "http://127.0.0.1:" + socket.getLocalPort();
+        }
+    }
+
+    private static BootstrapConfiguration getBootstrap(final String url, final int deadlineMillis, final int circuitBreakerThreshold)
+        throws ConfigurationException
+    {
+        final BootstrapConfiguration bc = TestConfigServer.getBootstrap(url);
+        TestConfigServer.setConfiguration(bc, RestConfigurationSource.CALL_DEADLINE_MILLIS, deadlineMillis);
+        TestConfigServer.setConfiguration(bc, RestConfigurationSource.CIRCUIT_BREAKER_THRESHOLD, circuitBreakerThreshold);
+        return bc;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.rest;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.ConfigurationException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local HTTP server which the tests use in place of a configuration server.
+ * <p>
+ * By default it serves the documents that have been added to it, keyed by request path, and responds with 404 Not Found for any other
+ * path. Tests that need different behaviour supply their own handler. Requests are handled concurrently, and every request is
+ * recorded as its method and path.
+ */
+final class TestConfigServer implements AutoCloseable
+{
+    private final Map<String, String> documents = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+
+    /**
+     * Start a server which serves the documents that are added to it.
+     */
+    public TestConfigServer()
+        throws IOException
+    {
+        this(null);
+    }
+
+    /**
+     * Start a server which passes requests to the specified handler.
+     *
+     * @param handler the handler for requests, or null to serve the documents that are added to the server
+     */
+    public TestConfigServer(final HttpHandler handler)
+        throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/config/", exchange -> {
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+            if (handler == null) {
+                serveDocument(exchange);
+            } else {
+                handler.handle(exchange);
+            }
+        });
+        server.start();
+    }
+
+    public void putDocument(final String path, final String document)
+    {
+        documents.put(path, document);
+    }
+
+    public String getDocument(final String path)
+    {
+        return documents.get(path);
+    }
+
+    /**
+     * @return the requests that have been made, in the form "METHOD path"
+     */
+    public List<String> getRequests()
+    {
+        return requests;
+    }
+
+    public String getUrl()
+    {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return a bootstrap configuration which directs a RestConfigurationSource to this server, and to which the tests can add
+     * further settings
+     */
+    public BootstrapConfiguration getBootstrap()
+        throws ConfigurationException
+    {
+        return getBootstrap(getUrl());
+    }
+
+    /**
+     * Respond with the document for the requested path, or with 404 Not Found if there is none.
+     */
+    public void serveDocument(final HttpExchange exchange)
+        throws IOException
+    {
+        final String document = documents.get(exchange.getRequestURI().getPath());
+        if (document == null) {
+            sendStatus(exchange, 404);
+        } else {
+            sendResponse(exchange, document.getBytes(StandardCharsets.UTF_8), "application/json");
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public static BootstrapConfiguration getBootstrap(final String url)
+        throws ConfigurationException
+    {
+        final BootstrapConfiguration bc = Mockito.mock(BootstrapConfiguration.class);
+        setConfiguration(bc, RestConfigurationSource.CONFIG_REST_HOST, url);
+        return bc;
+    }
+
+    public static void setConfiguration(final BootstrapConfiguration bc, final String key, final String value)
+        throws ConfigurationException
+    {
+        Mockito.when(bc.isConfigurationPresent(Mockito.eq(key))).thenReturn(true);
+        Mockito.when(bc.getConfiguration(Mockito.eq(key))).thenReturn(value);
+    }
+
+    public static void setConfiguration(final BootstrapConfiguration bc, final String key, final int value)
+        throws ConfigurationException
+    {
+        Mockito.when(bc.isConfigurationPresent(Mockito.eq(key))).thenReturn(true);
+        Mockito.when(bc.getConfigurationInteger(Mockito.eq(key), Mockito.anyInt(), Mockito.anyInt())).thenReturn(value);
+    }
+
+    public static void setConfiguration(final BootstrapConfiguration bc, final String key, final boolean value)
+        throws ConfigurationException
+    {
+        Mockito.when(bc.isConfigurationPresent(Mockito.eq(key))).thenReturn(true);
+        Mockito.when(bc.getConfigurationBoolean(Mockito.eq(key))).thenReturn(value);
+    }
+
+    public static void sendResponse(final HttpExchange exchange, final byte[] body, final String contentType)
+        throws IOException
+    {
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        exchange.close();
+    }
+
+    public static void sendStatus(final HttpExchange exchange, final int status)
+        throws IOException
+    {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    public static void sleep(final long millis)
+    {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.system;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Provides bootstrap configuration from a snapshot of the Java system properties, environment variables and the configuration files
+ * listed in CAF_BOOTSTRAP_FILES, which is a comma-separated list of paths. Files with the ".env" extension, or named ".env", contain
+ * lines of the form KEY=VALUE, and any other files are read as Java properties files.
+ *
+ * Later files override earlier files, environment variables override the files, and system properties override everything else.
+ * Files that do not exist are skipped, so that optional files can be listed.
+ */
+public class LayeredBootstrapConfiguration extends SnapshotBootstrapConfiguration
+{
+    public static final String BOOTSTRAP_FILES = "CAF_BOOTSTRAP_FILES";
+    private static final String ENV_FILE_EXTENSION = ".env";
+    private static final String EXPORT_PREFIX = "export ";
+
+    /**
+     * Read the configuration from the system properties, environment variables and bootstrap files.
+     *
+     * @return a new map of the merged configuration
+     * @throws UncheckedIOException if a bootstrap file exists but cannot be read
+     */
+    @Override
+    protected Map<String, String> loadConfiguration()
+    {
+        final Map<String, String> system = super.loadConfiguration();
+        final String files = system.get(BOOTSTRAP_FILES);
+        if (files == null) {
+            return system;
+        }
+        final Map<String, String> configuration = new HashMap<>();
+        for (final String file : files.split(",")) {
+            if (!file.trim().isEmpty()) {
+                configuration.putAll(readFile(Paths.get(file.trim())));
+            }
+        }
+        configuration.putAll(system);
+        return configuration;
+    }
+
+    private static Map<String, String> readFile(final Path file)
+    {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return file.getFileName().toString().endsWith(ENV_FILE_EXTENSION) ? readEnvFile(reader) : readPropertiesFile(reader);
+        } catch (final NoSuchFileException e) {
+            return new HashMap<>();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to read bootstrap configuration file " + file, e);
+        }
+    }
+
+    private static Map<String, String> readPropertiesFile(final BufferedReader reader)
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        properties.load(reader);
+        final Map<String, String> configuration = new HashMap<>();
+        for (final String key : properties.stringPropertyNames()) {
+            configuration.put(key, properties.getProperty(key));
+        }
+        return configuration;
+    }
+
+    /**
+     * Read a file of KEY=VALUE lines. Blank lines and lines starting with "#" are ignored, an "export " prefix is allowed, and a
+     * value may be enclosed in single or double quotes.
+     */
+    private static Map<String, String> readEnvFile(final BufferedReader reader)
+        throws IOException
+    {
+        final Map<String, String> configuration = new HashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String entry = line.trim();
+            if (entry.isEmpty() || entry.startsWith("#")) {
+                continue;
+            }
+            if (entry.startsWith(EXPORT_PREFIX)) {
+                entry = entry.substring(EXPORT_PREFIX.length()).trim();
+            }
+            final int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            configuration.put(entry.substring(0, separator).trim(), unquote(entry.substring(separator + 1).trim()));
+        }
+        return configuration;
+    }
+
+    private static String unquote(final String value)
+    {
+        if (value.length() >= 2) {
+            final char first = value.charAt(0);
+            if ((first == '"' || first == '\'') && value.charAt(value.length() - 1) == first) {
+                return value.substring(1, value.length() - 1);
+            }
+        }
+        return value;
+    }
+}
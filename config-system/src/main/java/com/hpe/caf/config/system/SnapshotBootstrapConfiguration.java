@@ -0,0 +1,291 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.system;
+
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.naming.ServicePath;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Provides bootstrap configuration from a snapshot of the Java system properties and environment variables, which is taken when the
+ * object is created and replaced by calling {@link #refresh()}. As with {@link SystemBootstrapConfiguration}, system properties
+ * override environment variables of the same name.
+ *
+ * Lookups are answered from the snapshot, and integer, boolean, duration and byte size values are only parsed the first time they
+ * are requested, so this is suitable for code that reads bootstrap settings frequently.
+ */
+public class SnapshotBootstrapConfiguration extends SystemBootstrapConfiguration
+{
+    private volatile Snapshot snapshot;
+
+    public SnapshotBootstrapConfiguration()
+    {
+        this.snapshot = new Snapshot(loadConfiguration());
+    }
+
+    /**
+     * Take a new snapshot of the system properties and environment variables, replacing the values and the parsed values cached
+     * from the previous snapshot.
+     */
+    public void refresh()
+    {
+        snapshot = new Snapshot(loadConfiguration());
+    }
+
+    /**
+     * Read the configuration that a snapshot is taken of. This is called from the constructor, so implementations must not depend on
+     * the state of subclasses.
+     *
+     * @return a new map of the system properties and environment variables
+     */
+    protected Map<String, String> loadConfiguration()
+    {
+        final Map<String, String> configuration = new HashMap<>(System.getenv());
+        for (final String key : System.getProperties().stringPropertyNames()) {
+            configuration.put(key, System.getProperty(key));
+        }
+        return configuration;
+    }
+
+    @Override
+    public boolean isConfigurationPresent(final String key)
+    {
+        return snapshot.values.containsKey(Objects.requireNonNull(key));
+    }
+
+    @Override
+    public String getConfiguration(final String key)
+        throws ConfigurationException
+    {
+        return snapshot.getValue(key);
+    }
+
+    @Override
+    public int getConfigurationInteger(final String key)
+        throws ConfigurationException
+    {
+        final Snapshot current = snapshot;
+        final Integer cached = current.integers.get(Objects.requireNonNull(key));
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            final int value = Integer.parseInt(current.getValue(key));
+            current.integers.put(key, value);
+            return value;
+        } catch (final NumberFormatException e) {
+            throw new ConfigurationException("Configuration value is not an integer: " + key, e);
+        }
+    }
+
+    @Override
+    public boolean getConfigurationBoolean(final String key)
+        throws ConfigurationException
+    {
+        final Snapshot current = snapshot;
+        final Boolean cached = current.booleans.get(Objects.requireNonNull(key));
+        if (cached != null) {
+            return cached;
+        }
+        final boolean value = Boolean.parseBoolean(current.getValue(key));
+        current.booleans.put(key, value);
+        return value;
+    }
+
+    /**
+     * Return the requested configuration parameter as a duration. The value may either be a number followed by one of the units "ms",
+     * "s", "m", "h" or "d", such as "30s", or an ISO-8601 duration such as "PT30S". A number without a unit is a number of
+     * milliseconds.
+     *
+     * @param key the config parameter to lookup
+     * @return the value of the config parameter as a duration
+     * @throws ConfigurationException if the configuration parameter is not set or is not a valid duration
+     */
+    public Duration getConfigurationDuration(final String key)
+        throws ConfigurationException
+    {
+        final Snapshot current = snapshot;
+        final Duration cached = current.durations.get(Objects.requireNonNull(key));
+        if (cached != null) {
+            return cached;
+        }
+        final Duration value = parseDuration(key, current.getValue(key));
+        current.durations.put(key, value);
+        return value;
+    }
+
+    /**
+     * Return the requested configuration parameter as a number of bytes. The value may be a number of bytes, or a number followed by
+     * one of the binary units "KB", "MB", "GB" or "TB", such as "64MB". The units are multiples of 1024, are not case sensitive, and
+     * may also be written as "K" or "KiB".
+     *
+     * @param key the config parameter to lookup
+     * @return the value of the config parameter as a number of bytes
+     * @throws ConfigurationException if the configuration parameter is not set or is not a valid size
+     */
+    public long getConfigurationByteSize(final String key)
+        throws ConfigurationException
+    {
+        final Snapshot current = snapshot;
+        final Long cached = current.byteSizes.get(Objects.requireNonNull(key));
+        if (cached != null) {
+            return cached;
+        }
+        final long value = parseByteSize(key, current.getValue(key));
+        current.byteSizes.put(key, value);
+        return value;
+    }
+
+    @Override
+    public ServicePath getServicePath()
+        throws ConfigurationException
+    {
+        final Snapshot current = snapshot;
+        ServicePath servicePath = current.servicePath;
+        if (servicePath == null) {
+            servicePath = super.getServicePath();
+            current.servicePath = servicePath;
+        }
+        return servicePath;
+    }
+
+    @Override
+    public Map<String, String> getConfigurationWithPrefix(final String prefix)
+    {
+        Objects.requireNonNull(prefix);
+        final Map<String, String> configuration = new HashMap<>();
+        snapshot.values.forEach((key, value) -> {
+            if (key.startsWith(prefix)) {
+                configuration.put(key, value);
+            }
+        });
+        return configuration;
+    }
+
+    private static Duration parseDuration(final String key, final String value)
+        throws ConfigurationException
+    {
+        final String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        try {
+            if (trimmed.startsWith("p")) {
+                return Duration.parse(trimmed);
+            }
+            final int unitIndex = getUnitIndex(trimmed);
+            final long amount = Long.parseLong(trimmed.substring(0, unitIndex).trim());
+            switch (trimmed.substring(unitIndex)) {
+                case "":
+                case "ms":
+                    return Duration.ofMillis(amount);
+                case "s":
+                    return Duration.ofSeconds(amount);
+                case "m":
+                    return Duration.ofMinutes(amount);
+                case "h":
+                    return Duration.ofHours(amount);
+                case "d":
+                    return Duration.ofDays(amount);
+                default:
+                    throw new ConfigurationException("Configuration value is not a duration: " + key);
+            }
+        } catch (final NumberFormatException | DateTimeParseException | ArithmeticException e) {
+            throw new ConfigurationException("Configuration value is not a duration: " + key, e);
+        }
+    }
+
+    private static long parseByteSize(final String key, final String value)
+        throws ConfigurationException
+    {
+        final String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        try {
+            final int unitIndex = getUnitIndex(trimmed);
+            final long amount = Long.parseLong(trimmed.substring(0, unitIndex).trim());
+            final int shift;
+            switch (trimmed.substring(unitIndex).replace("ib", "b")) {
+                case "":
+                case "b":
+                    shift = 0;
+                    break;
+                case "k":
+                case "kb":
+                    shift = 10;
+                    break;
+                case "m":
+                case "mb":
+                    shift = 20;
+                    break;
+                case "g":
+                case "gb":
+                    shift = 30;
+                    break;
+                case "t":
+                case "tb":
+                    shift = 40;
+                    break;
+                default:
+                    throw new ConfigurationException("Configuration value is not a byte size: " + key);
+            }
+            if (amount < 0 || amount > Long.MAX_VALUE >> shift) {
+                throw new ConfigurationException("Configuration value is out of range: " + key);
+            }
+            return amount << shift;
+        } catch (final NumberFormatException e) {
+            throw new ConfigurationException("Configuration value is not a byte size: " + key, e);
+        }
+    }
+
+    private static int getUnitIndex(final String value)
+    {
+        int index = value.length();
+        while (index > 0 && Character.isLetter(value.charAt(index - 1))) {
+            index--;
+        }
+        return index;
+    }
+
+    private static final class Snapshot
+    {
+        private final Map<String, String> values;
+        private final ConcurrentMap<String, Integer> integers = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Boolean> booleans = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Duration> durations = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Long> byteSizes = new ConcurrentHashMap<>();
+        private volatile ServicePath servicePath;
+
+        public Snapshot(final Map<String, String> values)
+        {
+            this.values = Collections.unmodifiableMap(new HashMap<>(values));
+        }
+
+        public String getValue(final String key)
+            throws ConfigurationException
+        {
+            final String value = values.get(Objects.requireNonNull(key));
+            if (value == null) {
+                throw new ConfigurationException("Configuration parameter not found: " + key);
+            }
+            return value;
+        }
+    }
+}
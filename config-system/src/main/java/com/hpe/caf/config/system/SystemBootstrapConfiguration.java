@@ -20,6 +20,8 @@ import com.hpe.caf.api.ConfigurationException;
 import com.hpe.caf.naming.ServicePath;
 
 import javax.naming.InvalidNameException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -91,9 +93,33 @@ public class SystemBootstrapConfiguration implements BootstrapConfiguration
         return path;
     }
 
+    /**
+     * Return every system property and environment variable whose name starts with the specified prefix. System properties override
+     * environment variables of the same name.
+     *
+     * @param prefix the prefix of the names to return
+     * @return a new map of the matching names to their values
+     */
+    public Map<String, String> getConfigurationWithPrefix(final String prefix)
+    {
+        Objects.requireNonNull(prefix);
+        final Map<String, String> configuration = new HashMap<>();
+        System.getenv().forEach((key, value) -> {
+            if (key.startsWith(prefix)) {
+                configuration.put(key, value);
+            }
+        });
+        for (final String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                configuration.put(key, System.getProperty(key));
+            }
+        }
+        return configuration;
+    }
+
     private String getProp(final String key)
     {
-        Objects.requireNonNull(key);
-        return System.getProperty(key, System.getenv(key));
+        final String value = System.getProperty(Objects.requireNonNull(key));
+        return value != null ? value : System.getenv(key);
     }
 }
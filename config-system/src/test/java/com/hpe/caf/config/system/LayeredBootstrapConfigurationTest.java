@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.system;
+
+import com.hpe.caf.api.ConfigurationException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+public class LayeredBootstrapConfigurationTest
+{
+    private static final String TEST_PROP = "paas.TEST_PROP.3";
+    private static final String TEST_PROP_2 = "paas.TEST_PROP.4";
+    private Path directory;
+
+    @BeforeMethod
+    public void setUp()
+        throws IOException
+    {
+        directory = Files.createTempDirectory("bootstrap");
+    }
+
+    @AfterMethod
+    public void tearDown()
+        throws IOException
+    {
+        System.clearProperty(LayeredBootstrapConfiguration.BOOTSTRAP_FILES);
+        System.clearProperty(TEST_PROP);
+        System.clearProperty(TEST_PROP_2);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void getConfigurationFromFiles()
+        throws ConfigurationException, IOException
+    {
+        final Path defaults = write("defaults.properties", TEST_PROP + "=default", TEST_PROP_2 + "=10s");
+        final Path overrides = write(".env", "# overrides", "export " + TEST_PROP + "=\"override\"");
+        System.setProperty(LayeredBootstrapConfiguration.BOOTSTRAP_FILES, defaults + "," + overrides);
+        final LayeredBootstrapConfiguration bootstrap = new LayeredBootstrapConfiguration();
+        Assert.assertEquals("override", bootstrap.getConfiguration(TEST_PROP));
+        Assert.assertEquals(Duration.ofSeconds(10), bootstrap.getConfigurationDuration(TEST_PROP_2));
+    }
+
+    @Test
+    public void systemPropertiesOverrideFiles()
+        throws ConfigurationException, IOException
+    {
+        final Path defaults = write("defaults.properties", TEST_PROP + "=default");
+        System.setProperty(LayeredBootstrapConfiguration.BOOTSTRAP_FILES, defaults.toString());
+        System.setProperty(TEST_PROP, "system");
+        Assert.assertEquals("system", new LayeredBootstrapConfiguration().getConfiguration(TEST_PROP));
+    }
+
+    @Test
+    public void missingFilesAreSkipped()
+        throws ConfigurationException, IOException
+    {
+        final Path defaults = write("defaults.properties", TEST_PROP + "=default");
+        System.setProperty(LayeredBootstrapConfiguration.BOOTSTRAP_FILES, defaults + "," + directory.resolve("missing.env"));
+        Assert.assertEquals("default", new LayeredBootstrapConfiguration().getConfiguration(TEST_PROP));
+    }
+
+    @Test
+    public void refresh()
+        throws ConfigurationException, IOException
+    {
+        final Path defaults = write("defaults.properties", TEST_PROP + "=before");
+        System.setProperty(LayeredBootstrapConfiguration.BOOTSTRAP_FILES, defaults.toString());
+        final LayeredBootstrapConfiguration bootstrap = new LayeredBootstrapConfiguration();
+        write("defaults.properties", TEST_PROP + "=after");
+        Assert.assertEquals("before", bootstrap.getConfiguration(TEST_PROP));
+        bootstrap.refresh();
+        Assert.assertEquals("after", bootstrap.getConfiguration(TEST_PROP));
+    }
+
+    private Path write(final String fileName, final String... lines)
+        throws IOException
+    {
+        return Files.write(directory.resolve(fileName), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
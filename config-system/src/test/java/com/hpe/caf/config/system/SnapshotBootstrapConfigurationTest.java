@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.config.system;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.ConfigurationException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+
+public class SnapshotBootstrapConfigurationTest
+{
+    private static final String TEST_PROP = "paas.TEST_PROP.2";
+
+    @AfterMethod
+    public void tearDown()
+    {
+        System.clearProperty(TEST_PROP);
+        System.clearProperty(BootstrapConfiguration.CONFIG_APP_NAME);
+    }
+
+    @Test
+    public void getConfiguration()
+        throws ConfigurationException
+    {
+        System.setProperty(TEST_PROP, "test123");
+        final SnapshotBootstrapConfiguration bootstrap = new SnapshotBootstrapConfiguration();
+        Assert.assertTrue(bootstrap.isConfigurationPresent(TEST_PROP));
+        Assert.assertEquals("test123", bootstrap.getConfiguration(TEST_PROP));
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void getConfigurationInvalid()
+        throws ConfigurationException
+    {
+        new SnapshotBootstrapConfiguration().getConfiguration(TEST_PROP);
+    }
+
+    @Test
+    public void getConfigurationFromSnapshot()
+        throws ConfigurationException
+    {
+        System.setProperty(TEST_PROP, "101");
+        final SnapshotBootstrapConfiguration bootstrap = new SnapshotBootstrapConfiguration();
+        Assert.assertEquals(101, bootstrap.getConfigurationInteger(TEST_PROP));
+        System.setProperty(TEST_PROP, "202");
+        Assert.assertEquals("101", bootstrap.getConfiguration(TEST_PROP));
+        Assert.assertEquals(101, bootstrap.getConfigurationInteger(TEST_PROP));
+        Assert.assertEquals(100, bootstrap.getConfigurationInteger(TEST_PROP, 1, 100));
+        bootstrap.refresh();
+        Assert.assertEquals(202, bootstrap.getConfigurationInteger(TEST_PROP));
+        System.clearProperty(TEST_PROP);
+        bootstrap.refresh();
+        Assert.assertFalse(bootstrap.isConfigurationPresent(TEST_PROP));
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void getConfigurationIntegerInvalid()
+        throws ConfigurationException
+    {
+        System.setProperty(TEST_PROP, "blah");
+        new SnapshotBootstrapConfiguration().getConfigurationInteger(TEST_PROP);
+    }
+
+    @Test
+    public void getConfigurationBoolean()
+        throws ConfigurationException
+    {
+        System.setProperty(TEST_PROP, "true");
+        final SnapshotBootstrapConfiguration bootstrap = new SnapshotBootstrapConfiguration();
+        Assert.assertTrue(bootstrap.getConfigurationBoolean(TEST_PROP));
+        Assert.assertTrue(bootstrap.getConfigurationBoolean(TEST_PROP));
+    }
+
+    @Test
+    public void getConfigurationDuration()
+        throws ConfigurationException
+    {
+        Assert.assertEquals(Duration.ofSeconds(30), getDuration("30s"));
+        Assert.assertEquals(Duration.ofMillis(250), getDuration("250ms"));
+        Assert.assertEquals(Duration.ofMillis(250), getDuration("250"));
+        Assert.assertEquals(Duration.ofMinutes(5), getDuration("5m"));
+        Assert.assertEquals(Duration.ofHours(2), getDuration("2H"));
+        Assert.assertEquals(Duration.ofDays(1), getDuration("1d"));
+        Assert.assertEquals(Duration.ofSeconds(90), getDuration("PT1M30S"));
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void getConfigurationDurationInvalid()
+        throws ConfigurationException
+    {
+        getDuration("30 parsecs");
+    }
+
+    @Test
+    public void getConfigurationByteSize()
+        throws ConfigurationException
+    {
+        Assert.assertEquals(512L, getByteSize("512"));
+        Assert.assertEquals(64L * 1024, getByteSize("64KB"));
+        Assert.assertEquals(64L * 1024, getByteSize("64k"));
+        Assert.assertEquals(16L * 1024 * 1024, getByteSize("16 MiB"));
+        Assert.assertEquals(2L * 1024 * 1024 * 1024, getByteSize("2GB"));
+    }
+
+    @Test(expectedExceptions = ConfigurationException.class)
+    public void getConfigurationByteSizeInvalid()
+        throws ConfigurationException
+    {
+        getByteSize("12PB");
+    }
+
+    @Test
+    public void getServicePath()
+        throws ConfigurationException
+    {
+        System.setProperty(BootstrapConfiguration.CONFIG_APP_NAME, "test/app");
+        final SnapshotBootstrapConfiguration bootstrap = new SnapshotBootstrapConfiguration();
+        Assert.assertEquals("test/app", bootstrap.getServicePath().toString());
+        System.setProperty(BootstrapConfiguration.CONFIG_APP_NAME, "test/app2");
+        Assert.assertEquals("test/app", bootstrap.getServicePath().toString());
+        bootstrap.refresh();
+        Assert.assertEquals("test/app2", bootstrap.getServicePath().toString());
+    }
+
+    @Test
+    public void getConfigurationWithPrefix()
+    {
+        System.setProperty(TEST_PROP, "test123");
+        final SnapshotBootstrapConfiguration bootstrap = new SnapshotBootstrapConfiguration();
+        Assert.assertEquals("test123", bootstrap.getConfigurationWithPrefix("paas.TEST_").get(TEST_PROP));
+    }
+
+    private static Duration getDuration(final String value)
+        throws ConfigurationException
+    {
+        System.setProperty(TEST_PROP, value);
+        return new SnapshotBootstrapConfiguration().getConfigurationDuration(TEST_PROP);
+    }
+
+    private static long getByteSize(final String value)
+        throws ConfigurationException
+    {
+        System.setProperty(TEST_PROP, value);
+        return new SnapshotBootstrapConfiguration().getConfigurationByteSize(TEST_PROP);
+    }
+}
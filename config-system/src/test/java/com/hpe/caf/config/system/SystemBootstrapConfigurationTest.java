@@ -23,6 +23,8 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.Map;
+
 public class SystemBootstrapConfigurationTest
 {
     private SystemBootstrapConfiguration sysbsc = new SystemBootstrapConfiguration();
@@ -101,6 +103,15 @@ public class SystemBootstrapConfigurationTest
         Assert.assertTrue(sysbsc.getConfigurationBoolean(TEST_PROP));
     }
 
+    @Test
+    public void getConfigurationWithPrefix()
+    {
+        System.setProperty(TEST_PROP, "test123");
+        final Map<String, String> configuration = sysbsc.getConfigurationWithPrefix("paas.TEST_");
+        Assert.assertEquals("test123", configuration.get(TEST_PROP));
+        Assert.assertTrue(configuration.keySet().stream().allMatch(key -> key.startsWith("paas.TEST_")));
+    }
+
     @Test
     public void getServicePath()
         throws ConfigurationException
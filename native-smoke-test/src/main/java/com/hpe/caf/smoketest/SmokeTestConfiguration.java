@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.smoketest;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+public class SmokeTestConfiguration
+{
+    @NotNull
+    private String name;
+    @Min(1)
+    private int workerThreads;
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(final String name)
+    {
+        this.name = name;
+    }
+
+    public int getWorkerThreads()
+    {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(final int workerThreads)
+    {
+        this.workerThreads = workerThreads;
+    }
+}
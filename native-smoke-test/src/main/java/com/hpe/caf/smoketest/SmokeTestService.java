@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.smoketest;
+
+import com.hpe.caf.api.BootstrapConfiguration;
+import com.hpe.caf.api.Cipher;
+import com.hpe.caf.api.CipherProvider;
+import com.hpe.caf.api.Codec;
+import com.hpe.caf.api.ConfigurationSourceProvider;
+import com.hpe.caf.api.ManagedConfigurationSource;
+import com.hpe.caf.config.system.SystemBootstrapConfiguration;
+import com.hpe.caf.naming.ServicePath;
+import com.hpe.caf.util.ModuleLoader;
+
+/**
+ * A minimal service that performs the same bootstrap as a typical CAF service: it discovers its cipher, codec and configuration source
+ * through the ModuleLoader, and reads and validates a configuration class. It is used to compare the startup time and memory use of
+ * a native image with the JVM.
+ *
+ * Usage: CAF_APPNAME=caf/smoketest CAF_CONFIG_PATH=config java com.hpe.caf.smoketest.SmokeTestService
+ */
+public final class SmokeTestService
+{
+    private SmokeTestService()
+    {
+    }
+
+    public static void main(final String[] args)
+        throws Exception
+    {
+        final BootstrapConfiguration bootstrap = new SystemBootstrapConfiguration();
+        final ServicePath servicePath = bootstrap.getServicePath();
+        final Cipher cipher = ModuleLoader.getService(CipherProvider.class).getCipher(bootstrap);
+        final Codec codec = ModuleLoader.getService(Codec.class);
+        final ManagedConfigurationSource configurationSource = ModuleLoader.getService(ConfigurationSourceProvider.class)
+            .getConfigurationSource(bootstrap, cipher, servicePath, codec);
+        try {
+            final SmokeTestConfiguration configuration = configurationSource.getConfiguration(SmokeTestConfiguration.class);
+            final byte[] serialised = codec.serialise(configuration);
+            final SmokeTestConfiguration roundTripped = codec.deserialise(serialised, SmokeTestConfiguration.class);
+            System.out.println("Started " + roundTripped.getName() + " with " + roundTripped.getWorkerThreads() + " worker threads");
+        } finally {
+            configurationSource.shutdown();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+#!/bin/bash
+#
+# Copyright 2015-2023 Open Text.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Measures the startup time and peak resident set size of the smoke test service, running it first on the JVM and then as a native
+# image, and fails if either run fails.
+#
+# Usage: measure-startup.sh <target directory> <main class> [runs]
+#
+# The target directory must contain the packaged jar, runtime-classpath.txt and the native image. CAF_APPNAME and CAF_CONFIG_PATH
+# must be set for the service.
+
+set -euo pipefail
+
+TARGET_DIR=$1
+MAIN_CLASS=$2
+RUNS=${3:-5}
+NATIVE_IMAGE=$TARGET_DIR/native-smoke-test
+CLASSPATH=$(ls "$TARGET_DIR"/native-smoke-test-*.jar | head -n 1):$(cat "$TARGET_DIR/runtime-classpath.txt")
+
+if [ ! -x /usr/bin/time ]; then
+    echo "/usr/bin/time is required to measure the peak resident set size" >&2
+    exit 1
+fi
+
+# Runs a command the requested number of times, and prints the mean elapsed time in milliseconds and the mean peak RSS in megabytes
+measure()
+{
+    local label=$1
+    shift
+    local stats
+    stats=$(mktemp)
+    for ((run = 1; run <= RUNS; run++)); do
+        /usr/bin/time -f "%e %M" -a -o "$stats" "$@" > /dev/null
+    done
+    awk -v label="$label" '{ elapsed += $1; rss += $2 } END {
+        printf "%-8s %10.0f ms %10.1f MB\n", label, elapsed * 1000 / NR, rss / NR / 1024
+    }' "$stats"
+    rm -f "$stats"
+}
+
+echo "Smoke test output:"
+java -cp "$CLASSPATH" "$MAIN_CLASS"
+"$NATIVE_IMAGE"
+
+echo
+echo "Mean of $RUNS runs:"
+printf "%-8s %13s %13s\n" "Mode" "Startup" "Peak RSS"
+measure "JVM" java -cp "$CLASSPATH" "$MAIN_CLASS"
+measure "Native" "$NATIVE_IMAGE"
@@ -19,17 +19,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.stream.Collectors;
 
 /**
  * Utility class that provides methods for finding and returning components at runtime using the Java ServiceLoader.
+ * <p>
+ * The advertised implementations of each interface are indexed the first time the interface is looked up using the thread context
+ * class loader, and are only instantiated when they are returned. If the services visible through a class loader change,
+ * {@link #invalidate(ClassLoader)} should be called. The index does not prevent a class loader from being garbage collected.
  */
 public final class ModuleLoader
 {
     private static final Logger LOG = LoggerFactory.getLogger(ModuleLoader.class);
+    private static final ServiceRegistry registry = new ServiceRegistry();
 
     private ModuleLoader()
     {
@@ -93,14 +98,14 @@ public final class ModuleLoader
     {
         Objects.requireNonNull(intf);
         final T ret;
-        List<T> implementations = getServices(intf);
-        if (implementations.isEmpty()) {
+        final List<ServiceLoader.Provider<T>> providers = registry.getProviders(intf);
+        if (providers.isEmpty()) {
             return defaultObj;
         } else {
-            ret = implementations.get(0);
+            ret = providers.get(0).get();
         }
 
-        if (implementations.size() > 1) {
+        if (providers.size() > 1) {
             LOG.warn("There is more than one implementation of {} available on the classpath, taking the first available", intf);
         }
         LOG.info("Detected component implementation {}", ret.getClass().getSimpleName());
@@ -116,11 +121,37 @@ public final class ModuleLoader
      */
     public static <T> List<T> getServices(final Class<T> intf)
     {
-        Objects.requireNonNull(intf);
-        List<T> ret = new LinkedList<>();
-        for (final T t : ServiceLoader.load(intf)) {
-            ret.add(t);
-        }
-        return ret;
+        return registry.getProviders(intf).stream().map(ServiceLoader.Provider::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the providers of the advertised service implementations of the specified interface, without instantiating them.
+     *
+     * @param intf the interface to find advertised service implementations of
+     * @param <T> the interface
+     * @return an unmodifiable list of the providers of implementations of the specified interface
+     */
+    static <T> List<ServiceLoader.Provider<T>> getProviders(final Class<T> intf)
+    {
+        return registry.getProviders(intf);
+    }
+
+    /**
+     * Discard the indexed service implementations for a class loader, so that they are looked up again when they are next requested
+     * using that class loader.
+     *
+     * @param classLoader the class loader to discard the indexed service implementations of
+     */
+    public static void invalidate(final ClassLoader classLoader)
+    {
+        registry.invalidate(classLoader);
+    }
+
+    /**
+     * Discard the indexed service implementations for every class loader.
+     */
+    public static void invalidateAll()
+    {
+        registry.invalidateAll();
     }
 }
@@ -15,25 +15,34 @@
  */
 package com.hpe.caf.util;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
 
 /**
- * Allows retrieval of a module based on the Interface that it implements and its simple name.
+ * Allows retrieval of a module based on the Interface that it implements and its simple or fully qualified class name.
+ * <p>
+ * The implementations of an interface are indexed the first time a module of that interface is requested, but each module is only
+ * instantiated when it is first requested, and the same instance is returned for later requests. The index is held in an immutable
+ * map which is replaced whenever another interface is indexed, so retrieving a module that has already been created does not lock.
  */
 public final class ModuleProvider
 {
     private static final ModuleProvider theInstance = new ModuleProvider();
+    private static final Logger LOG = LoggerFactory.getLogger(ModuleProvider.class);
 
-    private final ConcurrentMap<Class, Map<String, Object>> loadedModules;
+    private volatile Map<Class<?>, Map<String, Module>> loadedModules;
 
     private ModuleProvider()
     {
-        loadedModules = new ConcurrentHashMap<>();
+        loadedModules = Collections.emptyMap();
     }
 
     public static ModuleProvider getInstance()
@@ -42,35 +51,112 @@ public final class ModuleProvider
     }
 
     /**
-     * Retrieves a module by its simple name, that implements a particular type T
+     * Retrieves a module by its simple or fully qualified class name, that implements a particular type T
      *
      * @param interfaceImplemented The interface that 'moduleType' implements and that the result should be returned as.
      * @param moduleType Represents particular instance of a factory type object e.g. 'ExampleWorkerBuilder'
      * @return An instance of moduleType as the type T passed in.
      * @throws NullPointerException If the module cannot be retrieved with the specified moduleType.
+     * @throws IllegalStateException If moduleType is a simple name that is shared by more than one implementation.
      */
     public <T> T getModule(final Class<T> interfaceImplemented, final String moduleType) throws NullPointerException
     {
-        //check for this type in the map
-        Map<String, Object> computedValue = loadedModules.computeIfAbsent(interfaceImplemented, ModuleProvider::loadModules);
-        Object moduleInstance = computedValue.get(moduleType);
+        Map<String, Module> modules = loadedModules.get(interfaceImplemented);
+        if (modules == null) {
+            modules = indexModules(interfaceImplemented);
+        }
+        final Module module = modules.get(moduleType);
         Objects.requireNonNull(
-            moduleInstance, "Unable to find implementation of " + interfaceImplemented.getName() + " with moduleType " + moduleType);
-        return (T) moduleInstance;
+            module, "Unable to find implementation of " + interfaceImplemented.getName() + " with moduleType " + moduleType);
+        return interfaceImplemented.cast(module.getInstance());
     }
 
-    private static <T> Map<String, Object> loadModules(final Class<T> interfaceImplemented)
+    private synchronized Map<String, Module> indexModules(final Class<?> interfaceImplemented)
     {
-        List<T> modulesList = ModuleLoader.getServices(interfaceImplemented);
-        Map<String, Object> modulesMap = new HashMap<>();
-        for (final T module : modulesList) {
-            modulesMap.put(getShortNameForType(module), module);
+        final Map<String, Module> existing = loadedModules.get(interfaceImplemented);
+        if (existing != null) {
+            return existing;
         }
-        return modulesMap;
+        final Map<String, Module> modules = loadModules(interfaceImplemented);
+        // Loading the modules may have indexed other interfaces, so the map is copied afterwards
+        final Map<Class<?>, Map<String, Module>> updated = new HashMap<>(loadedModules);
+        updated.put(interfaceImplemented, modules);
+        loadedModules = Collections.unmodifiableMap(updated);
+        return modules;
     }
 
-    private static String getShortNameForType(final Object type)
+    private static <T> Map<String, Module> loadModules(final Class<T> interfaceImplemented)
     {
-        return type.getClass().getSimpleName();
+        final List<ServiceLoader.Provider<T>> providers = ModuleLoader.getProviders(interfaceImplemented);
+        final Map<String, Module> modulesMap = new HashMap<>();
+        final Map<String, List<String>> typesByShortName = providers.stream()
+            .map(provider -> provider.type().getName())
+            .distinct()
+            .collect(Collectors.groupingBy(ModuleProvider::getShortNameForType));
+        for (final ServiceLoader.Provider<T> provider : providers) {
+            final Class<?> type = provider.type();
+            if (modulesMap.containsKey(type.getName())) {
+                continue;
+            }
+            final Module module = new Module(provider);
+            modulesMap.put(type.getName(), module);
+            final List<String> sameShortName = typesByShortName.get(getShortNameForType(type.getName()));
+            if (sameShortName.size() == 1) {
+                modulesMap.put(type.getSimpleName(), module);
+            }
+        }
+        typesByShortName.forEach((shortName, types) -> {
+            if (types.size() > 1) {
+                LOG.warn("There is more than one implementation of {} named {}, they must be requested by their full names: {}",
+                         interfaceImplemented.getName(), shortName, types);
+                modulesMap.put(shortName, new Module(shortName, types));
+            }
+        });
+        return Collections.unmodifiableMap(modulesMap);
+    }
+
+    private static String getShortNameForType(final String typeName)
+    {
+        return typeName.substring(Math.max(typeName.lastIndexOf('.'), typeName.lastIndexOf('$')) + 1);
+    }
+
+    /**
+     * A module that is instantiated when it is first requested, or a simple name that is ambiguous.
+     */
+    private static final class Module
+    {
+        private final ServiceLoader.Provider<?> provider;
+        private final String ambiguityMessage;
+        private volatile Object instance;
+
+        public Module(final ServiceLoader.Provider<?> provider)
+        {
+            this.provider = provider;
+            this.ambiguityMessage = null;
+        }
+
+        public Module(final String shortName, final List<String> types)
+        {
+            this.provider = null;
+            this.ambiguityMessage = "More than one implementation is named " + shortName + ", request one of " + types;
+        }
+
+        public Object getInstance()
+        {
+            if (provider == null) {
+                throw new IllegalStateException(ambiguityMessage);
+            }
+            Object result = instance;
+            if (result == null) {
+                synchronized (this) {
+                    result = instance;
+                    if (result == null) {
+                        result = provider.get();
+                        instance = result;
+                    }
+                }
+            }
+            return result;
+        }
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and writes the service index generated by {@link ServiceIndexGenerator}. Each line of the index holds an interface name,
+ * an equals sign, and a comma-separated list of the names of the implementations advertised for it, in classpath order.
+ */
+final class ServiceIndex
+{
+    /**
+     * The name of the resource that the service index is read from.
+     */
+    public static final String RESOURCE_NAME = "META-INF/caf-service-index.properties";
+
+    private ServiceIndex()
+    {
+    }
+
+    /**
+     * Read a service index.
+     *
+     * @param stream the serialised index
+     * @return an unmodifiable map of interface names to the names of their implementations
+     * @throws IOException if the index cannot be read
+     */
+    public static Map<String, List<String>> read(final InputStream stream)
+        throws IOException
+    {
+        final Map<String, List<String>> index = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String entry = line.trim();
+                final int separator = entry.indexOf('=');
+                if (entry.isEmpty() || entry.startsWith("#") || separator <= 0) {
+                    continue;
+                }
+                final String implementations = entry.substring(separator + 1).trim();
+                index.put(entry.substring(0, separator).trim(), implementations.isEmpty()
+                          ? Collections.emptyList()
+                          : Collections.unmodifiableList(Arrays.asList(implementations.split("\\s*,\\s*"))));
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Write a service index. The interfaces are written in name order so that the output is reproducible.
+     *
+     * @param index a map of interface names to the names of their implementations
+     * @param file the file to write the index to
+     * @throws IOException if the index cannot be written
+     */
+    public static void write(final Map<String, List<String>> index, final Path file)
+        throws IOException
+    {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# Generated by " + ServiceIndexGenerator.class.getName());
+            writer.newLine();
+            for (final Map.Entry<String, List<String>> entry : new TreeMap<>(index).entrySet()) {
+                writer.write(entry.getKey() + "=" + String.join(",", entry.getValue()));
+                writer.newLine();
+            }
+        }
+    }
+}
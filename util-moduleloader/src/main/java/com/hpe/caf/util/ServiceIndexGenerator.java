@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Generates a single index of the service implementations advertised by every entry on a classpath, so that {@link ModuleLoader}
+ * does not need to scan the classpath for them at runtime.
+ * <p>
+ * It is intended to be run while packaging an application, with the application's runtime classpath, and writes the index to the
+ * file named by its first argument, which should be {@value ServiceIndex#RESOURCE_NAME} in the application's output directory. Any
+ * further arguments are interface name prefixes, such as "com.hpe.caf.", which restrict the interfaces that are indexed.
+ */
+public final class ServiceIndexGenerator
+{
+    private static final String SERVICES_DIRECTORY = "META-INF/services/";
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceIndexGenerator.class);
+
+    private ServiceIndexGenerator()
+    {
+    }
+
+    public static void main(final String[] args)
+        throws IOException
+    {
+        if (args.length < 1) {
+            System.err.println("Usage: ServiceIndexGenerator <output file> [interface prefix...]");
+            System.exit(1);
+        }
+        final List<Path> classpath = new ArrayList<>();
+        for (final String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                classpath.add(Paths.get(entry));
+            }
+        }
+        final Map<String, List<String>> index = generate(classpath, Arrays.asList(args).subList(1, args.length));
+        ServiceIndex.write(index, Paths.get(args[0]));
+        LOG.info("Indexed the implementations of {} interfaces in {}", index.size(), args[0]);
+    }
+
+    /**
+     * Index the service implementations advertised by the entries on a classpath. As with the ServiceLoader, implementations are
+     * listed in classpath order, and an implementation advertised more than once is only listed the first time.
+     *
+     * @param classpath the directories and jar files to index
+     * @param prefixes the prefixes of the interface names to index, or an empty list to index every interface
+     * @return a map of interface names to the names of their implementations
+     * @throws IOException if a classpath entry cannot be read
+     */
+    public static Map<String, List<String>> generate(final List<Path> classpath, final List<String> prefixes)
+        throws IOException
+    {
+        final Map<String, Set<String>> implementations = new LinkedHashMap<>();
+        for (final Path entry : classpath) {
+            if (Files.isDirectory(entry)) {
+                indexDirectory(entry.resolve(SERVICES_DIRECTORY), prefixes, implementations);
+            } else if (Files.isRegularFile(entry)) {
+                indexJar(entry, prefixes, implementations);
+            }
+        }
+        final Map<String, List<String>> index = new LinkedHashMap<>();
+        implementations.forEach((intf, names) -> index.put(intf, new ArrayList<>(names)));
+        return index;
+    }
+
+    private static void indexDirectory(
+        final Path directory,
+        final List<String> prefixes,
+        final Map<String, Set<String>> implementations
+    ) throws IOException
+    {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (final Path file : files) {
+                final String intf = file.getFileName().toString();
+                if (Files.isRegularFile(file) && isIndexed(intf, prefixes)) {
+                    try (InputStream stream = Files.newInputStream(file)) {
+                        readProviders(stream, implementations.computeIfAbsent(intf, name -> new LinkedHashSet<>()));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void indexJar(final Path jar, final List<String> prefixes, final Map<String, Set<String>> implementations)
+        throws IOException
+    {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (entry.isDirectory() || !name.startsWith(SERVICES_DIRECTORY)) {
+                    continue;
+                }
+                final String intf = name.substring(SERVICES_DIRECTORY.length());
+                if (!intf.contains("/") && isIndexed(intf, prefixes)) {
+                    try (InputStream stream = jarFile.getInputStream(entry)) {
+                        readProviders(stream, implementations.computeIfAbsent(intf, key -> new LinkedHashSet<>()));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isIndexed(final String intf, final List<String> prefixes)
+    {
+        return prefixes.isEmpty() || prefixes.stream().anyMatch(intf::startsWith);
+    }
+
+    /**
+     * Read a provider-configuration file, which lists one implementation per line and may contain comments starting with "#".
+     */
+    private static void readProviders(final InputStream stream, final Set<String> providers)
+        throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final int comment = line.indexOf('#');
+            final String provider = (comment == -1 ? line : line.substring(0, comment)).trim();
+            if (!provider.isEmpty()) {
+                providers.add(provider);
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An index of the service providers advertised for each interface, for each class loader that has been used to look them up.
+ * <p>
+ * If the class loader has a service index generated by {@link ServiceIndexGenerator}, the providers of the interfaces it lists are
+ * taken from it. Otherwise the META-INF/services resources for an interface are scanned the first time it is looked up with the class
+ * loader. Either way the providers are only instantiated when they are requested. The index for a class loader must be invalidated
+ * if the services that are visible through it change.
+ * <p>
+ * The class loaders are only weakly referenced, as are the provider classes, which may have been loaded by them, so the index does
+ * not prevent a class loader that has been discarded from being garbage collected.
+ */
+final class ServiceRegistry
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceRegistry.class);
+
+    /**
+     * The index for each class loader. Access is synchronized on the map.
+     */
+    private final Map<ClassLoader, LoaderIndex> indexes;
+
+    public ServiceRegistry()
+    {
+        this.indexes = new WeakHashMap<>();
+    }
+
+    /**
+     * Return the providers advertised for an interface through the thread context class loader, in the order that the
+     * ServiceLoader would find them.
+     *
+     * @param intf the interface to find the advertised providers of
+     * @param <T> the interface
+     * @return an unmodifiable list of the providers, which have not necessarily been instantiated
+     */
+    public <T> List<ServiceLoader.Provider<T>> getProviders(final Class<T> intf)
+    {
+        Objects.requireNonNull(intf);
+        final ClassLoader classLoader = getContextClassLoader();
+        final LoaderIndex index = getIndex(classLoader);
+        final List<WeakReference<Class<?>>> types = index.types.get(intf.getName());
+        if (types != null) {
+            final List<ServiceLoader.Provider<T>> intfProviders = getIndexedProviders(intf, types);
+            if (intfProviders != null) {
+                return intfProviders;
+            }
+        }
+        // Scanning may load further services, so it is not done while holding a lock
+        final List<Class<? extends T>> intfTypes = index.findProviderTypes(intf, classLoader);
+        final List<WeakReference<Class<?>>> typeReferences = new ArrayList<>(intfTypes.size());
+        for (final Class<? extends T> type : intfTypes) {
+            typeReferences.add(new WeakReference<>(type));
+        }
+        index.types.put(intf.getName(), Collections.unmodifiableList(typeReferences));
+        return toProviders(intf, intfTypes);
+    }
+
+    /**
+     * Discard the index for a class loader, so that the services visible through it are scanned again when they are next requested.
+     *
+     * @param classLoader the class loader to discard the index of
+     */
+    public void invalidate(final ClassLoader classLoader)
+    {
+        synchronized (indexes) {
+            indexes.remove(classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader);
+        }
+    }
+
+    /**
+     * Discard the index for every class loader.
+     */
+    public void invalidateAll()
+    {
+        synchronized (indexes) {
+            indexes.clear();
+        }
+    }
+
+    private LoaderIndex getIndex(final ClassLoader classLoader)
+    {
+        synchronized (indexes) {
+            final LoaderIndex index = indexes.get(classLoader);
+            if (index != null) {
+                return index;
+            }
+        }
+        // Reading the service index is not done while holding the lock
+        final LoaderIndex index = new LoaderIndex(readServiceIndex(classLoader));
+        synchronized (indexes) {
+            final LoaderIndex existing = indexes.putIfAbsent(classLoader, index);
+            return existing == null ? index : existing;
+        }
+    }
+
+    /**
+     * Create the providers of the indexed implementation classes of an interface.
+     *
+     * @return the providers, or null if the interface has been reloaded or the implementation classes have been unloaded since they
+     * were indexed, in which case they must be looked up again
+     */
+    private static <T> List<ServiceLoader.Provider<T>> getIndexedProviders(final Class<T> intf,
+                                                                           final List<WeakReference<Class<?>>> types)
+    {
+        final List<ServiceLoader.Provider<T>> intfProviders = new ArrayList<>(types.size());
+        for (final WeakReference<Class<?>> reference : types) {
+            final Class<?> type = reference.get();
+            if (type == null || !intf.isAssignableFrom(type)) {
+                return null;
+            }
+            intfProviders.add(new IndexedProvider<>(intf, type.asSubclass(intf)));
+        }
+        return Collections.unmodifiableList(intfProviders);
+    }
+
+    private static <T> List<ServiceLoader.Provider<T>> toProviders(final Class<T> intf, final List<Class<? extends T>> types)
+    {
+        final List<ServiceLoader.Provider<T>> intfProviders = new ArrayList<>(types.size());
+        for (final Class<? extends T> type : types) {
+            intfProviders.add(new IndexedProvider<>(intf, type));
+        }
+        return Collections.unmodifiableList(intfProviders);
+    }
+
+    private static Map<String, List<String>> readServiceIndex(final ClassLoader classLoader)
+    {
+        try (InputStream stream = classLoader.getResourceAsStream(ServiceIndex.RESOURCE_NAME)) {
+            if (stream == null) {
+                return Collections.emptyMap();
+            }
+            final Map<String, List<String>> serviceIndex = ServiceIndex.read(stream);
+            LOG.debug("Read the service index for {} interfaces", serviceIndex.size());
+            return serviceIndex;
+        } catch (final IOException e) {
+            LOG.warn("Unable to read the service index, the classpath will be scanned instead", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private static ClassLoader getContextClassLoader()
+    {
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader;
+    }
+
+    /**
+     * The service index and the implementation classes found for each interface, keyed by interface name, for a class loader. It
+     * does not reference the class loader, which would prevent the entry for it in the weakly keyed map from being removed.
+     */
+    private static final class LoaderIndex
+    {
+        private final Map<String, List<String>> serviceIndex;
+        private final ConcurrentMap<String, List<WeakReference<Class<?>>>> types;
+
+        public LoaderIndex(final Map<String, List<String>> serviceIndex)
+        {
+            this.serviceIndex = serviceIndex;
+            this.types = new ConcurrentHashMap<>();
+        }
+
+        public <T> List<Class<? extends T>> findProviderTypes(final Class<T> intf, final ClassLoader classLoader)
+        {
+            final List<String> indexedNames = serviceIndex.get(intf.getName());
+            final List<Class<? extends T>> intfTypes = new ArrayList<>();
+            if (indexedNames != null) {
+                for (final String name : indexedNames) {
+                    intfTypes.add(loadProviderClass(intf, name, classLoader));
+                }
+                LOG.debug("Found {} implementations of {} in the service index", intfTypes.size(), intf.getName());
+            } else {
+                ServiceLoader.load(intf, classLoader).stream().forEach(provider -> intfTypes.add(provider.type()));
+                LOG.debug("Indexed {} implementations of {}", intfTypes.size(), intf.getName());
+            }
+            return intfTypes;
+        }
+
+        private static <T> Class<? extends T> loadProviderClass(final Class<T> intf, final String name, final ClassLoader classLoader)
+        {
+            final Class<?> type;
+            try {
+                type = Class.forName(name, false, classLoader);
+            } catch (final ClassNotFoundException e) {
+                throw new ServiceConfigurationError(intf.getName() + ": Provider " + name + " not found", e);
+            }
+            if (!intf.isAssignableFrom(type)) {
+                throw new ServiceConfigurationError(intf.getName() + ": Provider " + name + " not a subtype");
+            }
+            return type.asSubclass(intf);
+        }
+    }
+
+    private static final class IndexedProvider<T> implements ServiceLoader.Provider<T>
+    {
+        private final Class<T> intf;
+        private final Class<? extends T> type;
+
+        public IndexedProvider(final Class<T> intf, final Class<? extends T> type)
+        {
+            this.intf = intf;
+            this.type = type;
+        }
+
+        @Override
+        public Class<? extends T> type()
+        {
+            return type;
+        }
+
+        @Override
+        public T get()
+        {
+            try {
+                return type.getConstructor().newInstance();
+            } catch (final InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+                throw new ServiceConfigurationError(intf.getName() + ": Provider " + type.getName() + " could not be instantiated", e);
+            }
+        }
+    }
+}
@@ -18,7 +18,19 @@ package com.hpe.caf.util;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
 
 public class ModuleLoaderTest
 {
@@ -63,4 +75,104 @@ public class ModuleLoaderTest
         MissingTestInterface ret = ModuleLoader.getService(MissingTestInterface.class, MissingTestImpl.class);
         Assert.assertEquals(MissingTestImpl.class, ret.getClass());
     }
+
+    /**
+     * Ensure that each request for the services returns new instances.
+     */
+    @Test
+    public void testMultipleInstances()
+        throws Exception
+    {
+        List<MultipleTestInterface> first = ModuleLoader.getServices(MultipleTestInterface.class);
+        List<MultipleTestInterface> second = ModuleLoader.getServices(MultipleTestInterface.class);
+        Assert.assertEquals(first.get(0).getClass(), second.get(0).getClass());
+        Assert.assertNotSame(first.get(0), second.get(0));
+    }
+
+    /**
+     * Ensure that services are looked up using the thread context class loader, and that they are indexed until the index for the
+     * class loader is invalidated.
+     */
+    @Test
+    public void testInvalidate()
+        throws Exception
+    {
+        final Path directory = Files.createTempDirectory("services");
+        final Thread thread = Thread.currentThread();
+        final ClassLoader originalClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, originalClassLoader)) {
+            thread.setContextClassLoader(classLoader);
+            Assert.assertNull(ModuleLoader.getServiceOrElse(MissingTestInterface.class, null));
+            advertise(directory, MissingTestInterface.class, MissingTestImpl.class);
+            Assert.assertNull(ModuleLoader.getServiceOrElse(MissingTestInterface.class, null));
+            ModuleLoader.invalidate(classLoader);
+            Assert.assertEquals(MissingTestImpl.class, ModuleLoader.getService(MissingTestInterface.class).getClass());
+            thread.setContextClassLoader(originalClassLoader);
+            Assert.assertNull(ModuleLoader.getServiceOrElse(MissingTestInterface.class, null));
+        } finally {
+            thread.setContextClassLoader(originalClassLoader);
+            ModuleLoader.invalidateAll();
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ensure that a class loader which has been used to look up services, and which defined the implementation that was found, can
+     * be garbage collected once it is discarded.
+     */
+    @Test
+    public void testDiscardedClassLoaderCollected()
+        throws Exception
+    {
+        final Path directory = Files.createTempDirectory("services");
+        try {
+            final Path classFile = Files.createDirectories(directory.resolve("com").resolve("hpe").resolve("caf").resolve("util"))
+                .resolve("CollectableTestImpl.class");
+            try (InputStream stream = ModuleLoaderTest.class.getResourceAsStream("CollectableTestImpl.class")) {
+                Files.copy(stream, classFile);
+            }
+            advertise(directory, Runnable.class, CollectableTestImpl.class);
+            final WeakReference<ClassLoader> classLoader = lookUpWithDiscardedClassLoader(directory);
+            for (int i = 0; i < 50 && classLoader.get() != null; i++) {
+                System.gc();
+                Thread.sleep(100);
+            }
+            Assert.assertNull(classLoader.get(), "The class loader was not garbage collected");
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static WeakReference<ClassLoader> lookUpWithDiscardedClassLoader(final Path directory)
+        throws IOException
+    {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader originalClassLoader = thread.getContextClassLoader();
+        // The platform class loader is the parent, so the implementation is defined by the discarded class loader
+        try (URLClassLoader classLoader
+            = new URLClassLoader(new URL[]{directory.toUri().toURL()}, ClassLoader.getPlatformClassLoader())) {
+            thread.setContextClassLoader(classLoader);
+            final List<Runnable> services = ModuleLoader.getServices(Runnable.class);
+            Assert.assertEquals(services.size(), 1);
+            Assert.assertSame(services.get(0).getClass().getClassLoader(), classLoader);
+            return new WeakReference<>(classLoader);
+        } finally {
+            thread.setContextClassLoader(originalClassLoader);
+        }
+    }
+
+    private static void advertise(final Path directory, final Class<?> intf, final Class<?> implementation)
+        throws IOException
+    {
+        final Path services = Files.createDirectories(directory.resolve("META-INF").resolve("services"));
+        Files.write(services.resolve(intf.getName()), Collections.singletonList(implementation.getName()), StandardCharsets.UTF_8);
+    }
 }
@@ -63,6 +63,39 @@ public class ModuleProviderTest
         }
     }
 
+    @Test
+    public void getModuleByFullNameTest()
+    {
+        ModuleProvider provider = ModuleProvider.getInstance();
+        MultipleTestInterface byFullName = provider.getModule(MultipleTestInterface.class, FirstMultipleTestImpl.class.getName());
+        MultipleTestInterface byShortName = provider.getModule(MultipleTestInterface.class, FirstMultipleTestImpl.class.getSimpleName());
+        Assert.assertSame(byFullName, byShortName);
+    }
+
+    /**
+     * Only the requested module should be instantiated, and a short name shared by more than one implementation should be rejected
+     * rather than silently resolving to one of them.
+     */
+    @Test
+    public void getCollidingModuleTest()
+    {
+        ModuleProvider provider = ModuleProvider.getInstance();
+        CollidingTestInterface module = provider.getModule(CollidingTestInterface.class, CollidingTestImpl.class.getName());
+        Assert.assertEquals(CollidingTestImpl.class.getName(), module.getName());
+        try {
+            provider.getModule(CollidingTestInterface.class, CollidingTestImpl.class.getSimpleName());
+            Assert.fail("Expected the ambiguous module name to be rejected");
+        } catch (final IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains(com.hpe.caf.util.other.CollidingTestImpl.class.getName()));
+        }
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void getMissingModuleTest()
+    {
+        ModuleProvider.getInstance().getModule(MultipleTestInterface.class, "ThirdMultipleTestImpl");
+    }
+
     private void RunModulesTesting()
     {
         ModuleProvider provider = ModuleProvider.getInstance();
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+public class ServiceIndexGeneratorTest
+{
+    private Path directory;
+
+    @BeforeMethod
+    public void setUp()
+        throws IOException
+    {
+        directory = Files.createTempDirectory("serviceindex");
+    }
+
+    @AfterMethod
+    public void tearDown()
+        throws IOException
+    {
+        ModuleLoader.invalidateAll();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Ensure that the implementations advertised by directories and jars are merged in classpath order.
+     */
+    @Test
+    public void testGenerate()
+        throws Exception
+    {
+        final Path classes = directory.resolve("classes");
+        final Path services = Files.createDirectories(classes.resolve("META-INF").resolve("services"));
+        Files.write(services.resolve(MultipleTestInterface.class.getName()),
+                    Arrays.asList("# comment", SecondMultipleTestImpl.class.getName()), StandardCharsets.UTF_8);
+        final Path jar = directory.resolve("services.jar");
+        try (JarOutputStream stream = new JarOutputStream(Files.newOutputStream(jar))) {
+            writeJarEntry(stream, "META-INF/services/" + MultipleTestInterface.class.getName(),
+                          FirstMultipleTestImpl.class.getName() + "\n" + SecondMultipleTestImpl.class.getName() + "\n");
+            writeJarEntry(stream, "META-INF/services/java.lang.Runnable", "example.Task\n");
+        }
+
+        final Map<String, List<String>> index
+            = ServiceIndexGenerator.generate(Arrays.asList(classes, jar), Collections.singletonList("com.hpe.caf."));
+        Assert.assertEquals(index.keySet(), Collections.singleton(MultipleTestInterface.class.getName()));
+        Assert.assertEquals(index.get(MultipleTestInterface.class.getName()),
+                            Arrays.asList(SecondMultipleTestImpl.class.getName(), FirstMultipleTestImpl.class.getName()));
+
+        final Path indexFile = directory.resolve(ServiceIndex.RESOURCE_NAME);
+        ServiceIndex.write(index, indexFile);
+        try (InputStream stream = Files.newInputStream(indexFile)) {
+            Assert.assertEquals(ServiceIndex.read(stream), index);
+        }
+    }
+
+    /**
+     * Ensure that ModuleLoader takes the implementations of the interfaces in the service index from the index.
+     */
+    @Test
+    public void testModuleLoaderUsesIndex()
+        throws Exception
+    {
+        ServiceIndex.write(Collections.singletonMap(MissingTestInterface.class.getName(),
+                                                    Collections.singletonList(MissingTestImpl.class.getName())),
+                           directory.resolve(ServiceIndex.RESOURCE_NAME));
+        final Thread thread = Thread.currentThread();
+        final ClassLoader originalClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, originalClassLoader)) {
+            thread.setContextClassLoader(classLoader);
+            Assert.assertEquals(MissingTestImpl.class, ModuleLoader.getService(MissingTestInterface.class).getClass());
+            Assert.assertEquals(2, ModuleLoader.getServices(MultipleTestInterface.class).size());
+        } finally {
+            thread.setContextClassLoader(originalClassLoader);
+        }
+    }
+
+    private static void writeJarEntry(final JarOutputStream stream, final String name, final String content)
+        throws IOException
+    {
+        stream.putNextEntry(new JarEntry(name));
+        stream.write(content.getBytes(StandardCharsets.UTF_8));
+        stream.closeEntry();
+    }
+}
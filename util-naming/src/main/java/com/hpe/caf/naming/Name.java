@@ -15,19 +15,30 @@
  */
 package com.hpe.caf.naming;
 
-import java.util.Arrays;
+import java.lang.ref.WeakReference;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.regex.Pattern;
+import java.util.WeakHashMap;
 
 /**
  * A class that is similar to java.naming.Name, but is iterable. A Name is a tokenized character String, delimited by forward-slashes.
+ *
+ * The components of a Name are held in an array that is shared with all of its prefixes. The prefixes, along with their String
+ * representations and hash codes, are created when the Name is created, so that getPrefix does not allocate.
  */
 public class Name implements Iterable<String>
 {
-    private final List<String> components;
+    private static final char SEPARATOR = '/';
+    private static final Map<Name, WeakReference<Name>> INTERNED = new WeakHashMap<>();
+
+    private final String[] components;
+    private final int size;
     private final String strRepresentation;
+    private final int hash;
+    private final Name[] prefixes;
 
     /**
      * Create a new Name. Leading and trailing forward-slashes are allowed.
@@ -36,9 +47,7 @@ public class Name implements Iterable<String>
      */
     public Name(final String name)
     {
-        String fixedName = name.replaceAll("^/+|/+$", "");
-        components = Arrays.asList(fixedName.split(Pattern.quote("/")));
-        strRepresentation = String.join("/", components);
+        this(split(name));
     }
 
     /**
@@ -47,9 +56,37 @@ public class Name implements Iterable<String>
      * @param components the parts that will make up the Name, already tokenized into a List
      */
     public Name(final List<String> components)
+    {
+        this(components.toArray(new String[0]));
+    }
+
+    private Name(final String[] components)
+    {
+        this.components = components;
+        this.size = components.length;
+        this.prefixes = new Name[size + 1];
+        this.prefixes[size] = this;
+        final StringBuilder path = new StringBuilder();
+        int prefixHash = 1;
+        for (int i = 0; i < size; i++) {
+            prefixes[i] = new Name(components, i, path.toString(), prefixHash, prefixes);
+            if (i > 0) {
+                path.append(SEPARATOR);
+            }
+            path.append(components[i]);
+            prefixHash = 31 * prefixHash + Objects.hashCode(components[i]);
+        }
+        this.strRepresentation = path.toString();
+        this.hash = prefixHash;
+    }
+
+    private Name(final String[] components, final int size, final String strRepresentation, final int hash, final Name[] prefixes)
     {
         this.components = components;
-        strRepresentation = String.join("/", components);
+        this.size = size;
+        this.strRepresentation = strRepresentation;
+        this.hash = hash;
+        this.prefixes = prefixes;
     }
 
     /**
@@ -57,7 +94,7 @@ public class Name implements Iterable<String>
      */
     public int size()
     {
-        return components.size();
+        return size;
     }
 
     /**
@@ -69,25 +106,45 @@ public class Name implements Iterable<String>
      */
     public String getIndex(final int index)
     {
-        if (index < 0 || index >= components.size()) {
+        if (index < 0 || index >= size) {
             throw new IllegalArgumentException("Index out of bounds");
         }
-        return components.get(index);
+        return components[index];
     }
 
     /**
-     * Return a Name that consists of a subsection of the current Name.
+     * Return a Name that consists of a subsection of the current Name. The prefixes of a Name are created along with it, so the same
+     * instance is returned each time.
      *
      * @param upperIndex the upper index (exclusive) of components to build the Name from
-     * @return a new Name, that is a sub-set of the current Name
+     * @return a Name, that is a sub-set of the current Name
      * @throws IllegalArgumentException if you request an index that is no in the range of components of this Name
      */
     public Name getPrefix(final int upperIndex)
     {
-        if (upperIndex < 0 || upperIndex > components.size()) {
+        if (upperIndex < 0 || upperIndex > size) {
             throw new IllegalArgumentException("Index out of bounds");
         }
-        return new Name(components.subList(0, upperIndex));
+        return prefixes[upperIndex];
+    }
+
+    /**
+     * Return a canonical instance of this Name. Names that are equal return the same instance, so that they also share their
+     * prefixes. Canonical instances are only weakly held, and are discarded once they are no longer in use.
+     *
+     * @return the canonical instance of this Name
+     */
+    public Name intern()
+    {
+        synchronized (INTERNED) {
+            final WeakReference<Name> reference = INTERNED.get(this);
+            final Name interned = reference == null ? null : reference.get();
+            if (interned != null) {
+                return interned;
+            }
+            INTERNED.put(this, new WeakReference<>(this));
+            return this;
+        }
     }
 
     @Override
@@ -99,7 +156,7 @@ public class Name implements Iterable<String>
     @Override
     public Iterator<String> iterator()
     {
-        return components.iterator();
+        return new ComponentIterator();
     }
 
     @Override
@@ -111,13 +168,71 @@ public class Name implements Iterable<String>
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
-        Name strings = (Name) o;
-        return Objects.equals(components, strings.components);
+        final Name other = (Name) o;
+        if (size != other.size || hash != other.hash) {
+            return false;
+        }
+        if (components == other.components) {
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!Objects.equals(components[i], other.components[i])) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(components);
+        return hash;
+    }
+
+    private static String[] split(final String name)
+    {
+        int start = 0;
+        int end = name.length();
+        while (start < end && name.charAt(start) == SEPARATOR) {
+            start++;
+        }
+        while (end > start && name.charAt(end - 1) == SEPARATOR) {
+            end--;
+        }
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (name.charAt(i) == SEPARATOR) {
+                count++;
+            }
+        }
+        final String[] components = new String[count];
+        int componentStart = start;
+        for (int i = 0; i < count - 1; i++) {
+            final int separator = name.indexOf(SEPARATOR, componentStart);
+            components[i] = name.substring(componentStart, separator);
+            componentStart = separator + 1;
+        }
+        components[count - 1] = name.substring(componentStart, end);
+        return components;
+    }
+
+    private final class ComponentIterator implements Iterator<String>
+    {
+        private int index;
+
+        @Override
+        public boolean hasNext()
+        {
+            return index < size;
+        }
+
+        @Override
+        public String next()
+        {
+            if (index >= size) {
+                throw new NoSuchElementException("Element beyond end of iteration");
+            }
+            return components[index++];
+        }
     }
 }
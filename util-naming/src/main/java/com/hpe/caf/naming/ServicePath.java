@@ -21,8 +21,9 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
- * Simple object to store the service path, expected to be in the form /group/subgroup/id. Internally this is represented by a
- * javax.naming.Name object. Any leading or terminating forward-slashes are removed upon creation.
+ * Simple object to store the service path, expected to be in the form /group/subgroup/id. Internally this is represented by an
+ * interned Name object, so that service paths that are equal share the same Name and prefixes. Any leading or terminating
+ * forward-slashes are removed upon creation.
  *
  * Valid path: a/b/c Valid path: /a/b/c/ (leading and terminating slashes will be removed) Invalid path: /a/b//c/ (empty naming groups are
  * not allowed) Invalid path: /a (no group)
@@ -41,7 +42,7 @@ public final class ServicePath implements Iterable<String>
         throws InvalidNameException
     {
         Objects.requireNonNull(path);
-        pathName = new Name(path);
+        pathName = new Name(path).intern();
         if (pathName.size() < 2) {
             throw new InvalidNameException("At minimum, a service must have a group");
         }
@@ -120,7 +121,8 @@ public final class ServicePath implements Iterable<String>
     }
 
     /**
-     * @return an Iterator where each element is the entire service path up to the (decrementing) index
+     * @return an Iterator where each element is the entire service path up to the (decrementing) index; the elements are the cached
+     * prefixes of the path, so no Names are created during the iteration
      */
     public Iterator<Name> descendingPathIterator()
     {
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.naming;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maps Names, such as the levels of a service path, to values, and finds the value for the longest prefix of a Name that has one.
+ * This resolves the most specific value for a service path in a single traversal, rather than looking up each of its prefixes in
+ * turn.
+ *
+ * Reads do not lock and do not allocate. Updates are copy-on-write: the nodes along the updated path are copied and the new root is
+ * then published, so readers always see a consistent trie. Updates are serialised, so bulk updates should use
+ * {@link #putAll(Map)}, which copies each node at most once and publishes all of the entries together.
+ *
+ * @param <V> the type of the values
+ */
+public final class ServicePathTrie<V>
+{
+    private final Object lock = new Object();
+    private volatile Node<V> root = new Node<>();
+
+    /**
+     * Create an empty trie.
+     */
+    public ServicePathTrie()
+    {
+    }
+
+    /**
+     * Create a trie containing the specified entries.
+     *
+     * @param entries the values to add, keyed by Name
+     * @throws NullPointerException if any of the values is null
+     */
+    public ServicePathTrie(final Map<Name, ? extends V> entries)
+    {
+        putAll(entries);
+    }
+
+    /**
+     * @return the number of values in the trie
+     */
+    public int size()
+    {
+        return root.count;
+    }
+
+    /**
+     * @return true if the trie does not contain any values
+     */
+    public boolean isEmpty()
+    {
+        return root.count == 0;
+    }
+
+    /**
+     * Return the value for exactly the specified Name.
+     *
+     * @param name the Name to look up
+     * @return the value, or null if there is no value for the Name
+     */
+    public V get(final Name name)
+    {
+        final Node<V> node = find(root, name);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Return the value for the longest prefix of the specified Name that has one, which may be the Name itself.
+     *
+     * @param name the Name to look up
+     * @return the most specific value, or null if none of the prefixes of the Name has a value
+     */
+    public V getLongestPrefixMatch(final Name name)
+    {
+        Node<V> node = root;
+        V match = node.value;
+        for (int i = 0; i < name.size() && node.children != null; i++) {
+            node = node.children.get(name.getIndex(i));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                match = node.value;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Return the value for the most specific level of the specified service path that has one.
+     *
+     * @param servicePath the service path to look up
+     * @return the most specific value, or null if none of the levels of the service path has a value
+     */
+    public V getLongestPrefixMatch(final ServicePath servicePath)
+    {
+        return getLongestPrefixMatch(servicePath.getPath());
+    }
+
+    /**
+     * Return the longest prefix of the specified Name that has a value, which may be the Name itself.
+     *
+     * @param name the Name to look up
+     * @return the most specific prefix with a value, or null if none of the prefixes of the Name has a value
+     */
+    public Name getLongestMatchingPrefix(final Name name)
+    {
+        Node<V> node = root;
+        int match = node.value == null ? -1 : 0;
+        for (int i = 0; i < name.size() && node.children != null; i++) {
+            node = node.children.get(name.getIndex(i));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                match = i + 1;
+            }
+        }
+        return match == -1 ? null : name.getPrefix(match);
+    }
+
+    /**
+     * Set the value for the specified Name.
+     *
+     * @param name the Name to set the value for
+     * @param value the value
+     * @return the previous value for the Name, or null if there was none
+     * @throws NullPointerException if the value is null
+     */
+    public V put(final Name name, final V value)
+    {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(value);
+        synchronized (lock) {
+            final Set<Node<V>> owned = newOwnedSet();
+            final Node<V> newRoot = own(root, owned);
+            final V previous = insert(newRoot, name, value, owned);
+            root = newRoot;
+            return previous;
+        }
+    }
+
+    /**
+     * Set the values for all of the specified Names. The entries become visible to readers together.
+     *
+     * @param entries the values to set, keyed by Name
+     * @throws NullPointerException if any of the values is null, in which case the trie is not changed
+     */
+    public void putAll(final Map<Name, ? extends V> entries)
+    {
+        synchronized (lock) {
+            final Set<Node<V>> owned = newOwnedSet();
+            final Node<V> newRoot = own(root, owned);
+            for (final Map.Entry<Name, ? extends V> entry : entries.entrySet()) {
+                insert(newRoot, Objects.requireNonNull(entry.getKey()), Objects.requireNonNull(entry.getValue()), owned);
+            }
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Remove the value for the specified Name. Values for longer Names that start with it are not affected.
+     *
+     * @param name the Name to remove the value for
+     * @return the removed value, or null if there was no value for the Name
+     */
+    public V remove(final Name name)
+    {
+        synchronized (lock) {
+            final Node<V> existing = find(root, name);
+            if (existing == null || existing.value == null) {
+                return null;
+            }
+            final Set<Node<V>> owned = newOwnedSet();
+            final Node<V> newRoot = own(root, owned);
+            @SuppressWarnings("unchecked")
+            final Node<V>[] path = new Node[name.size() + 1];
+            path[0] = newRoot;
+            for (int i = 0; i < name.size(); i++) {
+                final Node<V> child = own(path[i].children.get(name.getIndex(i)), owned);
+                path[i].children.put(name.getIndex(i), child);
+                path[i + 1] = child;
+            }
+            final V previous = path[name.size()].value;
+            path[name.size()].value = null;
+            for (int i = name.size(); i >= 0; i--) {
+                path[i].count--;
+                if (i > 0 && path[i].count == 0) {
+                    path[i - 1].children.remove(name.getIndex(i - 1));
+                }
+            }
+            root = newRoot;
+            return previous;
+        }
+    }
+
+    /**
+     * Remove all of the values.
+     */
+    public void clear()
+    {
+        synchronized (lock) {
+            root = new Node<>();
+        }
+    }
+
+    private static <V> Node<V> find(final Node<V> root, final Name name)
+    {
+        Node<V> node = root;
+        for (int i = 0; i < name.size() && node != null; i++) {
+            node = node.children == null ? null : node.children.get(name.getIndex(i));
+        }
+        return node;
+    }
+
+    /**
+     * Set the value for a Name, copying any nodes along its path that have not already been copied during the current update.
+     */
+    private static <V> V insert(final Node<V> root, final Name name, final V value, final Set<Node<V>> owned)
+    {
+        @SuppressWarnings("unchecked")
+        final Node<V>[] path = new Node[name.size() + 1];
+        path[0] = root;
+        for (int i = 0; i < name.size(); i++) {
+            final Node<V> parent = path[i];
+            final Node<V> existing = parent.children == null ? null : parent.children.get(name.getIndex(i));
+            final Node<V> child = existing == null ? newOwnedNode(owned) : own(existing, owned);
+            if (parent.children == null) {
+                parent.children = new HashMap<>();
+            }
+            parent.children.put(name.getIndex(i), child);
+            path[i + 1] = child;
+        }
+        final Node<V> node = path[name.size()];
+        final V previous = node.value;
+        node.value = value;
+        if (previous == null) {
+            for (final Node<V> pathNode : path) {
+                pathNode.count++;
+            }
+        }
+        return previous;
+    }
+
+    private static <V> Node<V> own(final Node<V> node, final Set<Node<V>> owned)
+    {
+        if (owned.contains(node)) {
+            return node;
+        }
+        final Node<V> copy = new Node<>();
+        copy.value = node.value;
+        copy.children = node.children == null ? null : new HashMap<>(node.children);
+        copy.count = node.count;
+        owned.add(copy);
+        return copy;
+    }
+
+    private static <V> Node<V> newOwnedNode(final Set<Node<V>> owned)
+    {
+        final Node<V> node = new Node<>();
+        owned.add(node);
+        return node;
+    }
+
+    private static <V> Set<Node<V>> newOwnedSet()
+    {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * A node of the trie. Nodes are only modified while they are being built during an update, before the root that they are
+     * reachable from is published, and are never modified after that.
+     */
+    private static final class Node<V>
+    {
+        private V value;
+        private Map<String, Node<V>> children;
+        private int count;
+    }
+}
@@ -19,6 +19,7 @@ package com.hpe.caf.naming;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -56,7 +57,7 @@ public class NameTest
     }
 
 
-    @Test(expected = IllegalArgumentException.class)
+    @Test(expectedExceptions = IllegalArgumentException.class)
     public void testGetIndexLowerBound()
     {
         String input = "/a/b/c";
@@ -65,7 +66,7 @@ public class NameTest
     }
 
 
-    @Test(expected = IllegalArgumentException.class)
+    @Test(expectedExceptions = IllegalArgumentException.class)
     public void testGetIndexUpperBound()
     {
         String input = "/a/b/c";
@@ -90,7 +91,7 @@ public class NameTest
     }
 
 
-    @Test(expected = NoSuchElementException.class)
+    @Test(expectedExceptions = NoSuchElementException.class)
     public void testIteratorBounds()
     {
         String input = "/a/b/c";
@@ -114,7 +115,7 @@ public class NameTest
     }
 
 
-    @Test(expected = IllegalArgumentException.class)
+    @Test(expectedExceptions = IllegalArgumentException.class)
     public void getGetPrefixLowerBound()
     {
         String input = "/a/b/c";
@@ -123,7 +124,7 @@ public class NameTest
     }
 
 
-    @Test(expected = IllegalArgumentException.class)
+    @Test(expectedExceptions = IllegalArgumentException.class)
     public void getGetPrefixUpperBound()
     {
         String input = "/a/b/c";
@@ -140,4 +141,48 @@ public class NameTest
         Name otherName = new Name(input);
         Assert.assertTrue(name.equals(otherName));
     }
+
+
+    @Test
+    public void testGetPrefixIsCached()
+    {
+        Name name = new Name("/a/b/c");
+        Assert.assertSame(name.getPrefix(2), name.getPrefix(2));
+        Assert.assertSame(name, name.getPrefix(3));
+        Assert.assertSame(name.getPrefix(1), name.getPrefix(2).getPrefix(1));
+        Assert.assertEquals("", name.getPrefix(0).toString());
+        Assert.assertEquals(0, name.getPrefix(0).size());
+    }
+
+
+    @Test
+    public void testPrefixEquals()
+    {
+        Name name = new Name("/a/b/c");
+        Name prefix = new Name("a/b");
+        Assert.assertEquals(prefix, name.getPrefix(2));
+        Assert.assertEquals(prefix.hashCode(), name.getPrefix(2).hashCode());
+        Assert.assertFalse(prefix.equals(name));
+        Assert.assertEquals(new Name(Arrays.asList("a", "b", "c")), name);
+    }
+
+
+    @Test
+    public void testEmptyComponents()
+    {
+        Name name = new Name("a//b");
+        Assert.assertEquals(3, name.size());
+        Assert.assertEquals("", name.getIndex(1));
+        Assert.assertEquals("a//b", name.toString());
+        Assert.assertEquals(1, new Name("/").size());
+    }
+
+
+    @Test
+    public void testIntern()
+    {
+        Name name = new Name("/a/b/c").intern();
+        Assert.assertSame(name, new Name("a/b/c/").intern());
+        Assert.assertSame(name.getPrefix(2), new Name("a/b/c").intern().getPrefix(2));
+    }
 }
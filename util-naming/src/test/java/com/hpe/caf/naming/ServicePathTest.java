@@ -48,7 +48,7 @@ public class ServicePathTest
     }
 
 
-    @Test(expected = InvalidNameException.class)
+    @Test(expectedExceptions = InvalidNameException.class)
     public void testEmptyGroup()
         throws InvalidNameException
     {
@@ -56,7 +56,7 @@ public class ServicePathTest
     }
 
 
-    @Test(expected = InvalidNameException.class)
+    @Test(expectedExceptions = InvalidNameException.class)
     public void testNoGroup()
         throws InvalidNameException
     {
@@ -78,7 +78,7 @@ public class ServicePathTest
     }
 
 
-    @Test(expected = NoSuchElementException.class)
+    @Test(expectedExceptions = NoSuchElementException.class)
     public void testGroupIteratorException()
         throws InvalidNameException
     {
@@ -105,7 +105,7 @@ public class ServicePathTest
     }
 
 
-    @Test(expected = NoSuchElementException.class)
+    @Test(expectedExceptions = NoSuchElementException.class)
     public void testDescendingPathIteratorException()
         throws InvalidNameException
     {
@@ -115,4 +115,17 @@ public class ServicePathTest
         it.next();
         it.next();
     }
+
+
+    @Test
+    public void testPathIsInterned()
+        throws InvalidNameException
+    {
+        ServicePath sp = new ServicePath("/group/Subgroup/name");
+        ServicePath other = new ServicePath("group/Subgroup/name/");
+        Assert.assertSame(sp.getPath(), other.getPath());
+        Iterator<Name> it = sp.descendingPathIterator();
+        Assert.assertSame(sp.getPath(), it.next());
+        Assert.assertSame(sp.getPath().getPrefix(2), it.next());
+    }
 }
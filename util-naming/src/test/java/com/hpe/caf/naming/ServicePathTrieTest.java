@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.naming;
+
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.naming.InvalidNameException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+public class ServicePathTrieTest
+{
+    @Test
+    public void testLongestPrefixMatch()
+        throws InvalidNameException
+    {
+        ServicePathTrie<String> trie = new ServicePathTrie<>();
+        trie.put(new Name("a"), "app");
+        trie.put(new Name("a/b/c"), "worker");
+        Assert.assertEquals("worker", trie.getLongestPrefixMatch(new ServicePath("a/b/c")));
+        Assert.assertEquals("worker", trie.getLongestPrefixMatch(new Name("a/b/c/d")));
+        Assert.assertEquals("app", trie.getLongestPrefixMatch(new ServicePath("a/b")));
+        Assert.assertEquals("app", trie.getLongestPrefixMatch(new ServicePath("a/x/c")));
+        Assert.assertNull(trie.getLongestPrefixMatch(new ServicePath("x/b/c")));
+        Assert.assertEquals(2, trie.size());
+    }
+
+
+    @Test
+    public void testLongestMatchingPrefix()
+    {
+        ServicePathTrie<String> trie = new ServicePathTrie<>();
+        trie.put(new Name("a/b"), "group");
+        Name name = new Name("a/b/c");
+        Assert.assertSame(name.getPrefix(2), trie.getLongestMatchingPrefix(name));
+        Assert.assertNull(trie.getLongestMatchingPrefix(new Name("a/c")));
+    }
+
+
+    @Test
+    public void testGet()
+    {
+        ServicePathTrie<String> trie = new ServicePathTrie<>();
+        trie.put(new Name("a/b"), "group");
+        Assert.assertEquals("group", trie.get(new Name("/a/b/")));
+        Assert.assertNull(trie.get(new Name("a")));
+        Assert.assertNull(trie.get(new Name("a/b/c")));
+        Assert.assertEquals("group", trie.put(new Name("a/b"), "replaced"));
+        Assert.assertEquals("replaced", trie.get(new Name("a/b")));
+        Assert.assertEquals(1, trie.size());
+    }
+
+
+    @Test
+    public void testRemove()
+    {
+        ServicePathTrie<String> trie = new ServicePathTrie<>();
+        trie.put(new Name("a"), "app");
+        trie.put(new Name("a/b/c"), "worker");
+        Assert.assertNull(trie.remove(new Name("a/b")));
+        Assert.assertEquals("worker", trie.remove(new Name("a/b/c")));
+        Assert.assertEquals("app", trie.getLongestPrefixMatch(new Name("a/b/c")));
+        Assert.assertEquals("app", trie.remove(new Name("a")));
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertNull(trie.getLongestPrefixMatch(new Name("a/b/c")));
+    }
+
+
+    @Test
+    public void testPutAll()
+    {
+        Map<Name, String> entries = new HashMap<>();
+        entries.put(new Name("a"), "app");
+        entries.put(new Name("a/b"), "group");
+        entries.put(new Name("a/b/c"), "worker");
+        entries.put(new Name("x/y"), "other");
+        ServicePathTrie<String> trie = new ServicePathTrie<>(entries);
+        Assert.assertEquals(4, trie.size());
+        Assert.assertEquals("group", trie.getLongestPrefixMatch(new Name("a/b/d")));
+        Assert.assertEquals("other", trie.getLongestPrefixMatch(new Name("x/y/z")));
+    }
+
+
+    @Test
+    public void testPutAllWithNullValueDoesNotChangeTrie()
+    {
+        ServicePathTrie<String> trie = new ServicePathTrie<>();
+        trie.put(new Name("a"), "app");
+        Map<Name, String> entries = new HashMap<>();
+        entries.put(new Name("a"), "replaced");
+        entries.put(new Name("a/b"), null);
+        try {
+            trie.putAll(entries);
+            Assert.fail("Expected NullPointerException");
+        } catch (final NullPointerException e) {
+            // expected
+        }
+        Assert.assertEquals("app", trie.get(new Name("a")));
+        Assert.assertEquals(1, trie.size());
+    }
+
+
+    @Test
+    public void testConcurrentReads()
+        throws InterruptedException
+    {
+        ServicePathTrie<Integer> trie = new ServicePathTrie<>();
+        trie.put(new Name("a"), 0);
+        Name name = new Name("a/b/c");
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                Integer value = trie.getLongestPrefixMatch(name);
+                if (value == null) {
+                    failed.set(true);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 10000; i++) {
+            trie.put(name.getPrefix(2 + i % 2), i);
+            trie.remove(name.getPrefix(2 + (i + 1) % 2));
+        }
+        done.set(true);
+        reader.join();
+        Assert.assertFalse(failed.get());
+        Assert.assertEquals(2, trie.size());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util.ref;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A stream that ends after a maximum number of bytes have been read from the underlying stream.
+ */
+final class BoundedInputStream extends FilterInputStream
+{
+    private long remaining;
+
+    public BoundedInputStream(final InputStream in, final long length)
+    {
+        super(in);
+        this.remaining = length;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int b = in.read();
+        if (b != -1) {
+            remaining--;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+        throws IOException
+    {
+        if (len == 0) {
+            return 0;
+        }
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int read = in.read(b, off, (int) Math.min(len, remaining));
+        if (read > 0) {
+            remaining -= read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long n)
+        throws IOException
+    {
+        final long skipped = in.skip(Math.min(n, remaining));
+        remaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available()
+        throws IOException
+    {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit)
+    {
+        // mark is not supported
+    }
+
+    @Override
+    public synchronized void reset()
+        throws IOException
+    {
+        throw new IOException("mark/reset not supported");
+    }
+}
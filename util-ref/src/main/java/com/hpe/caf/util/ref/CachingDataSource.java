@@ -0,0 +1,745 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util.ref;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * A DataSource that caches the objects and data retrieved from another DataSource, so that workers on the same node that retrieve the
+ * same references repeatedly only retrieve them from the underlying source once.
+ *
+ * Objects are held on the heap in a least recently used cache with a maximum number of entries. Since cached objects are shared by
+ * every caller that retrieves them, they must not be modified.
+ *
+ * Data streams up to a size limit are held on the heap in a least recently used cache with a maximum total size. Larger streams are
+ * written to files in a cache directory, which also has a maximum total size, and each file's checksum is verified as it is read back.
+ * Streams that are larger than the cache directory can hold, or whose size cannot be determined, are not cached.
+ *
+ * When several threads request the same reference at the same time, only one of them retrieves it from the underlying source and the
+ * others wait for the result.
+ */
+public class CachingDataSource extends DataSource
+{
+    private static final String CACHE_FILE_PREFIX = "caf-ref-";
+    private static final String CACHE_FILE_SUFFIX = ".cache";
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final DataSource source;
+    private final int maxObjects;
+    private final long memoryCapacityBytes;
+    private final long maxMemoryEntryBytes;
+    private final Path diskDirectory;
+    private final long diskCapacityBytes;
+    private final Map<ObjectKey, Object> objects = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CachedData> memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CachedData> diskEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder objectHits = new LongAdder();
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final LongAdder bytesFetched = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder checksumFailures = new LongAdder();
+
+    /**
+     * Create a DataSource that caches objects and data streams in memory only.
+     *
+     * @param source the DataSource to retrieve objects and data from
+     * @param maxObjects the maximum number of objects to cache, or zero to not cache objects
+     * @param memoryCapacityBytes the maximum total size of the data streams cached in memory
+     * @param maxMemoryEntryBytes the size of the largest data stream to cache in memory
+     */
+    public CachingDataSource(
+        final DataSource source,
+        final int maxObjects,
+        final long memoryCapacityBytes,
+        final long maxMemoryEntryBytes
+    )
+    {
+        this.source = Objects.requireNonNull(source);
+        if (maxObjects < 0 || memoryCapacityBytes < 0 || maxMemoryEntryBytes < 0) {
+            throw new IllegalArgumentException("Cache sizes must not be negative");
+        }
+        this.maxObjects = maxObjects;
+        this.memoryCapacityBytes = memoryCapacityBytes;
+        // an entry is read into a single array, so it is limited to the largest array that can be allocated
+        this.maxMemoryEntryBytes = Math.min(Math.min(maxMemoryEntryBytes, memoryCapacityBytes), MAX_ARRAY_LENGTH - 1);
+        this.diskDirectory = null;
+        this.diskCapacityBytes = 0;
+    }
+
+    /**
+     * Create a DataSource that caches objects and small data streams in memory, and larger data streams on disk. The cache directory
+     * should not be shared with another cache, and any cache files that are left in it from a previous run are deleted.
+     *
+     * @param source the DataSource to retrieve objects and data from
+     * @param maxObjects the maximum number of objects to cache, or zero to not cache objects
+     * @param memoryCapacityBytes the maximum total size of the data streams cached in memory
+     * @param maxMemoryEntryBytes the size of the largest data stream to cache in memory
+     * @param diskDirectory the directory to write the cache files to, which is created if it does not exist
+     * @param diskCapacityBytes the maximum total size of the cache files
+     * @throws IOException if the cache directory cannot be created or cleaned
+     */
+    public CachingDataSource(
+        final DataSource source,
+        final int maxObjects,
+        final long memoryCapacityBytes,
+        final long maxMemoryEntryBytes,
+        final Path diskDirectory,
+        final long diskCapacityBytes
+    ) throws IOException
+    {
+        this.source = Objects.requireNonNull(source);
+        if (maxObjects < 0 || memoryCapacityBytes < 0 || maxMemoryEntryBytes < 0 || diskCapacityBytes < 0) {
+            throw new IllegalArgumentException("Cache sizes must not be negative");
+        }
+        this.maxObjects = maxObjects;
+        this.memoryCapacityBytes = memoryCapacityBytes;
+        // an entry is read into a single array, so it is limited to the largest array that can be allocated
+        this.maxMemoryEntryBytes = Math.min(Math.min(maxMemoryEntryBytes, memoryCapacityBytes), MAX_ARRAY_LENGTH - 1);
+        this.diskDirectory = Files.createDirectories(diskDirectory);
+        this.diskCapacityBytes = diskCapacityBytes;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDirectory, CACHE_FILE_PREFIX + "*" + CACHE_FILE_SUFFIX)) {
+            for (final Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Override
+    public <T> T getObject(final String ref, final Class<T> clazz)
+        throws DataSourceException
+    {
+        if (maxObjects == 0) {
+            misses.increment();
+            return source.getObject(ref, clazz);
+        }
+        final ObjectKey key = new ObjectKey(ref, clazz);
+        final Object cached = getCachedObject(key);
+        if (cached != null) {
+            objectHits.increment();
+            return clazz.cast(cached);
+        }
+        return clazz.cast(singleFlight(key, () -> {
+            final Object loaded = getCachedObject(key);
+            if (loaded != null) {
+                return loaded;
+            }
+            misses.increment();
+            final T object = source.getObject(ref, clazz);
+            if (object != null) {
+                synchronized (objects) {
+                    objects.put(key, object);
+                    final Iterator<Object> it = objects.values().iterator();
+                    while (objects.size() > maxObjects) {
+                        it.next();
+                        it.remove();
+                        evictions.increment();
+                    }
+                }
+            }
+            return object;
+        }));
+    }
+
+    @Override
+    public InputStream getStream(final String ref)
+        throws DataSourceException
+    {
+        CachedData cached = getCachedData(ref);
+        if (cached == null) {
+            cached = (CachedData) singleFlight(ref, () -> {
+                final CachedData loaded = getCachedData(ref);
+                return loaded != null ? loaded : load(ref);
+            });
+        } else {
+            countHit(cached);
+        }
+        if (cached == null) {
+            return source.getStream(ref);
+        }
+        final InputStream stream = open(ref, cached);
+        return stream != null ? stream : source.getStream(ref);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Ranges of cached data are read from the cache, without verifying the checksums of cache files. Ranges of data that is not cached
+     * are retrieved from the underlying source, and are not cached.
+     */
+    @Override
+    public InputStream getStream(final String ref, final long offset, final long length)
+        throws DataSourceException
+    {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must not be negative");
+        }
+        final CachedData cached = getCachedData(ref);
+        if (cached == null) {
+            misses.increment();
+            return source.getStream(ref, offset, length);
+        }
+        countHit(cached);
+        final long start = Math.min(offset, cached.size);
+        final long rangeLength = Math.min(length, cached.size - start);
+        bytesServed.add(rangeLength);
+        if (cached.data != null) {
+            return new ByteArrayInputStream(cached.data, (int) start, (int) rangeLength);
+        }
+        try {
+            final FileChannel channel = FileChannel.open(cached.file, StandardOpenOption.READ);
+            channel.position(start);
+            return new BoundedInputStream(Channels.newInputStream(channel), rangeLength);
+        } catch (final IOException e) {
+            evict(ref, cached);
+            return source.getStream(ref, offset, length);
+        }
+    }
+
+    @Override
+    public boolean supportsRangedStreams()
+    {
+        return source.supportsRangedStreams();
+    }
+
+    @Override
+    public long getDataSize(final String ref)
+        throws DataSourceException
+    {
+        final CachedData cached = getCachedData(ref);
+        return cached != null ? cached.size : source.getDataSize(ref);
+    }
+
+    /**
+     * Remove all of the cached objects and data, and delete the cache files.
+     */
+    public void clear()
+    {
+        synchronized (objects) {
+            objects.clear();
+        }
+        synchronized (memoryEntries) {
+            memoryEntries.clear();
+            memoryBytes = 0;
+        }
+        final List<CachedData> files;
+        synchronized (diskEntries) {
+            files = new ArrayList<>(diskEntries.values());
+            diskEntries.clear();
+            diskBytes = 0;
+        }
+        files.forEach(CachingDataSource::deleteFile);
+    }
+
+    /**
+     * @return the number of objects that were returned from the cache
+     */
+    public long getObjectHits()
+    {
+        return objectHits.sum();
+    }
+
+    /**
+     * @return the number of data streams that were returned from the memory cache
+     */
+    public long getMemoryHits()
+    {
+        return memoryHits.sum();
+    }
+
+    /**
+     * @return the number of data streams that were returned from the disk cache
+     */
+    public long getDiskHits()
+    {
+        return diskHits.sum();
+    }
+
+    /**
+     * @return the number of objects and data streams that were retrieved from the underlying source
+     */
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of requests that waited for another thread that was already retrieving the same reference
+     */
+    public long getCoalescedRequests()
+    {
+        return coalescedRequests.sum();
+    }
+
+    /**
+     * @return the number of bytes of data that were retrieved from the underlying source to be cached
+     */
+    public long getBytesFetched()
+    {
+        return bytesFetched.sum();
+    }
+
+    /**
+     * @return the number of bytes of data that were returned from the cache
+     */
+    public long getBytesServed()
+    {
+        return bytesServed.sum();
+    }
+
+    /**
+     * @return the number of objects and data streams that were removed from the cache to make room for others
+     */
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of cache files whose content did not match their checksum when they were read
+     */
+    public long getChecksumFailures()
+    {
+        return checksumFailures.sum();
+    }
+
+    /**
+     * @return the total size of the data streams currently cached in memory
+     */
+    public long getMemoryBytes()
+    {
+        synchronized (memoryEntries) {
+            return memoryBytes;
+        }
+    }
+
+    /**
+     * @return the total size of the data streams currently cached on disk
+     */
+    public long getDiskBytes()
+    {
+        synchronized (diskEntries) {
+            return diskBytes;
+        }
+    }
+
+    /**
+     * Run the loader, unless another thread is already loading the same key, in which case wait for its result instead.
+     */
+    private Object singleFlight(final Object key, final Loader loader)
+        throws DataSourceException
+    {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        final CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedRequests.increment();
+            try {
+                return existing.join();
+            } catch (final CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof DataSourceException) {
+                    throw (DataSourceException) cause;
+                }
+                throw new DataSourceException("Failed to retrieve " + key, cause);
+            }
+        }
+        try {
+            final Object result = loader.load();
+            future.complete(result);
+            return result;
+        } catch (final Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Retrieve the data from the underlying source and add it to the cache tier that suits its size.
+     *
+     * @return the cached data, or null if the data cannot be cached
+     */
+    private CachedData load(final String ref)
+        throws DataSourceException
+    {
+        misses.increment();
+        final long size;
+        try {
+            size = source.getDataSize(ref);
+        } catch (final SourceNotFoundException e) {
+            throw e;
+        } catch (final DataSourceException e) {
+            return null;
+        }
+        if (size < 0) {
+            // the size is unknown, so the data cannot be placed in a tier without reading all of it
+            return null;
+        }
+        if (size <= maxMemoryEntryBytes) {
+            try (InputStream stream = source.getStream(ref)) {
+                // the data is read one byte beyond the limit, so that data that is larger than its reported size is detected
+                final byte[] data = stream.readNBytes((int) maxMemoryEntryBytes + 1);
+                bytesFetched.add(data.length);
+                if (data.length <= maxMemoryEntryBytes) {
+                    final CachedData cached = new CachedData(data);
+                    addToMemory(ref, cached);
+                    return cached;
+                }
+                if (diskDirectory == null) {
+                    return null;
+                }
+                return loadToDisk(ref, data, stream);
+            } catch (final IOException e) {
+                throw new DataSourceException("Failed to retrieve " + ref, e);
+            }
+        }
+        if (diskDirectory == null || size > diskCapacityBytes) {
+            return null;
+        }
+        try (InputStream stream = source.getStream(ref)) {
+            return loadToDisk(ref, new byte[0], stream);
+        } catch (final IOException e) {
+            throw new DataSourceException("Failed to retrieve " + ref, e);
+        }
+    }
+
+    /**
+     * Write the data to a cache file and add it to the disk cache.
+     *
+     * @param prefix the start of the data, which has already been read from the stream
+     * @param stream the rest of the data
+     * @return the cached data, or null if the data is too large to be cached
+     */
+    private CachedData loadToDisk(final String ref, final byte[] prefix, final InputStream stream)
+        throws DataSourceException
+    {
+        final Path file;
+        try {
+            file = Files.createTempFile(diskDirectory, CACHE_FILE_PREFIX, CACHE_FILE_SUFFIX);
+        } catch (final IOException e) {
+            throw new DataSourceException("Failed to create a cache file for " + ref, e);
+        }
+        final CRC32 checksum = new CRC32();
+        checksum.update(prefix);
+        final long written;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(prefix);
+            written = prefix.length + new CheckedInputStream(stream, checksum).transferTo(out);
+        } catch (final IOException | RuntimeException e) {
+            deleteFile(file);
+            throw new DataSourceException("Failed to retrieve " + ref, e);
+        }
+        bytesFetched.add(written - prefix.length);
+        final CachedData cached = new CachedData(file, written, checksum.getValue());
+        return addToDisk(ref, cached) ? cached : null;
+    }
+
+    private void addToMemory(final String ref, final CachedData cached)
+    {
+        synchronized (memoryEntries) {
+            final CachedData previous = memoryEntries.put(ref, cached);
+            memoryBytes += cached.size - (previous == null ? 0 : previous.size);
+            final Iterator<CachedData> it = memoryEntries.values().iterator();
+            while (memoryBytes > memoryCapacityBytes) {
+                memoryBytes -= it.next().size;
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * @return false if the data is too large to be cached, in which case the file has been deleted
+     */
+    private boolean addToDisk(final String ref, final CachedData cached)
+    {
+        if (cached.size > diskCapacityBytes) {
+            deleteFile(cached);
+            return false;
+        }
+        final List<CachedData> evicted = new ArrayList<>();
+        synchronized (diskEntries) {
+            final CachedData previous = diskEntries.put(ref, cached);
+            if (previous != null) {
+                diskBytes -= previous.size;
+                evicted.add(previous);
+            }
+            diskBytes += cached.size;
+            final Iterator<CachedData> it = diskEntries.values().iterator();
+            while (diskBytes > diskCapacityBytes) {
+                final CachedData eldest = it.next();
+                diskBytes -= eldest.size;
+                it.remove();
+                evicted.add(eldest);
+                evictions.increment();
+            }
+        }
+        evicted.forEach(CachingDataSource::deleteFile);
+        return true;
+    }
+
+    private void evict(final String ref, final CachedData cached)
+    {
+        final boolean removed;
+        synchronized (diskEntries) {
+            removed = diskEntries.remove(ref, cached);
+            if (removed) {
+                diskBytes -= cached.size;
+            }
+        }
+        if (removed) {
+            deleteFile(cached);
+        }
+    }
+
+    private Object getCachedObject(final ObjectKey key)
+    {
+        synchronized (objects) {
+            return objects.get(key);
+        }
+    }
+
+    private CachedData getCachedData(final String ref)
+    {
+        synchronized (memoryEntries) {
+            final CachedData cached = memoryEntries.get(ref);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        synchronized (diskEntries) {
+            return diskEntries.get(ref);
+        }
+    }
+
+    private void countHit(final CachedData cached)
+    {
+        if (cached.data != null) {
+            memoryHits.increment();
+        } else {
+            diskHits.increment();
+        }
+    }
+
+    /**
+     * Open a stream of cached data.
+     *
+     * @return the stream, or null if the cache file could not be opened, in which case it has been evicted
+     */
+    private InputStream open(final String ref, final CachedData cached)
+    {
+        if (cached.data != null) {
+            bytesServed.add(cached.size);
+            return new ByteArrayInputStream(cached.data);
+        }
+        try {
+            final InputStream stream = new VerifyingInputStream(ref, cached, Files.newInputStream(cached.file));
+            bytesServed.add(cached.size);
+            return stream;
+        } catch (final IOException e) {
+            evict(ref, cached);
+            return null;
+        }
+    }
+
+    private static void deleteFile(final CachedData cached)
+    {
+        deleteFile(cached.file);
+    }
+
+    private static void deleteFile(final Path file)
+    {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Loader
+    {
+        Object load()
+            throws DataSourceException;
+    }
+
+    private static final class ObjectKey
+    {
+        private final String ref;
+        private final Class<?> clazz;
+
+        public ObjectKey(final String ref, final Class<?> clazz)
+        {
+            this.ref = Objects.requireNonNull(ref);
+            this.clazz = Objects.requireNonNull(clazz);
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ObjectKey)) {
+                return false;
+            }
+            final ObjectKey other = (ObjectKey) o;
+            return ref.equals(other.ref) && clazz.equals(other.clazz);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * ref.hashCode() + clazz.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return ref + " as " + clazz.getSimpleName();
+        }
+    }
+
+    /**
+     * Cached data, which is either held in memory or in a cache file.
+     */
+    private static final class CachedData
+    {
+        private final byte[] data;
+        private final Path file;
+        private final long size;
+        private final long checksum;
+
+        public CachedData(final byte[] data)
+        {
+            this.data = data;
+            this.file = null;
+            this.size = data.length;
+            this.checksum = 0;
+        }
+
+        public CachedData(final Path file, final long size, final long checksum)
+        {
+            this.data = null;
+            this.file = file;
+            this.size = size;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * A stream of a cache file that verifies the size and checksum of the content as soon as the expected number of bytes has been
+     * read, so that a reader which stops at the known size also gets the check. If they do not match, or the file has more content
+     * than expected, the cache file is evicted and the read fails.
+     */
+    private final class VerifyingInputStream extends CheckedInputStream
+    {
+        private final String ref;
+        private final CachedData cached;
+        private long count;
+        private boolean verified;
+        private boolean failed;
+
+        public VerifyingInputStream(final String ref, final CachedData cached, final InputStream in)
+        {
+            super(in, new CRC32());
+            this.ref = ref;
+            this.cached = cached;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final int b = super.read();
+            if (b == -1) {
+                verify();
+            } else {
+                count++;
+                if (count >= cached.size) {
+                    verify();
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] buf, final int off, final int len)
+            throws IOException
+        {
+            // skip() is implemented by CheckedInputStream in terms of this method, so skipped bytes are counted and checked here too
+            final int read = super.read(buf, off, len);
+            if (read == -1) {
+                verify();
+            } else {
+                count += read;
+                if (count >= cached.size) {
+                    verify();
+                }
+            }
+            return read;
+        }
+
+        private void verify()
+            throws IOException
+        {
+            if (verified && count == cached.size) {
+                return;
+            }
+            if (failed || count != cached.size || getChecksum().getValue() != cached.checksum) {
+                if (!failed) {
+                    failed = true;
+                    checksumFailures.increment();
+                    evict(ref, cached);
+                }
+                throw new IOException("Cached data for " + ref + " is corrupt");
+            }
+            verified = true;
+        }
+    }
+}
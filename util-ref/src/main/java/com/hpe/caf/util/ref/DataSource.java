@@ -15,6 +15,7 @@
  */
 package com.hpe.caf.util.ref;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -44,6 +45,57 @@ public abstract class DataSource
     public abstract InputStream getStream(final String ref)
         throws DataSourceException;
 
+    /**
+     * Retrieve a range of a stream of data identified by a specific reference. The stream ends after the specified number of bytes, or
+     * at the end of the data if that is reached first.
+     *
+     * The default implementation opens the whole stream and skips to the offset. Sources that can retrieve a range of the data
+     * directly should override this, and {@link #supportsRangedStreams()}.
+     *
+     * @param ref the reference that points to a stream of data
+     * @param offset the position in the data to start from
+     * @param length the maximum number of bytes to return, which may be Long.MAX_VALUE to read to the end of the data
+     * @return a stream of the specified range of the data identified by the specified reference
+     * @throws DataSourceException if the data stream cannot be acquired
+     * @throws IllegalArgumentException if the offset or length is negative
+     */
+    public InputStream getStream(final String ref, final long offset, final long length)
+        throws DataSourceException
+    {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must not be negative");
+        }
+        final InputStream stream = getStream(ref);
+        try {
+            long remaining = offset;
+            while (remaining > 0) {
+                final long skipped = stream.skip(remaining);
+                if (skipped > 0) {
+                    remaining -= skipped;
+                } else if (stream.read() == -1) {
+                    break;
+                } else {
+                    remaining--;
+                }
+            }
+        } catch (final IOException e) {
+            closeQuietly(stream);
+            throw new DataSourceException("Failed to skip to offset " + offset + " of " + ref, e);
+        }
+        return new BoundedInputStream(stream, length);
+    }
+
+    /**
+     * Determine whether {@link #getStream(String, long, long)} retrieves a range of the data directly, rather than reading and
+     * discarding the data before the offset.
+     *
+     * @return true if ranges of the data can be retrieved directly
+     */
+    public boolean supportsRangedStreams()
+    {
+        return false;
+    }
+
     /**
      * Determine the size of the data abstracted.
      *
@@ -53,4 +105,13 @@ public abstract class DataSource
      */
     public abstract long getDataSize(final String ref)
         throws DataSourceException;
+
+    private static void closeQuietly(final InputStream stream)
+    {
+        try {
+            stream.close();
+        } catch (final IOException e) {
+            // the skip failure is reported instead
+        }
+    }
 }
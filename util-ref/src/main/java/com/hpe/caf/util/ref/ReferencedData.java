@@ -27,6 +27,8 @@ import java.util.Objects;
  */
 public class ReferencedData
 {
+    private static final long DEFAULT_RETRY_DELAY_MILLIS = 100;
+
     private String reference;
     private byte[] data;
 
@@ -84,6 +86,51 @@ public class ReferencedData
         return ret;
     }
 
+    /**
+     * Return the referenced data as a stream, reading it from the source in chunks if it is not held directly. While one chunk is
+     * being consumed the next is read in the background, and if reading fails it is resumed from the last byte received, so this is
+     * suited to processing very large items. Sources that support ranged streams read each chunk with a separate ranged
+     * request. Failed reads are retried after 100 milliseconds, doubling with each successive failure.
+     *
+     * @param source the implementation that provides object instances given the provided references
+     * @param chunkSize the number of bytes to read from the source at a time
+     * @param maxAttempts the number of successive attempts to read from the source that may fail without receiving any data before
+     * the stream fails
+     * @return a stream of the data that this container is wrapping
+     * @throws IllegalStateException if there is no object or reference present
+     * @throws IllegalArgumentException if the chunk size or the number of attempts is not positive
+     */
+    public InputStream acquire(final DataSource source, final int chunkSize, final int maxAttempts)
+    {
+        return acquire(source, chunkSize, maxAttempts, DEFAULT_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * Return the referenced data as a stream, reading it from the source in chunks if it is not held directly, as
+     * {@link #acquire(DataSource, int, int)} does.
+     *
+     * @param source the implementation that provides object instances given the provided references
+     * @param chunkSize the number of bytes to read from the source at a time
+     * @param maxAttempts the number of successive attempts to read from the source that may fail without receiving any data before
+     * the stream fails
+     * @param retryDelayMillis how long to wait before retrying a failed read, which doubles with each successive failure up to a
+     * maximum of 10 seconds
+     * @return a stream of the data that this container is wrapping
+     * @throws IllegalStateException if there is no object or reference present
+     * @throws IllegalArgumentException if the chunk size or the number of attempts is not positive, or the retry delay is negative
+     */
+    public synchronized InputStream acquire(final DataSource source, final int chunkSize, final int maxAttempts,
+                                            final long retryDelayMillis)
+    {
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        }
+        if (getReference() == null) {
+            throw new IllegalStateException("No data or reference present");
+        }
+        return new ReferencedDataInputStream(source, getReference(), chunkSize, maxAttempts, retryDelayMillis);
+    }
+
     /**
      * Determine the size of the data.
      *
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util.ref;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A stream of referenced data that is read from a DataSource in chunks. While one chunk is being consumed the next is read in the
+ * background, so that the caller's processing and the retrieval of the data overlap.
+ *
+ * If reading a chunk fails it is retried, resuming from the last byte that was received rather than from the start of the data. The
+ * delay before each retry doubles with each successive failure, up to a limit, and is reset once data is received. If the
+ * DataSource supports ranged streams each chunk is read with a separate ranged request, otherwise the data is read through a
+ * single stream, which is only reopened at the current offset after a failure.
+ */
+final class ReferencedDataInputStream extends InputStream
+{
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "caf-referenced-data-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final byte[] EMPTY_CHUNK = new byte[0];
+    private static final long MAX_RETRY_DELAY_MILLIS = 10_000;
+
+    private final DataSource source;
+    private final String reference;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final boolean ranged;
+    /**
+     * The stream that chunks are currently being read from. It is only used by the chunk reads, which run one at a time.
+     */
+    private InputStream stream;
+    private CompletableFuture<byte[]> nextChunk;
+    private long nextChunkOffset;
+    private byte[] chunk = EMPTY_CHUNK;
+    private int position;
+    private boolean closed;
+
+    /**
+     * Start reading referenced data.
+     *
+     * @param source the DataSource to read the data from
+     * @param reference the reference to the data
+     * @param chunkSize the number of bytes to read in each chunk
+     * @param maxAttempts the number of successive attempts to read from the source that may fail without receiving any data before
+     * the stream fails
+     * @param retryDelayMillis how long to wait before retrying after the first failure
+     */
+    public ReferencedDataInputStream(final DataSource source, final String reference, final int chunkSize, final int maxAttempts,
+                                     final long retryDelayMillis)
+    {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Maximum attempts must be positive");
+        }
+        if (retryDelayMillis < 0) {
+            throw new IllegalArgumentException("Retry delay must not be negative");
+        }
+        this.source = Objects.requireNonNull(source);
+        this.reference = Objects.requireNonNull(reference);
+        this.chunkSize = chunkSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+        this.ranged = source.supportsRangedStreams();
+        this.nextChunk = prefetch(0);
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        if (!ensureChunk()) {
+            return -1;
+        }
+        return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len)
+        throws IOException
+    {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureChunk()) {
+            return -1;
+        }
+        final int read = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public int available()
+    {
+        return chunk.length - position;
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        chunk = EMPTY_CHUNK;
+        position = 0;
+        if (nextChunk == null) {
+            closeStream();
+        } else {
+            nextChunk.whenComplete((result, failure) -> closeStream());
+            nextChunk = null;
+        }
+    }
+
+    /**
+     * Make sure that there is unread data in the current chunk, waiting for the next chunk if necessary.
+     *
+     * @return false if the end of the data has been reached
+     */
+    private boolean ensureChunk()
+        throws IOException
+    {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == chunk.length) {
+            if (nextChunk == null) {
+                return false;
+            }
+            try {
+                chunk = nextChunk.join();
+            } catch (final CompletionException e) {
+                nextChunk = null;
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("Failed to read referenced data " + reference, cause);
+            }
+            position = 0;
+            nextChunkOffset += chunk.length;
+            // a short chunk means that the end of the data has been reached
+            nextChunk = chunk.length == chunkSize ? prefetch(nextChunkOffset) : null;
+        }
+        return true;
+    }
+
+    private CompletableFuture<byte[]> prefetch(final long offset)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return readChunk(offset);
+            } catch (final DataSourceException e) {
+                throw new CompletionException(e);
+            }
+        }, PREFETCH_EXECUTOR);
+    }
+
+    /**
+     * Read the chunk that starts at the specified offset, resuming from the last byte received if reading fails. Reading only fails
+     * once the maximum number of attempts have failed in succession without receiving any data, and the delay before each retry
+     * doubles with each of those failures.
+     */
+    private byte[] readChunk(final long offset)
+        throws DataSourceException
+    {
+        final byte[] buffer = new byte[chunkSize];
+        int filled = 0;
+        int filledAtLastFailure = 0;
+        int failures = 0;
+        while (true) {
+            try {
+                if (stream == null) {
+                    stream = source.getStream(reference, offset + filled, ranged ? chunkSize - filled : Long.MAX_VALUE);
+                }
+                int read = 0;
+                while (filled < chunkSize && (read = stream.read(buffer, filled, chunkSize - filled)) != -1) {
+                    filled += read;
+                }
+                if (ranged || read == -1) {
+                    closeStream();
+                }
+                return filled == chunkSize ? buffer : Arrays.copyOf(buffer, filled);
+            } catch (final IOException | DataSourceException e) {
+                closeStream();
+                if (filled > filledAtLastFailure) {
+                    filledAtLastFailure = filled;
+                    failures = 0;
+                }
+                if (e instanceof SourceNotFoundException || ++failures >= maxAttempts) {
+                    throw e instanceof DataSourceException
+                        ? (DataSourceException) e
+                        : new DataSourceException("Failed to read referenced data " + reference + " at offset " + (offset + filled), e);
+                }
+                waitBeforeRetry(failures, offset + filled);
+            }
+        }
+    }
+
+    private void waitBeforeRetry(final int failures, final long offset)
+        throws DataSourceException
+    {
+        // the shift is limited so that it cannot overflow before the delay is capped
+        final long delayMillis = Math.min(Math.min(retryDelayMillis, MAX_RETRY_DELAY_MILLIS) << Math.min(failures - 1, 30),
+                                          MAX_RETRY_DELAY_MILLIS);
+        try {
+            Thread.sleep(delayMillis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataSourceException("Interrupted while retrying referenced data " + reference + " at offset " + offset, e);
+        }
+    }
+
+    private void closeStream()
+    {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (final IOException e) {
+                // the data has already been read, or the failure that caused the close is reported instead
+            }
+            stream = null;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util.ref;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingDataSourceTest
+{
+    private Path cacheDirectory;
+    private CountingDataSource source;
+
+    @BeforeMethod
+    public void setUp()
+        throws IOException
+    {
+        cacheDirectory = Files.createTempDirectory("caching-data-source-test");
+        source = new CountingDataSource();
+    }
+
+    @AfterMethod
+    public void tearDown()
+        throws IOException
+    {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+            for (final Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(cacheDirectory);
+    }
+
+    @Test
+    public void testObjectCache()
+        throws DataSourceException
+    {
+        source.objects.put("a", "objectA");
+        source.objects.put("b", "objectB");
+        CachingDataSource cache = new CachingDataSource(source, 1, 0, 0);
+        Assert.assertEquals(cache.getObject("a", String.class), "objectA");
+        Assert.assertEquals(cache.getObject("a", String.class), "objectA");
+        Assert.assertEquals(source.objectRequests.get(), 1);
+        Assert.assertEquals(cache.getObject("b", String.class), "objectB");
+        Assert.assertEquals(cache.getObject("a", String.class), "objectA");
+        Assert.assertEquals(source.objectRequests.get(), 3);
+        Assert.assertEquals(cache.getObjectHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 3);
+        Assert.assertEquals(cache.getEvictions(), 2);
+    }
+
+    @Test
+    public void testMemoryCache()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(100);
+        source.data.put("a", data);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 200);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(source.streamRequests.get(), 1);
+        Assert.assertEquals(cache.getMemoryHits(), 1);
+        Assert.assertEquals(cache.getBytesFetched(), 100);
+        Assert.assertEquals(cache.getBytesServed(), 200);
+        Assert.assertEquals(cache.getMemoryBytes(), 100);
+        Assert.assertEquals(cache.getDataSize("a"), 100);
+    }
+
+    @Test
+    public void testUnboundedMemoryCache()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(100);
+        source.data.put("a", data);
+        CachingDataSource cache = new CachingDataSource(source, 10, Long.MAX_VALUE, Long.MAX_VALUE);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(source.streamRequests.get(), 1);
+        Assert.assertEquals(cache.getMemoryBytes(), 100);
+    }
+
+    @Test
+    public void testMemoryCacheEviction()
+        throws DataSourceException, IOException
+    {
+        source.data.put("a", createData(100));
+        source.data.put("b", createData(100));
+        CachingDataSource cache = new CachingDataSource(source, 0, 150, 150);
+        readAll(cache.getStream("a"));
+        readAll(cache.getStream("b"));
+        readAll(cache.getStream("a"));
+        Assert.assertEquals(source.streamRequests.get(), 3);
+        Assert.assertEquals(cache.getEvictions(), 2);
+        Assert.assertEquals(cache.getMemoryBytes(), 100);
+    }
+
+    @Test
+    public void testDiskCache()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(5000);
+        source.data.put("a", data);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 100, cacheDirectory, 10000);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(source.streamRequests.get(), 1);
+        Assert.assertEquals(cache.getDiskHits(), 1);
+        Assert.assertEquals(cache.getDiskBytes(), 5000);
+        Assert.assertEquals(cache.getMemoryBytes(), 0);
+        try (InputStream stream = cache.getStream("a", 10, 3)) {
+            Assert.assertEquals(readAll(stream), new byte[]{data[10], data[11], data[12]});
+        }
+        cache.clear();
+        Assert.assertEquals(cache.getDiskBytes(), 0);
+        Assert.assertEquals(countCacheFiles(), 0);
+    }
+
+    @Test
+    public void testStreamTooLargeToCache()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(5000);
+        source.data.put("a", data);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 100, cacheDirectory, 1000);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(source.streamRequests.get(), 2);
+        Assert.assertEquals(countCacheFiles(), 0);
+    }
+
+    @Test
+    public void testUnderReportedSizeNotReadIntoMemory()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(5000);
+        source.data.put("a", data);
+        source.reportedSizes.put("a", 50L);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 100);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(cache.getBytesFetched(), 101);
+        Assert.assertEquals(cache.getMemoryBytes(), 0);
+        Assert.assertEquals(source.streamRequests.get(), 2);
+    }
+
+    @Test
+    public void testUnderReportedSizeCachedOnDisk()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(5000);
+        source.data.put("a", data);
+        source.reportedSizes.put("a", 50L);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 100, cacheDirectory, 10000);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(source.streamRequests.get(), 1);
+        Assert.assertEquals(cache.getDiskHits(), 1);
+        Assert.assertEquals(cache.getDiskBytes(), 5000);
+        Assert.assertEquals(cache.getBytesFetched(), 5000);
+        Assert.assertEquals(cache.getMemoryBytes(), 0);
+    }
+
+    @Test
+    public void testUnknownSizeNotCached()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(100);
+        source.data.put("a", data);
+        source.reportedSizes.put("a", -1L);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 1000, cacheDirectory, 10000);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(source.streamRequests.get(), 2);
+        Assert.assertEquals(cache.getBytesFetched(), 0);
+        Assert.assertEquals(cache.getMemoryBytes(), 0);
+        Assert.assertEquals(countCacheFiles(), 0);
+    }
+
+    @Test
+    public void testCorruptCacheFile()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(5000);
+        source.data.put("a", data);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 100, cacheDirectory, 10000);
+        readAll(cache.getStream("a"));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+            for (final Path file : files) {
+                byte[] content = Files.readAllBytes(file);
+                content[0]++;
+                Files.write(file, content);
+            }
+        }
+        try {
+            readAll(cache.getStream("a"));
+            Assert.fail("Expected IOException");
+        } catch (final IOException e) {
+            Assert.assertEquals(cache.getChecksumFailures(), 1);
+        }
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+        Assert.assertEquals(source.streamRequests.get(), 2);
+    }
+
+    @Test
+    public void testCorruptCacheFileReadToKnownSize()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(5000);
+        source.data.put("a", data);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 100, cacheDirectory, 10000);
+        readAll(cache.getStream("a"));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+            for (final Path file : files) {
+                byte[] content = Files.readAllBytes(file);
+                content[0]++;
+                Files.write(file, content);
+            }
+        }
+        long size = cache.getDataSize("a");
+        try (InputStream stream = cache.getStream("a")) {
+            stream.readNBytes((int) size);
+            Assert.fail("Expected IOException");
+        } catch (final IOException e) {
+            Assert.assertEquals(cache.getChecksumFailures(), 1);
+        }
+        Assert.assertEquals(readAll(cache.getStream("a")), data);
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced()
+        throws Exception
+    {
+        byte[] data = createData(100);
+        source.data.put("a", data);
+        source.block = new CountDownLatch(1);
+        CachingDataSource cache = new CachingDataSource(source, 0, 1000, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> readAll(cache.getStream("a"))));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.getCoalescedRequests() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            source.block.countDown();
+            for (Future<byte[]> result : results) {
+                Assert.assertEquals(result.get(5, TimeUnit.SECONDS), data);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(source.streamRequests.get(), 1);
+        Assert.assertEquals(cache.getCoalescedRequests(), 3);
+    }
+
+    @Test(expectedExceptions = SourceNotFoundException.class)
+    public void testSourceNotFound()
+        throws DataSourceException
+    {
+        new CachingDataSource(source, 0, 1000, 1000).getStream("missing");
+    }
+
+    private long countCacheFiles()
+        throws IOException
+    {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+            long count = 0;
+            for (final Path file : files) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private static byte[] createData(final int length)
+    {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] readAll(final InputStream stream)
+        throws IOException
+    {
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static final class CountingDataSource extends DataSource
+    {
+        private final Map<String, Object> objects = new HashMap<>();
+        private final Map<String, byte[]> data = new HashMap<>();
+        private final Map<String, Long> reportedSizes = new HashMap<>();
+        private final AtomicInteger objectRequests = new AtomicInteger();
+        private final AtomicInteger streamRequests = new AtomicInteger();
+        private volatile CountDownLatch block;
+
+        @Override
+        public <T> T getObject(final String ref, final Class<T> clazz)
+            throws DataSourceException
+        {
+            objectRequests.incrementAndGet();
+            if (!objects.containsKey(ref)) {
+                throw new SourceNotFoundException("Not found: " + ref);
+            }
+            return clazz.cast(objects.get(ref));
+        }
+
+        @Override
+        public InputStream getStream(final String ref)
+            throws DataSourceException
+        {
+            streamRequests.incrementAndGet();
+            if (block != null) {
+                try {
+                    block.await(5, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new ByteArrayInputStream(getData(ref));
+        }
+
+        @Override
+        public long getDataSize(final String ref)
+            throws DataSourceException
+        {
+            final byte[] bytes = getData(ref);
+            final Long reportedSize = reportedSizes.get(ref);
+            return reportedSize != null ? reportedSize : bytes.length;
+        }
+
+        private byte[] getData(final String ref)
+            throws SourceNotFoundException
+        {
+            final byte[] bytes = data.get(ref);
+            if (bytes == null) {
+                throw new SourceNotFoundException("Not found: " + ref);
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015-2023 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hpe.caf.util.ref;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ReferencedDataInputStreamTest
+{
+    private static final String REF = "ref123";
+
+    @Test
+    public void testRangedChunks()
+        throws IOException
+    {
+        byte[] data = createData(10000);
+        TestDataSource source = new TestDataSource(data, true, 0);
+        try (InputStream stream = ReferencedData.getReferencedData(REF).acquire(source, 1000, 3)) {
+            Assert.assertEquals(readAll(stream), data);
+        }
+        Assert.assertEquals(source.offsets.subList(0, 10), List.of(0L, 1000L, 2000L, 3000L, 4000L, 5000L, 6000L, 7000L, 8000L, 9000L));
+    }
+
+    @Test
+    public void testSequentialChunks()
+        throws IOException
+    {
+        byte[] data = createData(10500);
+        TestDataSource source = new TestDataSource(data, false, 0);
+        try (InputStream stream = ReferencedData.getReferencedData(REF).acquire(source, 1000, 3)) {
+            Assert.assertEquals(readAll(stream), data);
+        }
+        Assert.assertEquals(source.offsets, List.of(0L));
+    }
+
+    @Test
+    public void testResumeAfterFailure()
+        throws IOException
+    {
+        byte[] data = createData(5000);
+        TestDataSource source = new TestDataSource(data, false, 700);
+        try (InputStream stream = ReferencedData.getReferencedData(REF).acquire(source, 1000, 2)) {
+            Assert.assertEquals(readAll(stream), data);
+        }
+        Assert.assertEquals(source.offsets.subList(0, 3), List.of(0L, 700L, 1400L));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testFailAfterMaxAttempts()
+        throws IOException
+    {
+        TestDataSource source = new TestDataSource(createData(5000), true, 0);
+        source.failuresBeforeFirstByte = 3;
+        try (InputStream stream = ReferencedData.getReferencedData(REF).acquire(source, 1000, 3)) {
+            readAll(stream);
+        }
+    }
+
+    @Test
+    public void testRetriesBackOff()
+        throws IOException
+    {
+        byte[] data = createData(5000);
+        TestDataSource source = new TestDataSource(data, true, 0);
+        source.failuresBeforeFirstByte = 3;
+        final long start = System.nanoTime();
+        try (InputStream stream = ReferencedData.getReferencedData(REF).acquire(source, 1000, 4, 100)) {
+            Assert.assertEquals(readAll(stream), data);
+        }
+        // the retries wait for 100, 200 and then 400 milliseconds
+        Assert.assertTrue(System.nanoTime() - start >= 700_000_000L);
+    }
+
+    @Test
+    public void testSourceNotFoundIsNotRetried()
+    {
+        TestDataSource source = new TestDataSource(null, true, 0);
+        try (InputStream stream = ReferencedData.getReferencedData(REF).acquire(source, 1000, 3)) {
+            stream.read();
+            Assert.fail("Expected IOException");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getCause() instanceof SourceNotFoundException);
+        }
+        Assert.assertEquals(source.offsets.size(), 1);
+    }
+
+    @Test
+    public void testWrappedDataIsNotChunked()
+        throws IOException
+    {
+        byte[] data = createData(100);
+        try (InputStream stream = ReferencedData.getWrappedData(REF, data).acquire(new TestDataSource(null, true, 0), 10, 1)) {
+            Assert.assertEquals(readAll(stream), data);
+        }
+    }
+
+    @Test
+    public void testDefaultRangedStream()
+        throws DataSourceException, IOException
+    {
+        byte[] data = createData(100);
+        DataSource source = new TestDataSource(data, false, 0);
+        try (InputStream stream = source.getStream(REF, 5, 3)) {
+            Assert.assertEquals(readAll(stream), new byte[]{data[5], data[6], data[7]});
+        }
+        try (InputStream stream = source.getStream(REF, 200, 3)) {
+            Assert.assertEquals(stream.read(), -1);
+        }
+    }
+
+    private static byte[] createData(final int length)
+    {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] readAll(final InputStream stream)
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[333];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A DataSource that serves data from memory, recording the offset of each stream requested, and that can fail each stream after a
+     * number of bytes have been read from it.
+     */
+    private static final class TestDataSource extends DataSource
+    {
+        private final byte[] data;
+        private final boolean ranged;
+        private final int failAfterBytes;
+        private final List<Long> offsets = new ArrayList<>();
+        private int failuresBeforeFirstByte;
+
+        public TestDataSource(final byte[] data, final boolean ranged, final int failAfterBytes)
+        {
+            this.data = data;
+            this.ranged = ranged;
+            this.failAfterBytes = failAfterBytes;
+        }
+
+        @Override
+        public <T> T getObject(final String ref, final Class<T> clazz)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getStream(final String ref)
+            throws DataSourceException
+        {
+            return getStream(ref, 0, Long.MAX_VALUE);
+        }
+
+        @Override
+        public synchronized InputStream getStream(final String ref, final long offset, final long length)
+            throws DataSourceException
+        {
+            offsets.add(offset);
+            if (data == null) {
+                throw new SourceNotFoundException("Not found: " + ref);
+            }
+            final int start = (int) Math.min(offset, data.length);
+            final int end = (int) Math.min(data.length, start + Math.min(length, Integer.MAX_VALUE));
+            final InputStream stream = new ByteArrayInputStream(data, start, end - start);
+            if (failuresBeforeFirstByte > 0) {
+                failuresBeforeFirstByte--;
+                return new FailingInputStream(stream, 0);
+            }
+            return failAfterBytes > 0 ? new FailingInputStream(stream, failAfterBytes) : stream;
+        }
+
+        @Override
+        public boolean supportsRangedStreams()
+        {
+            return ranged;
+        }
+
+        @Override
+        public long getDataSize(final String ref)
+        {
+            return data.length;
+        }
+    }
+
+    private static final class FailingInputStream extends InputStream
+    {
+        private final InputStream in;
+        private int remaining;
+
+        public FailingInputStream(final InputStream in, final int failAfterBytes)
+        {
+            this.in = in;
+            this.remaining = failAfterBytes;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+            throws IOException
+        {
+            if (remaining == 0) {
+                throw new IOException("Simulated failure");
+            }
+            final int read = in.read(b, off, Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}